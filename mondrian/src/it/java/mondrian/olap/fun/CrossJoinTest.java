@@ -14,6 +14,7 @@ import mondrian.mdx.ResolvedFunCall;
 import mondrian.olap.*;
 import mondrian.olap.type.*;
 import mondrian.test.FoodMartTestCase;
+import mondrian.test.TestContext;
 
 import junit.framework.Assert;
 
@@ -107,6 +108,42 @@ if (! Util.Retrowoven) {
         Assert.assertEquals(e, s);
     }
 
+    /**
+     * Tests that a crossjoin on a NON EMPTY axis that is too large to
+     * materialize, and that is generated lazily while leaving out empty
+     * tuples, gives the same result as the usual evaluation.
+     *
+     * <p>The three-way crossjoin is nested both ways. If the inner crossjoin
+     * is the left operand, it is streamed, and the outer crossjoin streams
+     * over it rather than over a list.
+     */
+    public void testNonEmptyStreaming() {
+        propSaver.set(propSaver.properties.EnableNativeCrossJoin, false);
+        final String query =
+            "select {[Measures].[Unit Sales], [Measures].[Store Cost]} on 0,\n"
+            + " non empty Crossjoin([Store].[Store City].Members,\n"
+            + "   Crossjoin([Product].[Product Category].Members,\n"
+            + "     [Gender].[Gender].Members)) on 1\n"
+            + "from [Sales]\n"
+            + "where [Time].[1997].[Q2]";
+        final String leftNestedQuery =
+            "select {[Measures].[Unit Sales], [Measures].[Store Cost]} on 0,\n"
+            + " non empty Crossjoin(\n"
+            + "   Crossjoin([Store].[Store City].Members,\n"
+            + "     [Product].[Product Category].Members),\n"
+            + "   [Gender].[Gender].Members) on 1\n"
+            + "from [Sales]\n"
+            + "where [Time].[1997].[Q2]";
+        propSaver.set(propSaver.properties.CrossJoinStreamingSize, 0);
+        final String expected = TestContext.toString(executeQuery(query));
+        assertEquals(
+            expected, TestContext.toString(executeQuery(leftNestedQuery)));
+        propSaver.set(propSaver.properties.CrossJoinStreamingSize, 1);
+        assertEquals(expected, TestContext.toString(executeQuery(query)));
+        assertEquals(
+            expected, TestContext.toString(executeQuery(leftNestedQuery)));
+    }
+
     ////////////////////////////////////////////////////////////////////////
     // Immutable List
     ////////////////////////////////////////////////////////////////////////
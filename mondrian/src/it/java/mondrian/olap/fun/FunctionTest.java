@@ -10,8 +10,11 @@
 */
 package mondrian.olap.fun;
 
+import mondrian.calc.TupleList;
+import mondrian.calc.impl.ArrayTupleList;
 import mondrian.olap.*;
 import mondrian.resource.MondrianResource;
+import mondrian.rolap.RolapUtil;
 import mondrian.test.BasicQueryTest;
 import mondrian.test.FoodMartTestCase;
 import mondrian.test.TestContext;
@@ -21,7 +24,10 @@ import mondrian.util.Bug;
 import junit.framework.Assert;
 import junit.framework.ComparisonFailure;
 
+import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
+import org.apache.log4j.SimpleLayout;
+import org.apache.log4j.WriterAppender;
 
 import org.eigenbase.xom.StringEscaper;
 
@@ -2555,6 +2561,41 @@ public class FunctionTest extends FoodMartTestCase {
             + "[Store].[USA].[CA]");
     }
 
+    /**
+     * Tests that DrilldownMember reads the children of all of the members
+     * it drills in one SQL statement, not one per member.
+     */
+    public void testDrilldownMemberReadsChildrenInOneQuery() {
+        final List<String> sqls = new ArrayList<String>();
+        RolapUtil.setHook(
+            new RolapUtil.ExecuteQueryHook() {
+                public void onExecuteQuery(String sql) {
+                    if (sql.contains("store_city")
+                        && !sql.contains("sales_fact"))
+                    {
+                        sqls.add(sql);
+                    }
+                }
+            });
+        try {
+            getTestContext().withFreshConnection().assertAxisReturns(
+                "DrilldownMember({[Store].[USA].[CA], [Store].[USA].[OR]}, "
+                + "{[Store].[USA].[CA], [Store].[USA].[OR]})",
+                "[Store].[USA].[CA]\n"
+                + "[Store].[USA].[CA].[Alameda]\n"
+                + "[Store].[USA].[CA].[Beverly Hills]\n"
+                + "[Store].[USA].[CA].[Los Angeles]\n"
+                + "[Store].[USA].[CA].[San Diego]\n"
+                + "[Store].[USA].[CA].[San Francisco]\n"
+                + "[Store].[USA].[OR]\n"
+                + "[Store].[USA].[OR].[Portland]\n"
+                + "[Store].[USA].[OR].[Salem]");
+        } finally {
+            RolapUtil.setHook(null);
+        }
+        assertEquals(sqls.toString(), 1, sqls.size());
+    }
+
     public void testDrilldownMember() {
         // Expect all children of USA
         assertAxisReturns(
@@ -2697,6 +2738,23 @@ public class FunctionTest extends FoodMartTestCase {
         Assert.assertNull(member);
     }
 
+    /**
+     * Tests Lag and Lead which cross several parents, and so skip whole
+     * lists of siblings.
+     */
+    public void testLagAcrossParents() {
+        Member member = executeSingletonAxis("[Time].[1998].[Q1].[2].Lag(13)");
+        Assert.assertEquals("[Time].[1997].[Q1].[1]", member.getUniqueName());
+        member = executeSingletonAxis("[Time].[1997].[Q1].[1].Lead(13)");
+        Assert.assertEquals("[Time].[1998].[Q1].[2]", member.getUniqueName());
+        member = executeSingletonAxis("[Time].[1997].[Q3].[8].Lag(5)");
+        Assert.assertEquals("[Time].[1997].[Q1].[3]", member.getUniqueName());
+        member = executeSingletonAxis("[Time].[1998].[Q1].[2].Lag(14)");
+        Assert.assertNull(member);
+        member = executeSingletonAxis("[Time].[1997].[Q1].[1].Lead(24)");
+        Assert.assertNull(member);
+    }
+
     public void testLastChild() {
         Member member = executeSingletonAxis("[Gender].LastChild");
         Assert.assertEquals("M", member.getName());
@@ -3057,6 +3115,30 @@ public class FunctionTest extends FoodMartTestCase {
             + "Row #2: 8,173.22\n");
     }
 
+    /**
+     * Tests that Aggregate and Sum over a large set of tuples, which are
+     * evaluated as a single cell request with a compound predicate, return
+     * the same values as when each tuple is evaluated separately.
+     */
+    public void testAggregateByCompoundPredicate() {
+        final String query =
+            "WITH MEMBER [Time].[Time].[Agg] as\n"
+            + " 'Aggregate(Crossjoin({[Time].[1997].[Q1], [Time].[1997].[Q2]},\n"
+            + "   [Product].[Drink].Children))'\n"
+            + "  MEMBER [Measures].[Sum Sales] as\n"
+            + " 'Sum(Crossjoin([Gender].Children, [Marital Status].Children),\n"
+            + "   [Measures].[Unit Sales])'\n"
+            + "SELECT {[Measures].[Unit Sales], [Measures].[Store Sales],\n"
+            + "  [Measures].[Sum Sales]} on columns,\n"
+            + "  {[Store].[USA].Children} * {[Time].[1997].[Q3], [Time].[Agg]}"
+            + " on rows\n"
+            + "FROM [Sales]";
+        propSaver.set(propSaver.properties.CompoundAggregateThreshold, 0);
+        final String expected = TestContext.toString(executeQuery(query));
+        propSaver.set(propSaver.properties.CompoundAggregateThreshold, 1);
+        assertEquals(expected, TestContext.toString(executeQuery(query)));
+    }
+
     /**
      * Tests behavior where CurrentMember occurs in calculated members and
      * that member is a set.
@@ -3430,6 +3512,29 @@ public class FunctionTest extends FoodMartTestCase {
             "68,259.66");
     }
 
+    /**
+     * Tests that {@link FunUtil#select(double[], int)}, which Median,
+     * Percentile and the quartile functions use instead of sorting, returns
+     * the same value as sorting, including for duplicates and NaN.
+     */
+    public void testSelect() {
+        final Random random = new Random(1234);
+        for (int n = 1; n < 40; n++) {
+            final double[] values = new double[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = random.nextInt(7) == 0
+                    ? Double.NaN
+                    : random.nextInt(n);
+            }
+            final double[] sorted = values.clone();
+            Arrays.sort(sorted);
+            for (int k = 0; k < n; k++) {
+                assertEquals(
+                    sorted[k], FunUtil.select(values.clone(), k));
+            }
+        }
+    }
+
     /**
      * Testcase for bug
      * <a href="http://jira.pentaho.com/browse/MONDRIAN-1045">MONDRIAN-1045,
@@ -6852,6 +6957,86 @@ public class FunctionTest extends FoodMartTestCase {
         Assert.assertEquals("WA", rows.get(2).get(1).getName());
     }
 
+    /**
+     * Tests a Filter nested inside another Filter. Each Filter loads the
+     * cells its condition reads before returning, so the inner Filter's
+     * result is final when the outer Filter reads it.
+     */
+    public void testFilterNested() {
+        final String nested =
+            "select {[Measures].[Unit Sales], [Measures].[Store Sales]}"
+            + " on columns,\n"
+            + "  Order(\n"
+            + "    Filter(\n"
+            + "      Filter([Customers].[City].Members,\n"
+            + "        [Measures].[Unit Sales] > 1000),\n"
+            + "      [Measures].[Store Sales] > 2500),\n"
+            + "    [Measures].[Store Sales], BDESC) on rows\n"
+            + "from Sales";
+        final String combined =
+            "select {[Measures].[Unit Sales], [Measures].[Store Sales]}"
+            + " on columns,\n"
+            + "  Order(\n"
+            + "    Filter([Customers].[City].Members,\n"
+            + "      [Measures].[Unit Sales] > 1000\n"
+            + "      and [Measures].[Store Sales] > 2500),\n"
+            + "    [Measures].[Store Sales], BDESC) on rows\n"
+            + "from Sales";
+        final Result result = executeQuery(nested);
+        assertTrue(result.getAxes()[1].getPositions().size() > 0);
+        assertEquals(
+            TestContext.toString(executeQuery(combined)),
+            TestContext.toString(result));
+    }
+
+    /**
+     * Tests that a Filter nested in Generate does not load its cells once
+     * per iteration. Its cells are loaded by the enclosing pass, so it
+     * issues no more SQL statements than one Filter over the same tuples.
+     */
+    public void testFilterInGenerateLoadsCellsOnce() {
+        final String nested =
+            "select {[Measures].[Unit Sales]} on columns,\n"
+            + "  Generate([Store].[USA].Children,\n"
+            + "    Filter(\n"
+            + "      Descendants([Store].CurrentMember, [Store].[Store City]),\n"
+            + "      [Measures].[Unit Sales] > 20000)) on rows\n"
+            + "from Sales";
+        final String flat =
+            "select {[Measures].[Unit Sales]} on columns,\n"
+            + "  Filter(\n"
+            + "    {Descendants([Store].[USA].[CA], [Store].[Store City]),\n"
+            + "     Descendants([Store].[USA].[OR], [Store].[Store City]),\n"
+            + "     Descendants([Store].[USA].[WA], [Store].[Store City])},\n"
+            + "    [Measures].[Unit Sales] > 20000) on rows\n"
+            + "from Sales";
+        final List<String> sqls = new ArrayList<String>();
+        RolapUtil.setHook(
+            new RolapUtil.ExecuteQueryHook() {
+                public void onExecuteQuery(String sql) {
+                    if (sql.contains("sales_fact_1997")) {
+                        sqls.add(sql);
+                    }
+                }
+            });
+        try {
+            getTestContext().flushSchemaCache();
+            final Result flatResult = executeQuery(flat);
+            final int flatCount = sqls.size();
+            assertTrue(flatCount > 0);
+            sqls.clear();
+            getTestContext().flushSchemaCache();
+            final Result nestedResult = executeQuery(nested);
+            assertEquals(sqls.toString(), flatCount, sqls.size());
+            assertTrue(nestedResult.getAxes()[1].getPositions().size() > 0);
+            assertEquals(
+                TestContext.toString(flatResult),
+                TestContext.toString(nestedResult));
+        } finally {
+            RolapUtil.setHook(null);
+        }
+    }
+
     public void testGenerateDepends() {
         getTestContext().assertSetExprDependsOn(
             "Generate([Product].CurrentMember.Children, Crossjoin({[Product].CurrentMember}, Crossjoin([Store].[Store State].Members, [Store Type].Members)), ALL)",
@@ -6929,6 +7114,56 @@ public class FunctionTest extends FoodMartTestCase {
             "{[Store].[USA].[CA], [Product].[All Products]}");
     }
 
+    /**
+     * Tests Generate where the inner set depends on only some of the
+     * hierarchies of the outer set. The inner set is evaluated once per
+     * distinct member of those hierarchies, and the results are reused.
+     */
+    public void testGenerateMemoized() {
+        assertAxisReturns(
+            "Generate(Crossjoin({[Store].[USA].[CA], [Store].[USA].[OR]},"
+            + " [Gender].Members),"
+            + " {[Store].CurrentMember.FirstChild}, ALL)",
+            "[Store].[USA].[CA].[Alameda]\n"
+            + "[Store].[USA].[CA].[Alameda]\n"
+            + "[Store].[USA].[CA].[Alameda]\n"
+            + "[Store].[USA].[OR].[Portland]\n"
+            + "[Store].[USA].[OR].[Portland]\n"
+            + "[Store].[USA].[OR].[Portland]");
+        assertAxisReturns(
+            "Generate(Crossjoin({[Store].[USA].[CA], [Store].[USA].[OR]},"
+            + " [Gender].Members),"
+            + " {[Gender].CurrentMember})",
+            "[Gender].[All Gender]\n"
+            + "[Gender].[F]\n"
+            + "[Gender].[M]");
+        assertAxisReturns(
+            "Generate(Crossjoin({[Store].[USA].[CA], [Store].[USA].[OR]},"
+            + " {[Gender].[M], [Gender].[F]}),"
+            + " {[Time].[1997].[Q1]}, ALL)",
+            "[Time].[1997].[Q1]\n"
+            + "[Time].[1997].[Q1]\n"
+            + "[Time].[1997].[Q1]\n"
+            + "[Time].[1997].[Q1]");
+    }
+
+    /**
+     * Tests that Generate does not memoize its inner set in a non-empty
+     * context, where the set of non-empty customers depends on the gender
+     * of the outer tuple even though the inner set does not mention it.
+     */
+    public void testGenerateMemoizedNonEmpty() {
+        final String query =
+            "select NON EMPTY Generate("
+            + "Crossjoin({[Store].[USA].[CA]}, {[Gender].[F], [Gender].[M]}),"
+            + " [Customers].[USA].[CA].[Altadena].Children, ALL) on 0\n"
+            + "from [Sales]";
+        propSaver.set(propSaver.properties.GenerateMemoize, false);
+        final String expected = TestContext.toString(executeQuery(query));
+        propSaver.set(propSaver.properties.GenerateMemoize, true);
+        assertEquals(expected, TestContext.toString(executeQuery(query)));
+    }
+
     public void testGenerateCrossJoin() {
         // Note that the different regions have different Top 2.
         assertAxisReturns(
@@ -7235,6 +7470,66 @@ public class FunctionTest extends FoodMartTestCase {
             + "{[Product].[All Products], [Gender].[All Gender]}");
     }
 
+    /**
+     * Tests that sorting by precomputed hierarchy ordinals gives the same
+     * order as {@link FunUtil#compareHierarchically}, for members and for
+     * tuples, in prefix and postfix order.
+     */
+    public void testHierarchizeOrdinals() {
+        final Axis axis = executeAxis(
+            "Crossjoin(\n"
+            + "  {[Product].[All Products], [Product].[Drink],\n"
+            + "   [Product].[Drink].Children, [Product].[Food].[Eggs],\n"
+            + "   [Product].[Food].[Eggs].Children,\n"
+            + "   [Product].[Food].[Eggs].[Eggs].Children},\n"
+            + "  [Gender].Members)");
+        final TupleList tupleList = new ArrayTupleList(2);
+        for (Position position : axis.getPositions()) {
+            tupleList.add(position);
+        }
+        for (final boolean post : new boolean[] {false, true}) {
+            for (int seed = 0; seed < 3; seed++) {
+                final TupleList shuffled = tupleList.cloneList(-1);
+                Collections.shuffle(shuffled, new Random(seed));
+
+                final List<List<Member>> expected =
+                    new ArrayList<List<Member>>(shuffled);
+                Collections.sort(
+                    expected,
+                    new Comparator<List<Member>>() {
+                        public int compare(List<Member> o1, List<Member> o2) {
+                            for (int i = 0; i < o1.size(); i++) {
+                                final int c = FunUtil.compareHierarchically(
+                                    o1.get(i), o2.get(i), post);
+                                if (c != 0) {
+                                    return c;
+                                }
+                            }
+                            return 0;
+                        }
+                    });
+                assertEquals(
+                    expected,
+                    FunUtil.hierarchizeTupleList(shuffled, post));
+
+                final List<Member> members =
+                    new ArrayList<Member>(shuffled.slice(0));
+                final List<Member> expectedMembers =
+                    new ArrayList<Member>(members);
+                Collections.sort(
+                    expectedMembers,
+                    new Comparator<Member>() {
+                        public int compare(Member m1, Member m2) {
+                            return FunUtil.compareHierarchically(
+                                m1, m2, post);
+                        }
+                    });
+                FunUtil.hierarchizeMemberList(members, post);
+                assertEquals(expectedMembers, members);
+            }
+        }
+    }
+
     /**
      * Tests that the Hierarchize function works correctly when applied to
      * a level whose ordering is determined by an 'ordinal' property.
@@ -7767,6 +8062,36 @@ public class FunctionTest extends FoodMartTestCase {
             + "{[Gender].[F], [Product].[Drink].[Dairy]}");
     }
 
+    /**
+     * Tests that Order with a break sort gives the same result whether or
+     * not debug logging is enabled. Logging traces the sort; it does not
+     * change how members are sorted.
+     */
+    public void testOrderBreakWithDebugLogging() {
+        final String query =
+            "select {[Measures].[Unit Sales]} on columns,\n"
+            + " Order([Product].[Product Department].Members,\n"
+            + "   [Measures].[Unit Sales], BDESC) on rows\n"
+            + "from Sales";
+        final String expected = TestContext.toString(executeQuery(query));
+        final Logger logger = Logger.getLogger(FunUtil.class);
+        final Level level = logger.getLevel();
+        final StringWriter sw = new StringWriter();
+        final WriterAppender appender =
+            new WriterAppender(new SimpleLayout(), sw);
+        try {
+            logger.setLevel(Level.DEBUG);
+            logger.addAppender(appender);
+            assertEquals(expected, TestContext.toString(executeQuery(query)));
+        } finally {
+            logger.removeAppender(appender);
+            logger.setLevel(level);
+        }
+        assertTrue(
+            sw.toString(),
+            sw.toString().contains("FunUtil.sortMembers returned:"));
+    }
+
     public void testOrderBug656802() {
         // Note:
         // 1. [Alcoholic Beverages] collates before [Eggs] and
@@ -8679,6 +9004,32 @@ public class FunctionTest extends FoodMartTestCase {
             "");
     }
 
+    /**
+     * Tests that TopCount and BottomCount, which retain only the best
+     * <i>n</i> tuples as they scan the set, return the same tuples in the
+     * same order as a stable sort of the whole set, including for ties.
+     */
+    public void testTopCountTies() {
+        final String set =
+            "Crossjoin([Store].[Store State].members, [Product].[Product Family].members)";
+        final String exp = "Int([Measures].[Unit Sales] / 10000)";
+        for (int n : new int[] {1, 3, 7, 40}) {
+            for (String dir : new String[] {"Top", "Bottom"}) {
+                final Axis expected =
+                    executeAxis(
+                        "Head(Order(" + set + ", " + exp + ", "
+                        + (dir.equals("Top") ? "BDESC" : "BASC") + "), "
+                        + n + ")");
+                final Axis actual =
+                    executeAxis(
+                        dir + "Count(" + set + ", " + n + ", " + exp + ")");
+                assertEquals(
+                    TestContext.toString(expected.getPositions()),
+                    TestContext.toString(actual.getPositions()));
+            }
+        }
+    }
+
     public void testTopCountDepends() {
         checkTopBottomCountPercentDepends("TopCount");
         checkTopBottomCountPercentDepends("TopPercent");
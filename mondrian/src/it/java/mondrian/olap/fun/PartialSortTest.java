@@ -9,6 +9,8 @@
 
 package mondrian.olap.fun;
 
+import mondrian.olap.Util;
+import mondrian.rolap.RolapUtil;
 import mondrian.test.PerformanceTest;
 
 import junit.framework.TestCase;
@@ -502,6 +504,78 @@ public class PartialSortTest extends TestCase
         randomItemTests(50000, 12000);
     }
 
+    // checks that sorting positions by value gives the same stable order as
+    // sorting the values with FunUtil.compareValues
+    private void checkValueIndexSorter(final Object[] values, boolean desc) {
+        Integer[] expected = new Integer[values.length];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = i;
+        }
+        Comparator<Integer> comp = new Comparator<Integer>() {
+            public int compare(Integer i1, Integer i2) {
+                return FunUtil.compareValues(values[i1], values[i2]);
+            }
+        };
+        if (desc) {
+            comp = Collections.reverseOrder(comp);
+        }
+        Arrays.sort(expected, comp);
+        int[] actual = new FunUtil.ValueIndexSorter(values, desc).sort();
+        for (int i = 0; i < actual.length; i++) {
+            assertEquals(expected[i].intValue(), actual[i]);
+        }
+    }
+
+    public void testValueIndexSorter() {
+        final int length = 10000;
+        Object[] values = new Object[length];
+        for (int i = 0; i < length; i++) {
+            switch (random.nextInt(10)) {
+            case 0:
+                values[i] = Util.nullValue;
+                break;
+            case 1:
+                values[i] = RolapUtil.valueNotReadyException;
+                break;
+            case 2:
+                values[i] = Double.NaN;
+                break;
+            default:
+                // include zero and negative values, which nulls and values
+                // not yet loaded must sort before
+                values[i] = random.nextInt(length / 20) - length / 40;
+            }
+        }
+        checkValueIndexSorter(values, false);
+        checkValueIndexSorter(values, true);
+
+        // The null and not-ready sentinels are Doubles, but sort before
+        // every number.
+        final Object[] sentinels = {
+            0, Util.nullValue, -1.5, RolapUtil.valueNotReadyException, 2
+        };
+        assertTrue(
+            Arrays.equals(
+                new int[] {3, 1, 2, 0, 4},
+                new FunUtil.ValueIndexSorter(sentinels, false).sort()));
+        assertTrue(
+            Arrays.equals(
+                new int[] {4, 0, 2, 1, 3},
+                new FunUtil.ValueIndexSorter(sentinels, true).sort()));
+        checkValueIndexSorter(sentinels, false);
+        checkValueIndexSorter(sentinels, true);
+
+        String[] strings = new String[length];
+        for (int i = 0; i < length; i++) {
+            strings[i] = random.nextBoolean()
+                ? "a" + random.nextInt(100)
+                : "A" + random.nextInt(100);
+        }
+        checkValueIndexSorter(strings, false);
+        checkValueIndexSorter(strings, true);
+        checkValueIndexSorter(new Object[0], false);
+    }
+
 
     // Compares elapsed time of full sort (mergesort), partial sort, and stable
     // partial sort on the same input set.
@@ -131,6 +131,46 @@ public class VisualTotalsTest extends TestCase {
         assertEquals("*Subtotal - Bread", member.getCaption());
     }
 
+    /**
+     * Tests nested visual totals. Each visual total is computed once per
+     * cell context and reused by the visual totals above it; the totals
+     * must still add up.
+     */
+    public void testNestedVisualTotals() throws SQLException {
+        CellSet cellSet =
+            TestContext.instance().executeOlap4jQuery(
+                "select {[Measures].[Unit Sales], [Measures].[Store Sales]}"
+                + " on columns, "
+                + "VisualTotals("
+                + "    {[Product].[Drink],"
+                + "     [Product].[Drink].[Dairy],"
+                + "     [Product].[Drink].[Dairy].[Dairy].[Milk],"
+                + "     [Product].[Drink].[Beverages],"
+                + "     [Product].[Drink].[Beverages].[Pure Juice Beverages],"
+                + "     [Product].[Drink].[Beverages].[Pure Juice Beverages]"
+                + ".[Juice],"
+                + "     [Product].[Drink].[Beverages].[Drinks]}) on rows "
+                + "from [Sales]");
+        for (int column = 0; column < 2; column++) {
+            final double drink = value(cellSet, column, 0);
+            final double dairy = value(cellSet, column, 1);
+            final double milk = value(cellSet, column, 2);
+            final double beverages = value(cellSet, column, 3);
+            final double pureJuice = value(cellSet, column, 4);
+            final double juice = value(cellSet, column, 5);
+            final double drinks = value(cellSet, column, 6);
+            assertEquals(milk, dairy, 0.001);
+            assertEquals(juice, pureJuice, 0.001);
+            assertEquals(pureJuice + drinks, beverages, 0.001);
+            assertEquals(dairy + beverages, drink, 0.001);
+        }
+    }
+
+    private static double value(CellSet cellSet, int column, int row) {
+        return ((Number) cellSet.getCell(Arrays.asList(column, row))
+            .getValue()).doubleValue();
+    }
+
     /**
      * Test case for bug <a href="http://jira.pentaho.com/browse/MONDRIAN-939">
      * MONDRIAN-939, "VisualTotals returning incorrect values with aggregate members"</a>.
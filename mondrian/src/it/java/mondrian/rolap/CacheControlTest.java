@@ -1277,6 +1277,72 @@ public class CacheControlTest extends FoodMartTestCase {
         assertCacheStateEquals(tag, "${output2}", actual);
     }
 
+    /**
+     * Tests that flushing a cell region removes the cached native sets that
+     * facts in the region may have contributed to, and only those.
+     */
+    public void testFlushNativeSetCache() {
+        if (MondrianProperties.instance().DisableCaching.get()
+            || !MondrianProperties.instance().EnableNativeCrossJoin.get())
+        {
+            return;
+        }
+        final TestContext testContext = getTestContext();
+        flushCache(testContext);
+        final Connection connection = testContext.getConnection();
+        final NativeSetCache nativeSetCache =
+            ((RolapSchema) connection.getSchema()).getNativeRegistry()
+                .getNativeSetCache();
+        final String query =
+            "select {[Measures].[Unit Sales]} on 0,\n"
+            + "NON EMPTY Crossjoin([Gender].[Gender].Members,\n"
+            + "  [Marital Status].[Marital Status].Members) on 1\n"
+            + "from [Sales]\n"
+            + "where [Time].[1997].[Q1]";
+        testContext.executeQuery(query);
+        final int size = nativeSetCache.size();
+        assertTrue(size > 0);
+        assertTrue(nativeSetCache.getByteCount() > 0);
+
+        // Run the query again; the native set is found in cache.
+        final int hitCount = nativeSetCache.getHitCount();
+        testContext.executeQuery(query);
+        assertTrue(nativeSetCache.getHitCount() > hitCount);
+        assertEquals(size, nativeSetCache.size());
+
+        final CacheControl cacheControl = testContext.getCacheControl();
+        final Cube salesCube =
+            connection.getSchema().lookupCube("Sales", true);
+        final Cube warehouseCube =
+            connection.getSchema().lookupCube("Warehouse", true);
+        final SchemaReader schemaReader =
+            salesCube.getSchemaReader(null).withLocus();
+        final Member member1997 = schemaReader.getMemberByUniqueName(
+            Id.Segment.toList("Time", "1997"), true);
+        final Member memberQ2 = schemaReader.getMemberByUniqueName(
+            Id.Segment.toList("Time", "1997", "Q2"), true);
+
+        // Facts of another cube, and facts outside the slicer, do not
+        // affect the native set.
+        cacheControl.flush(
+            cacheControl.createCrossjoinRegion(
+                cacheControl.createMeasuresRegion(warehouseCube),
+                cacheControl.createMemberRegion(member1997, true)));
+        assertEquals(size, nativeSetCache.size());
+        cacheControl.flush(
+            cacheControl.createCrossjoinRegion(
+                cacheControl.createMeasuresRegion(salesCube),
+                cacheControl.createMemberRegion(memberQ2, true)));
+        assertEquals(size, nativeSetCache.size());
+
+        // Facts of the slicer's year do.
+        cacheControl.flush(
+            cacheControl.createCrossjoinRegion(
+                cacheControl.createMeasuresRegion(salesCube),
+                cacheControl.createMemberRegion(member1997, true)));
+        assertTrue(nativeSetCache.size() < size);
+    }
+
     // todo: Test flushing a segment which is unconstrained
 
     // todo: Test flushing a segment where 2 or more axes are reduced. E.g.
@@ -0,0 +1,161 @@
+/*
+// This software is subject to the terms of the Eclipse Public License v1.0
+// Agreement, available at the following URL:
+// http://www.eclipse.org/legal/epl-v10.html.
+// You must accept the terms of that agreement to use this software.
+//
+// Copyright (C) 2015-2015 Pentaho and others
+// All Rights Reserved.
+*/
+package mondrian.rolap;
+
+import mondrian.olap.MondrianProperties;
+import mondrian.rolap.cache.SmartCache;
+import mondrian.test.PropertyRestoringTestCase;
+
+import java.util.*;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test for {@link CompactMemberCache}.
+ */
+public class CompactMemberCacheTest extends PropertyRestoringTestCase {
+    private final CompactMemberCache cache = new CompactMemberCache();
+
+    /**
+     * Returns a parent whose children belong to a level of their own, so
+     * that each parent's children go to a separate segment.
+     */
+    private static RolapMember mockParent() {
+        final RolapLevel level = mock(RolapLevel.class);
+        when(level.getChildLevel()).thenReturn(mock(RolapLevel.class));
+        final RolapMember parent = mock(RolapMember.class);
+        when(parent.getLevel()).thenReturn(level);
+        return parent;
+    }
+
+    public void testPutGetRemove() {
+        final RolapMember parent = mockParent();
+        final List<RolapMember> members = new ArrayList<RolapMember>();
+        // More than a segment initially holds, so that it is copied.
+        for (int i = 0; i < 100; i++) {
+            final RolapMember member = mock(RolapMember.class);
+            members.add(member);
+            assertNull(cache.put(new MemberKey(parent, i), member));
+        }
+        assertEquals(100, cache.size());
+        for (int i = 0; i < 100; i++) {
+            assertSame(members.get(i), cache.get(new MemberKey(parent, i)));
+        }
+        assertNull(cache.get(new MemberKey(parent, 100)));
+        assertNull(cache.get(new MemberKey(mockParent(), 0)));
+
+        // Replace, then remove.
+        final RolapMember other = mock(RolapMember.class);
+        assertSame(members.get(7), cache.put(new MemberKey(parent, 7), other));
+        assertSame(other, cache.get(new MemberKey(parent, 7)));
+        assertEquals(100, cache.size());
+        assertSame(other, cache.put(new MemberKey(parent, 7), null));
+        assertNull(cache.get(new MemberKey(parent, 7)));
+        assertEquals(99, cache.size());
+        assertSame(members.get(8), cache.get(new MemberKey(parent, 8)));
+
+        // Keys that do not identify a level are cached too.
+        final RolapMember root = mock(RolapMember.class);
+        cache.put(new MemberKey(null, "All"), root);
+        assertSame(root, cache.get(new MemberKey(null, "All")));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getByteCount());
+        assertNull(cache.get(new MemberKey(parent, 8)));
+    }
+
+    /**
+     * Tests that a segment grows correctly after entries have been removed
+     * and replaced, when the number of live entries is not a power of two.
+     */
+    public void testGrowAfterRemove() {
+        final RolapMember parent = mockParent();
+        final Map<Integer, RolapMember> members =
+            new HashMap<Integer, RolapMember>();
+        for (int i = 0; i < 16; i++) {
+            final RolapMember member = mock(RolapMember.class);
+            members.put(i, member);
+            cache.put(new MemberKey(parent, i), member);
+        }
+        for (int i = 0; i < 7; i++) {
+            assertNotNull(cache.remove(new MemberKey(parent, i)));
+            members.remove(i);
+        }
+        // Replace an entry; the segment is full, so it is copied with 9 live
+        // entries.
+        final RolapMember other = mock(RolapMember.class);
+        assertSame(members.get(7), cache.put(new MemberKey(parent, 7), other));
+        members.put(7, other);
+        for (int i = 100; i < 200; i++) {
+            final RolapMember member = mock(RolapMember.class);
+            members.put(i, member);
+            cache.put(new MemberKey(parent, i), member);
+            if (i % 3 == 0) {
+                cache.remove(new MemberKey(parent, i));
+                members.remove(i);
+            }
+        }
+        assertEquals(members.size(), cache.size());
+        for (Map.Entry<Integer, RolapMember> entry : members.entrySet()) {
+            assertSame(
+                entry.getValue(),
+                cache.get(new MemberKey(parent, entry.getKey())));
+        }
+        for (int i = 0; i < 7; i++) {
+            assertNull(cache.get(new MemberKey(parent, i)));
+        }
+        assertNull(cache.get(new MemberKey(parent, 1000)));
+    }
+
+    public void testExecuteRemove() {
+        final RolapMember parent = mockParent();
+        for (int i = 0; i < 10; i++) {
+            cache.put(new MemberKey(parent, i), mock(RolapMember.class));
+        }
+        cache.execute(
+            new SmartCache.SmartCacheTask<Object, RolapMember>() {
+                public void execute(
+                    Iterator<Map.Entry<Object, RolapMember>> iterator)
+                {
+                    while (iterator.hasNext()) {
+                        final MemberKey key =
+                            (MemberKey) iterator.next().getKey();
+                        if (key.equals(new MemberKey(parent, 3))) {
+                            iterator.remove();
+                        }
+                    }
+                }
+            });
+        assertEquals(9, cache.size());
+        assertNull(cache.get(new MemberKey(parent, 3)));
+        assertNotNull(cache.get(new MemberKey(parent, 4)));
+    }
+
+    /**
+     * Tests that the cache discards levels to stay within its budget,
+     * starting with levels other than the one being written.
+     */
+    public void testBudget() {
+        propSaver.set(MondrianProperties.instance().MemberCacheSize, 1);
+        final RolapMember smallParent = mockParent();
+        final RolapMember largeParent = mockParent();
+        cache.put(new MemberKey(smallParent, 0), mock(RolapMember.class));
+        int i = 0;
+        while (cache.get(new MemberKey(smallParent, 0)) != null) {
+            cache.put(new MemberKey(largeParent, i++), mock(RolapMember.class));
+        }
+        assertTrue(i > 1);
+        assertTrue(cache.getByteCount() <= 1024 * 1024);
+    }
+}
+
+// End CompactMemberCacheTest.java
@@ -10,7 +10,9 @@
 package mondrian.rolap;
 
 import mondrian.calc.ResultStyle;
+import mondrian.calc.TupleCursor;
 import mondrian.olap.*;
+import mondrian.server.Locus;
 import mondrian.test.FoodMartTestCase;
 import mondrian.test.TestContext;
 import mondrian.util.Bug;
@@ -242,6 +244,94 @@ public class HighDimensionsTest extends FoodMartTestCase {
             "select NON EMPTY filter([StoreSize].[Sqft].members, 1=1) on 0 from highCard");
     }
 
+    /**
+     * Tests that Head over a native set of a high-cardinality dimension stops
+     * reading rows once it has its tuples, so that the result limit, which
+     * the whole set would exceed, is not reached.
+     */
+    public void testHeadOfNativeSetStopsReading() {
+        if (!MondrianProperties.instance().EnableNativeCrossJoin.get()) {
+            return;
+        }
+        propSaver.set(MondrianProperties.instance().ResultLimit, 10);
+        final TestContext testContext =
+            TestContext.instance().createSubstitutingCube(
+                "Sales",
+                "<Dimension name=\"Promotions2\" highCardinality=\"true\" "
+                + "foreignKey=\"promotion_id\">"
+                + "    <Hierarchy hasAll=\"true\" "
+                + "            allMemberName=\"All Promotions\" "
+                + "            primaryKey=\"promotion_id\">"
+                + "        <Table name=\"promotion\"/>"
+                + "        <Level name=\"Promotion Name\" "
+                + "                column=\"promotion_name\" "
+                + "                uniqueMembers=\"true\"/>"
+                + "    </Hierarchy>"
+                + "</Dimension>");
+        final Result result = testContext.executeQuery(
+            "select {[Measures].[Unit Sales]} on columns,\n"
+            + "head(NonEmptyCrossJoin([Promotions2].[Promotion Name].Members,"
+            + " [Gender].[Gender].Members), 3) on rows\n"
+            + "from [Sales]");
+        assertEquals(3, result.getAxes()[1].getPositions().size());
+    }
+
+    /**
+     * Tests that a streaming cursor does not hold on to the members it has
+     * read, even for a level whose ordinal expression differs from its key.
+     */
+    public void testStreamingCursorRetainsNoMembers() {
+        final TestContext testContext =
+            TestContext.instance().createSubstitutingCube(
+                "Sales",
+                "<Dimension name=\"Customers2\" foreignKey=\"customer_id\">"
+                + "    <Hierarchy hasAll=\"true\" "
+                + "            primaryKey=\"customer_id\">"
+                + "        <Table name=\"customer\"/>"
+                + "        <Level name=\"Name\" "
+                + "                column=\"customer_id\" "
+                + "                nameColumn=\"fullname\" "
+                + "                ordinalColumn=\"fullname\" "
+                + "                uniqueMembers=\"true\"/>"
+                + "    </Hierarchy>"
+                + "</Dimension>");
+        final RolapConnection connection =
+            (RolapConnection) testContext.getConnection();
+        final Cube cube =
+            connection.getSchema().lookupCube("Sales", true);
+        final RolapLevel level =
+            (RolapLevel) cube.getSchemaReader(null).lookupCompound(
+                cube, Id.Segment.toList("Customers2", "Name"), true,
+                Category.Level);
+        final int count =
+            Locus.execute(
+                connection,
+                "testStreamingCursorRetainsNoMembers",
+                new Locus.Action<Integer>() {
+                    public Integer execute() {
+                        final SqlTupleReader reader =
+                            new SqlTupleReader(
+                                DefaultTupleConstraint.instance());
+                        reader.addLevelMembers(
+                            level,
+                            level.getHierarchy().getMemberReader()
+                                .getMemberBuilder(),
+                            null);
+                        final TupleCursor cursor =
+                            reader.iterateTuples(connection.getDataSource())
+                                .tupleCursor();
+                        int n = 0;
+                        while (cursor.forward()) {
+                            assertNotNull(cursor.member(0));
+                            assertEquals(0, reader.getRetainedMemberCount());
+                            ++n;
+                        }
+                        return n;
+                    }
+                });
+        assertTrue(count > 10000);
+    }
+
     //
     // Private Stuff --------------------------------------------
     //
@@ -0,0 +1,83 @@
+/*
+// This software is subject to the terms of the Eclipse Public License v1.0
+// Agreement, available at the following URL:
+// http://www.eclipse.org/legal/epl-v10.html.
+// You must accept the terms of that agreement to use this software.
+//
+// Copyright (C) 2015-2015 Pentaho and others
+// All Rights Reserved.
+*/
+package mondrian.rolap;
+
+import mondrian.olap.*;
+import mondrian.test.FoodMartTestCase;
+
+import java.util.concurrent.Future;
+
+/**
+ * Unit test for {@link LevelPreCachePolicy}.
+ */
+public class LevelPreCachePolicyTest extends FoodMartTestCase {
+
+    private RolapLevel getLevel(String uniqueName) {
+        final Cube cube =
+            getConnection().getSchema().lookupCube("Sales", true);
+        for (Hierarchy hierarchy : cube.getHierarchies()) {
+            for (Level level : hierarchy.getLevels()) {
+                if (level.getUniqueName().equals(uniqueName)) {
+                    return (RolapLevel) level;
+                }
+            }
+        }
+        throw new AssertionError("level not found: " + uniqueName);
+    }
+
+    private LevelPreCachePolicy createPolicy() {
+        return new LevelPreCachePolicy(
+            (RolapSchema) getConnection().getSchema());
+    }
+
+    public void testDisabledByDefault() {
+        final LevelPreCachePolicy policy = createPolicy();
+        final RolapLevel level = getLevel("[Store].[Store City]");
+        for (int i = 0; i < 10; i++) {
+            assertFalse(policy.preCache(level, 78));
+        }
+        assertEquals(0, policy.getAccessCount(level));
+    }
+
+    /**
+     * Tests that a level is precached once it has been accessed often
+     * enough, and that a level above the maximum never is.
+     */
+    public void testHotLevel() throws Exception {
+        propSaver.set(propSaver.properties.LevelPreCacheHotAccessCount, 3);
+        propSaver.set(propSaver.properties.LevelPreCacheMaxHotCardinality, 100);
+        final LevelPreCachePolicy policy = createPolicy();
+        final RolapLevel city = getLevel("[Store].[Store City]");
+        assertFalse(policy.preCache(city, 78));
+        assertFalse(policy.preCache(city, 78));
+        assertTrue(policy.preCache(city, 78));
+        assertTrue(policy.preCache(city, 78));
+        assertEquals(4, policy.getAccessCount(city));
+
+        // The level has been queued for loading already.
+        assertNull(policy.load(city));
+
+        final RolapLevel name = getLevel("[Customers].[Name]");
+        for (int i = 0; i < 10; i++) {
+            assertFalse(policy.preCache(name, 10281));
+        }
+        assertEquals(0, policy.getAccessCount(name));
+
+        // A new instance of the schema loads the hot level straight away.
+        final LevelPreCachePolicy policy2 = createPolicy();
+        policy2.loadHotLevels();
+        assertNull(policy2.load(city));
+        final Future<?> future = policy2.load(name);
+        assertNotNull(future);
+        future.get();
+    }
+}
+
+// End LevelPreCachePolicyTest.java
@@ -17,6 +17,9 @@ import mondrian.spi.PropertyFormatter;
 
 import junit.framework.TestCase;
 
+import java.util.Collections;
+import java.util.Map;
+
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
@@ -178,5 +181,44 @@ public class RolapMemberBaseTest extends TestCase {
         assertNotNull(captionValue);
         assertEquals(Integer.MIN_VALUE, captionValue);
     }
+
+    /**
+     * <p>
+     * Given two members of a level whose property maps are columnar.
+     * </p>
+     * When the same properties are set on both,
+     * then each map returns its own values,
+     * and equal values are shared.
+     */
+    public void testColumnarPropertyValueMapSharesNamesAndValues() {
+        final RolapMemberBase.PropertyValueMapFactory factory =
+            new RolapMemberBase.ColumnarPropertyValueMapFactory();
+        final Member member1 = mock(Member.class);
+        final Member member2 = mock(Member.class);
+        when(member1.getLevel()).thenReturn(level);
+        when(member2.getLevel()).thenReturn(level);
+        final Map<String, Object> map1 = factory.create(member1);
+        final Map<String, Object> map2 = factory.create(member2);
+
+        map1.put(PROPERTY_NAME_1, new String("M"));
+        map2.put(PROPERTY_NAME_2, "x");
+        map2.put(PROPERTY_NAME_1, new String("M"));
+
+        assertEquals(1, map1.size());
+        assertEquals(2, map2.size());
+        assertEquals("M", map1.get(PROPERTY_NAME_1));
+        assertNull(map1.get(PROPERTY_NAME_2));
+        assertFalse(map1.containsKey(PROPERTY_NAME_3));
+        assertEquals("x", map2.get(PROPERTY_NAME_2));
+        assertSame(map1.get(PROPERTY_NAME_1), map2.get(PROPERTY_NAME_1));
+
+        assertEquals("M", map2.put(PROPERTY_NAME_1, null));
+        assertTrue(map2.containsKey(PROPERTY_NAME_1));
+        assertNull(map2.get(PROPERTY_NAME_1));
+        assertEquals("x", map2.remove(PROPERTY_NAME_2));
+        assertEquals(1, map2.size());
+        assertEquals(
+            Collections.singleton(PROPERTY_NAME_1), map2.keySet());
+    }
 }
 // End RolapMemberBaseTest.java
\ No newline at end of file
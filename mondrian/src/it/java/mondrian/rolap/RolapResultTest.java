@@ -10,6 +10,7 @@
 package mondrian.rolap;
 
 import mondrian.olap.Result;
+import mondrian.olap.Util;
 import mondrian.rolap.aggmatcher.AggTableTestCase;
 import mondrian.test.TestContext;
 
@@ -318,6 +319,90 @@ Axis #2:
             + "Row #2: \n"
             + "Row #2: \n");
     }
+
+    /**
+     * Tests that a result whose cells have been moved into the columnar
+     * {@link RolapResult.CellInfoColumns} store returns the same values and
+     * formatted values as one that keeps a {@link RolapResult.CellInfo}
+     * object per cell. The query mixes integer, double, null, string and
+     * error cells.
+     */
+    public void testCompactCellInfo() {
+        final String mdx =
+            "with member [Measures].[Ratio] as\n"
+            + " '[Measures].[Store Sales] / [Measures].[Unit Sales]',\n"
+            + " format_string = '#.000'\n"
+            + "member [Measures].[Label] as\n"
+            + " 'IIf([Measures].[Unit Sales] > 50000, \"big\", \"small\")'\n"
+            + "member [Measures].[Bad] as\n"
+            + " 'IIf([Measures].[Unit Sales] > 50000, 1 / 0, "
+            + "Error(\"bad\"))'\n"
+            + "select {[Measures].[Unit Sales], [Measures].[Store Sales],\n"
+            + "  [Measures].[Ratio], [Measures].[Label], [Measures].[Bad]}\n"
+            + "  on columns,\n"
+            + " {[Product].[Product Family].Members,\n"
+            + "  [Product].[Drink].[Dairy].[Dairy].[Milk]} on rows\n"
+            + "from [Sales]\n"
+            + "where [Time].[1997].[Q1]";
+        propSaver.set(propSaver.properties.CellInfoCompactThreshold, 0);
+        final String expected =
+            TestContext.toString(getTestContext().executeQuery(mdx));
+        propSaver.set(propSaver.properties.CellInfoCompactThreshold, 1);
+        final Result result = getTestContext().executeQuery(mdx);
+        assertEquals(expected, TestContext.toString(result));
+
+        // Cells of a streamed result are computed in chunks; all but the
+        // first are computed after the cells have been compacted.
+        final Util.PropertyList properties =
+            getTestContext().getConnectionProperties().clone();
+        properties.put("ResultStreamingChunkSize", "2");
+        final Result streamedResult =
+            getTestContext().withProperties(properties).executeQuery(mdx);
+        assertEquals(expected, TestContext.toString(streamedResult));
+    }
+
+    /**
+     * Tests that {@link RolapResult.CellInfoColumns} holds the cells it
+     * creates, and keeps changes written back to the cells it looks up,
+     * such as a format string computed on demand.
+     */
+    public void testCellInfoColumns() {
+        final RolapResult.CellInfoColumns columns =
+            new RolapResult.CellInfoColumns(new int[] {2, 3}, 6);
+        final int[] pos = {1, 2};
+        final RolapResult.CellInfo ci = columns.create(pos);
+        ci.value = 5;
+        ci.ready = true;
+        assertSame(ci, columns.create(pos));
+        assertSame(ci, columns.lookup(pos));
+        assertEquals(1, columns.size());
+        assertNull(columns.lookup(new int[] {0, 0}).value);
+
+        final int[] pos2 = {0, 1};
+        final RolapResult.CellInfo ci2 = columns.lookup(pos2);
+        ci2.value = 7.5;
+        columns.update(pos2, ci2);
+        final RolapResult.CellInfo ci3 = columns.lookup(pos2);
+        assertEquals(7.5, ci3.value);
+        assertNull(ci3.formatString);
+        ci3.formatString = "0.0";
+        columns.update(pos2, ci3);
+        assertEquals("0.0", columns.lookup(pos2).formatString);
+        assertEquals(7.5, columns.lookup(pos2).value);
+        assertEquals(2, columns.size());
+
+        try {
+            columns.create(new int[] {2, 0});
+            fail("expected error");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("out of range"));
+        }
+
+        columns.clear();
+        assertEquals(0, columns.size());
+        assertNull(columns.lookup(pos).value);
+        assertNull(columns.lookup(pos2).value);
+    }
 }
 
 // End RolapResultTest.java
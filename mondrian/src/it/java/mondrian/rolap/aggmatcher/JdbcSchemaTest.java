@@ -0,0 +1,127 @@
+/*
+// This software is subject to the terms of the Eclipse Public License v1.0
+// Agreement, available at the following URL:
+// http://www.eclipse.org/legal/epl-v10.html.
+// You must accept the terms of that agreement to use this software.
+//
+// Copyright (C) 2015-2015 Pentaho and others
+// All Rights Reserved.
+*/
+package mondrian.rolap.aggmatcher;
+
+import mondrian.rolap.RolapConnection;
+import mondrian.test.FoodMartTestCase;
+
+import java.io.File;
+import java.util.*;
+import javax.sql.DataSource;
+
+/**
+ * Unit test for {@link JdbcSchema}.
+ */
+public class JdbcSchemaTest extends FoodMartTestCase {
+    private static final String[] TABLE_NAMES = {
+        "sales_fact_1997", "agg_c_10_sales_fact_1997", "customer"
+    };
+
+    private DataSource getDataSource() {
+        return ((RolapConnection) getConnection()).getDataSource();
+    }
+
+    private static List<JdbcSchema.Table> getTables(JdbcSchema db) {
+        final List<JdbcSchema.Table> tables =
+            new ArrayList<JdbcSchema.Table>();
+        for (String name : TABLE_NAMES) {
+            final JdbcSchema.Table table = db.getTable(name);
+            assertNotNull(name, table);
+            tables.add(table);
+        }
+        return tables;
+    }
+
+    private static void assertSameColumns(
+        JdbcSchema.Table expected,
+        JdbcSchema.Table actual)
+    {
+        assertEquals(
+            expected.getTotalColumnSize(), actual.getTotalColumnSize());
+        assertEquals(
+            expected.getColumnMap().keySet(), actual.getColumnMap().keySet());
+        for (JdbcSchema.Table.Column column : expected.getColumns()) {
+            final JdbcSchema.Table.Column actualColumn =
+                actual.getColumn(column.getName());
+            assertEquals(column.getType(), actualColumn.getType());
+            assertEquals(column.getTypeName(), actualColumn.getTypeName());
+            assertEquals(column.isNullable(), actualColumn.isNullable());
+        }
+    }
+
+    /**
+     * Tests that loading the columns of several tables at once gives the
+     * same columns as loading them one table at a time.
+     */
+    public void testLoadColumns() throws Exception {
+        final JdbcSchema db = new JdbcSchema(getDataSource());
+        db.load();
+        final List<JdbcSchema.Table> tables = getTables(db);
+        db.loadColumns(tables);
+
+        final JdbcSchema db2 = new JdbcSchema(getDataSource());
+        db2.load();
+        final List<JdbcSchema.Table> tables2 = getTables(db2);
+        for (int i = 0; i < tables.size(); i++) {
+            final JdbcSchema.Table table = tables.get(i);
+            assertTrue(table.isColumnsLoaded());
+            assertFalse(table.getColumns().isEmpty());
+            tables2.get(i).load();
+            assertSameColumns(tables2.get(i), table);
+        }
+    }
+
+    /**
+     * Tests that tables and columns are read from a snapshot, and that
+     * clearing the schema deletes the snapshot.
+     */
+    public void testSnapshot() throws Exception {
+        final File dir = File.createTempFile("jdbc-schema", "");
+        assertTrue(dir.delete());
+        propSaver.set(
+            propSaver.properties.AggregateMetadataSnapshotDir, dir.getPath());
+        try {
+            final JdbcSchema db = new JdbcSchema(getDataSource());
+            db.load();
+            final List<JdbcSchema.Table> tables = getTables(db);
+            db.loadColumns(tables);
+            File[] files = dir.listFiles();
+            assertNotNull(files);
+            assertEquals(1, files.length);
+
+            final JdbcSchema db2 = new JdbcSchema(getDataSource());
+            db2.load();
+            assertEquals(
+                db.getTables().size(), db2.getTables().size());
+            final List<JdbcSchema.Table> tables2 = getTables(db2);
+            for (int i = 0; i < tables.size(); i++) {
+                assertTrue(tables2.get(i).isColumnsLoaded());
+                assertSameColumns(tables.get(i), tables2.get(i));
+            }
+            final JdbcSchema.Table other = db2.getTable("product");
+            assertFalse(other.isColumnsLoaded());
+
+            db2.clear();
+            files = dir.listFiles();
+            assertNotNull(files);
+            assertEquals(0, files.length);
+        } finally {
+            final File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            dir.delete();
+        }
+    }
+}
+
+// End JdbcSchemaTest.java
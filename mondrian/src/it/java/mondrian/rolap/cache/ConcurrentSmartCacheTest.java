@@ -0,0 +1,79 @@
+/*
+// This software is subject to the terms of the Eclipse Public License v1.0
+// Agreement, available at the following URL:
+// http://www.eclipse.org/legal/epl-v10.html.
+// You must accept the terms of that agreement to use this software.
+//
+// Copyright (C) 2015-2015 Pentaho and others
+// All Rights Reserved.
+*/
+package mondrian.rolap.cache;
+
+import junit.framework.TestCase;
+
+import java.util.*;
+
+/**
+ * Unit test for {@link ConcurrentSmartCache}.
+ */
+public class ConcurrentSmartCacheTest extends TestCase {
+
+    public void testPutGetRemove() {
+        for (boolean soft : new boolean[] {false, true}) {
+            final SmartCache<String, String> cache =
+                new ConcurrentSmartCache<String, String>(soft, 0);
+            assertNull(cache.put("a", "1"));
+            assertNull(cache.put("b", "2"));
+            assertEquals("1", cache.put("a", "3"));
+            assertEquals("3", cache.get("a"));
+            assertEquals(2, cache.size());
+            // A null value removes the entry.
+            assertEquals("2", cache.put("b", null));
+            assertNull(cache.get("b"));
+            assertEquals("3", cache.remove("a"));
+            assertEquals(0, cache.size());
+        }
+    }
+
+    public void testMaxSize() {
+        final SmartCache<Integer, String> cache =
+            new ConcurrentSmartCache<Integer, String>(false, 10);
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, String.valueOf(i));
+            assertEquals(String.valueOf(i), cache.get(i));
+            assertTrue(cache.size() <= 10);
+        }
+    }
+
+    public void testExecute() {
+        final SmartCache<Integer, String> cache =
+            new ConcurrentSmartCache<Integer, String>(true, 0);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, String.valueOf(i));
+        }
+        final Set<Integer> keys = new HashSet<Integer>();
+        cache.execute(
+            new SmartCache.SmartCacheTask<Integer, String>() {
+                public void execute(
+                    Iterator<Map.Entry<Integer, String>> iterator)
+                {
+                    while (iterator.hasNext()) {
+                        final Map.Entry<Integer, String> entry =
+                            iterator.next();
+                        assertEquals(
+                            String.valueOf(entry.getKey()), entry.getValue());
+                        keys.add(entry.getKey());
+                        if (entry.getKey() % 2 == 0) {
+                            iterator.remove();
+                        }
+                    }
+                }
+            });
+        assertEquals(10, keys.size());
+        assertEquals(5, cache.size());
+        assertNull(cache.get(4));
+        assertEquals("5", cache.get(5));
+    }
+}
+
+// End ConcurrentSmartCacheTest.java
@@ -417,6 +417,8 @@ public class FoodMartTestCase extends PropertyRestoringTestCase {
         propSaver.set(propSaver.properties.EnableNativeFilter, true);
         propSaver.set(propSaver.properties.EnableNativeNonEmpty, true);
         propSaver.set(propSaver.properties.EnableNativeTopCount, true);
+        propSaver.set(propSaver.properties.EnableNativeOrder, true);
+        propSaver.set(propSaver.properties.EnableNativeCount, true);
 
         Result resultNative = context.executeQuery(query);
 
@@ -424,6 +426,8 @@ public class FoodMartTestCase extends PropertyRestoringTestCase {
         propSaver.set(propSaver.properties.EnableNativeFilter, false);
         propSaver.set(propSaver.properties.EnableNativeNonEmpty, false);
         propSaver.set(propSaver.properties.EnableNativeTopCount, false);
+        propSaver.set(propSaver.properties.EnableNativeOrder, false);
+        propSaver.set(propSaver.properties.EnableNativeCount, false);
 
         Result resultNonNative = context.executeQuery(query);
 
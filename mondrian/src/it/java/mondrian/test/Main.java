@@ -22,6 +22,7 @@ import mondrian.olap4j.XmlaExtraTest;
 import mondrian.rolap.*;
 import mondrian.rolap.agg.*;
 import mondrian.rolap.aggmatcher.*;
+import mondrian.rolap.cache.ConcurrentSmartCacheTest;
 import mondrian.rolap.format.DefaultFormatterTest;
 import mondrian.rolap.format.FormatterCreateContextTest;
 import mondrian.rolap.format.FormatterFactoryTest;
@@ -313,6 +314,9 @@ public class Main extends TestSuite {
             addTest(suite, DialectUtilTest.class);
             addTest(suite, IdBatchResolverTest.class);
             addTest(suite, MemberCacheHelperTest.class);
+            addTest(suite, CompactMemberCacheTest.class);
+            addTest(suite, ConcurrentSmartCacheTest.class);
+            addTest(suite, LevelPreCachePolicyTest.class);
             addTest(suite, EffectiveMemberCacheTest.class);
             addTest(suite, SqlStatementTest.class);
             addTest(suite, ValidMeasureFunDefTest.class);
@@ -336,6 +340,7 @@ public class Main extends TestSuite {
             addTest(suite, SqlQueryTest.class);
             addTest(suite, CodeSetTest.class);
             addTest(suite, ExplicitRecognizerTest.class);
+            addTest(suite, JdbcSchemaTest.class);
             addTest(suite, AggregationOverAggTableTest.class);
             addTest(suite, XmlUtilTest.class);
             addTest(suite, NativeEvalVirtualCubeTest.class);
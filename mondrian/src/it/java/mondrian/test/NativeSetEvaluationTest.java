@@ -1811,6 +1811,129 @@ public class NativeSetEvaluationTest extends BatchTestCase {
                         "WHERE [Customers].[AggregatePageMembers]",
                 getTestContext().withFreshConnection());
     }
+
+    /**
+     * Pages through an ordered set in SQL, as a paging UI would; the page
+     * must be the same as when the whole set is sorted in memory.
+     */
+    public void testNativeOrderSubset() {
+        checkNative(
+            0,
+            10,
+            "select {[Measures].[Store Sales]} on 0,\n"
+            + " Subset(Order(NonEmpty([Customers].[Name].Members),"
+            + " [Measures].[Store Sales], BDESC), 20, 10) on 1\n"
+            + "from Sales where [Time].[1997].[Q1]",
+            null,
+            true);
+    }
+
+    public void testNativeOrderHead() {
+        checkNative(
+            0,
+            5,
+            "select {[Measures].[Unit Sales]} on 0,\n"
+            + " Head(Order([Product].[Product Name].Members,"
+            + " [Measures].[Unit Sales], BDESC), 5) on 1\n"
+            + "from Sales where [Store].[USA].[WA].[Seattle]",
+            null,
+            true);
+    }
+
+    public void testNativeOrderAscendingNonEmpty() {
+        checkNative(
+            0,
+            8,
+            "select {[Measures].[Unit Sales]} on 0,\n"
+            + " non empty Order(CrossJoin([Gender].[Gender].Members,"
+            + " [Marital Status].[Marital Status].Members),"
+            + " [Measures].[Unit Sales], BASC) on 1\n"
+            + "from Sales where [Time].[1997].[Q1]",
+            null,
+            true);
+    }
+
+    /**
+     * Head of an ascending Order on a NON EMPTY axis, over a sparse level.
+     * Head evaluates its set with non-empty switched off, so the page is
+     * taken from the empty tuples, which sort first, and the axis then
+     * removes them. Native evaluation would instead return the smallest
+     * non-empty tuples, so it must not be used.
+     */
+    public void testNativeOrderHeadAscendingNonEmptyAxis() {
+        checkNotNative(
+            0,
+            "select {[Measures].[Unit Sales]} on 0,\n"
+            + " non empty Head(Order([Product].[Product Name].Members,"
+            + " [Measures].[Unit Sales], BASC), 5) on 1\n"
+            + "from Sales\n"
+            + "where ([Time].[1997].[Q1].[1], [Store].[USA].[WA].[Seattle])");
+    }
+
+    /**
+     * As {@link #testNativeOrderHeadAscendingNonEmptyAxis()}, but the set
+     * is wrapped in NonEmpty, so the page is taken from the non-empty
+     * tuples, and can be evaluated natively.
+     */
+    public void testNativeOrderHeadAscendingNonEmptySet() {
+        checkNative(
+            0,
+            5,
+            "select {[Measures].[Unit Sales]} on 0,\n"
+            + " non empty Head(Order(NonEmpty([Product].[Product Name].Members),"
+            + " [Measures].[Unit Sales], BASC), 5) on 1\n"
+            + "from Sales\n"
+            + "where ([Time].[1997].[Q1].[1], [Store].[USA].[WA].[Seattle])",
+            null,
+            true);
+    }
+
+    /**
+     * A Sum() calculated member in the slicer can be expanded into the native
+     * crossjoin's constraint, and gives the same cells as the equivalent
+     * compound slicer.
+     */
+    public void testSumCalcMemberInSlicer() {
+        TestContext testContext = getTestContext();
+        String mdx = ""
+            + "with member [Time].[Q1 to Q3] as"
+            + " 'Sum({[Time].[1997].[Q1]:[Time].[1997].[Q3]})'\n"
+            + "select {[Measures].[Unit Sales]} on 0,\n"
+            + " NonEmptyCrossJoin([Gender].[Gender].Members,"
+            + " [Marital Status].[Marital Status].Members) on 1\n"
+            + "from Sales where [Time].[Q1 to Q3]";
+        Result result = testContext.executeQuery(mdx);
+        checkNative(mdx, result, testContext);
+
+        assertQueriesReturnSimilarResults(
+            mdx,
+            "select {[Measures].[Unit Sales]} on 0,\n"
+            + " NonEmptyCrossJoin([Gender].[Gender].Members,"
+            + " [Marital Status].[Marital Status].Members) on 1\n"
+            + "from Sales"
+            + " where {[Time].[1997].[Q1]:[Time].[1997].[Q3]}",
+            testContext);
+    }
+
+    /**
+     * Counts the customers with sales in each state with a single SQL
+     * count, and compares with the count of the evaluated set.
+     */
+    public void testNativeCount() {
+        String mdx = ""
+            + "with member [Measures].[Customer Count] as"
+            + " 'Count(NonEmpty([Customers].[Name].Members,"
+            + " {[Measures].[Unit Sales]}))'\n"
+            + "member [Measures].[Buyer Count] as"
+            + " 'Count(Filter([Customers].[Name].Members,"
+            + " NOT IsEmpty([Measures].[Unit Sales])))'\n"
+            + "select {[Measures].[Customer Count],"
+            + " [Measures].[Buyer Count]} on 0,\n"
+            + " [Store].[Store State].Members on 1\n"
+            + "from Sales where [Time].[1997].[Q1]";
+        Result result = getTestContext().executeQuery(mdx);
+        checkNative(mdx, result);
+    }
 }
 
 // End NativeSetEvaluationTest.java
@@ -673,6 +673,61 @@ public class Olap4jTest extends FoodMartTestCase {
                                         .getSegmentList())
                         .isVisible());
     }
+
+    /**
+     * Tests that a result whose cells are computed in chunks, because the
+     * "ResultStreamingChunkSize" connection property is set, has the same
+     * cells as one whose cells are all computed up front, whether cells are
+     * read in order or out of order.
+     */
+    public void testResultStreaming() throws SQLException {
+        final String mdx =
+            "with member [Measures].[Avg Price] as\n"
+            + " '[Measures].[Store Sales] / [Measures].[Unit Sales]'\n"
+            + "select {[Measures].[Unit Sales], [Measures].[Avg Price]}"
+            + " on columns,\n"
+            + " [Product].[Product Category].Members on rows\n"
+            + "from [Sales]";
+        final CellSet expected =
+            getTestContext().getOlap4jConnection().createStatement()
+                .executeOlapQuery(mdx);
+        final Util.PropertyList properties =
+            getTestContext().getConnectionProperties().clone();
+        properties.put("ResultStreamingChunkSize", "7");
+        final TestContext streamingContext =
+            getTestContext().withProperties(properties);
+        final CellSet cellSet =
+            streamingContext.getOlap4jConnection().createStatement()
+                .executeOlapQuery(mdx);
+        assertEquals(
+            TestContext.toString(expected),
+            TestContext.toString(cellSet));
+
+        // Read the last row, then the first; each requires a chunk to be
+        // recomputed.
+        final int rowCount = cellSet.getAxes().get(1).getPositionCount();
+        assertTrue(rowCount > 7);
+        for (int row : new int[] {rowCount - 1, 0, rowCount - 1}) {
+            for (int column = 0; column < 2; column++) {
+                final List<Integer> coordinates = Arrays.asList(column, row);
+                assertEquals(
+                    expected.getCell(coordinates).getFormattedValue(),
+                    cellSet.getCell(coordinates).getFormattedValue());
+            }
+        }
+
+        // A query with a NON EMPTY axis is not streamed, but gives the same
+        // result.
+        final String nonEmptyMdx =
+            mdx.replace(" [Product]", " NON EMPTY [Product]");
+        assertEquals(
+            TestContext.toString(
+                getTestContext().getOlap4jConnection().createStatement()
+                    .executeOlapQuery(nonEmptyMdx)),
+            TestContext.toString(
+                streamingContext.getOlap4jConnection().createStatement()
+                    .executeOlapQuery(nonEmptyMdx)));
+    }
 }
 
 // End Olap4jTest.java
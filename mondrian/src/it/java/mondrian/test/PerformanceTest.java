@@ -771,6 +771,42 @@ public class PerformanceTest extends FoodMartTestCase {
         }
     }
 
+    /**
+     * Benchmark for the 3-argument form of <code>Rank</code> over a large
+     * set on a large NON EMPTY axis. The sorted index of values should be
+     * built once and shared by every row.
+     */
+    public void testRankLargeAxis() {
+        final Statistician statistician =
+            new Statistician("testRankLargeAxis");
+        final int n = LOGGER.isDebugEnabled() ? 10 : 1;
+        for (int i = 0; i < n; i++) {
+            long start = System.currentTimeMillis();
+            final Result result = executeQuery(
+                "with member [Measures].[Sales Rank] as\n"
+                + " 'Rank([Customers].CurrentMember,\n"
+                + "   [Customers].[Name].Members, [Measures].[Unit Sales])'\n"
+                + "select {[Measures].[Sales Rank]} on 0,\n"
+                + " non empty Order([Customers].[Name].Members,\n"
+                + "   [Measures].[Unit Sales], BDESC) on 1\n"
+                + "from [Sales]");
+            statistician.record(start);
+            final int rowCount = result.getAxes()[1].getPositions().size();
+            assertTrue(rowCount > 1000);
+            // Rows are in descending order of the ranked value, so ranks
+            // ascend.
+            int prevRank = 1;
+            for (int row = 0; row < rowCount; row++) {
+                final int rank = ((Number)
+                    result.getCell(new int[] {0, row}).getValue()).intValue();
+                assertTrue(rank >= prevRank);
+                assertTrue(rank <= row + 1);
+                prevRank = rank;
+            }
+        }
+        statistician.printDurations();
+    }
+
     /**
      * Collects statistics for a test that is run multiple times.
      */
@@ -248,6 +248,40 @@ public class UdfTest extends FoodMartTestCase {
             + "Row #24: 2\n");
     }
 
+    /**
+     * Tests LastNonEmpty where the last non-empty member is several siblings
+     * back, across parent boundaries. FoodMart has no sales in 1998, so the
+     * window of months ending in April 1998 reaches back through the
+     * quarters and into 1997. The window is built using LastPeriods and
+     * Lag, which skip whole lists of siblings.
+     */
+    public void testLastNonEmptyAcrossParents() {
+        assertQueryReturns(
+            "WITH MEMBER [Measures].[Last Month] AS\n"
+            + " 'LastNonEmpty(LastPeriods(8, [Time].[1998].[Q2].[4]),\n"
+            + "    [Measures].[Unit Sales]).UniqueName'\n"
+            + "MEMBER [Measures].[Last Month Sales] AS\n"
+            + " '([Measures].[Unit Sales],\n"
+            + "   LastNonEmpty(LastPeriods(8, [Time].[1998].[Q2].[4]),\n"
+            + "     [Measures].[Unit Sales]))'\n"
+            + "MEMBER [Measures].[Last Month By Lag] AS\n"
+            + " 'LastNonEmpty(\n"
+            + "    {[Time].[1998].[Q2].[4].Lag(7) : [Time].[1998].[Q2].[4]},\n"
+            + "    [Measures].[Unit Sales]).UniqueName'\n"
+            + "SELECT {[Measures].[Last Month], [Measures].[Last Month Sales],\n"
+            + "  [Measures].[Last Month By Lag]} ON COLUMNS\n"
+            + "FROM [Sales]",
+            "Axis #0:\n"
+            + "{}\n"
+            + "Axis #1:\n"
+            + "{[Measures].[Last Month]}\n"
+            + "{[Measures].[Last Month Sales]}\n"
+            + "{[Measures].[Last Month By Lag]}\n"
+            + "Row #0: [Time].[1997].[Q4].[12]\n"
+            + "Row #0: 26,796\n"
+            + "Row #0: [Time].[1997].[Q4].[12]\n");
+    }
+
     /**
      * Tests a performance issue with LastNonEmpty (bug 1533677). The naive
      * implementation of LastNonEmpty crawls backward one period at a time,
@@ -302,6 +336,54 @@ public class UdfTest extends FoodMartTestCase {
         tc.assertExprReturns("GenericMinusOne(3)", "2");
     }
 
+    /**
+     * Tests that a cell whose value was final in an evaluation pass is not
+     * evaluated again in later passes, and keeps its value. Cells that read
+     * no other cells are final after the first pass; cells that read
+     * [Unit Sales] are evaluated again once it has been loaded.
+     */
+    public void testCellsFinalInEarlierPassAreSkipped() {
+        final TestContext tc = udfTestContext(
+            "<UserDefinedFunction name=\"CountingConstant\" className=\""
+            + CountingUdf.class.getName()
+            + "\"/>\n"
+            + "<UserDefinedFunction name=\"CountingSales\" className=\""
+            + CountingUdf.class.getName()
+            + "\"/>\n");
+        tc.flushSchemaCache();
+        synchronized (CountingUdf.COUNTS) {
+            CountingUdf.COUNTS.clear();
+        }
+        final Result result = tc.executeQuery(
+            "with member [Measures].[Constant] as\n"
+            + " 'CountingConstant([Product].CurrentMember.Level.Ordinal)'\n"
+            + "member [Measures].[Sales] as\n"
+            + " 'CountingSales([Measures].[Unit Sales])'\n"
+            + "select {[Measures].[Constant], [Measures].[Sales]} on 0,\n"
+            + " [Product].[Product Family].Members on 1\n"
+            + "from [Sales]");
+        synchronized (CountingUdf.COUNTS) {
+            // Three cells each; [Sales] cells are evaluated in two passes.
+            assertEquals(
+                3, CountingUdf.COUNTS.get("CountingConstant").intValue());
+            assertEquals(
+                6, CountingUdf.COUNTS.get("CountingSales").intValue());
+        }
+        final double[] unitSales = {24597, 191940, 50236};
+        for (int i = 0; i < unitSales.length; i++) {
+            assertEquals(
+                2d,
+                ((Number) result.getCell(new int[] {0, i}).getValue())
+                    .doubleValue(),
+                0d);
+            assertEquals(
+                unitSales[i] + 1d,
+                ((Number) result.getCell(new int[] {1, i}).getValue())
+                    .doubleValue(),
+                0d);
+        }
+    }
+
     public void testComplexFun() {
         assertQueryReturns(
             "WITH MEMBER [Measures].[InverseNormal] AS 'InverseNormal([Measures].[Grocery Sqft] / [Measures].[Store Sqft])', FORMAT_STRING = \"0.000\"\n"
@@ -1538,6 +1620,32 @@ public class UdfTest extends FoodMartTestCase {
         }
     }
 
+    /**
+     * A user-defined function which adds one to its argument, and counts how
+     * many times it has been called under each of its names.
+     */
+    public static class CountingUdf extends PlusOneUdf {
+        static final Map<String, Integer> COUNTS =
+            new HashMap<String, Integer>();
+        private final String name;
+
+        public CountingUdf(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Object execute(Evaluator evaluator, Argument[] arguments) {
+            synchronized (COUNTS) {
+                final Integer count = COUNTS.get(name);
+                COUNTS.put(name, count == null ? 1 : count + 1);
+            }
+            return super.execute(evaluator, arguments);
+        }
+    }
+
     /**
      * The "TimesString" user-defined function. We wanted a function whose
      * actual return type (string) is not the same as the guessed return type
@@ -84,7 +84,7 @@ public abstract class XmlaBaseTestCase extends FoodMartTestCase {
      * Cache servlet instances between test invocations. Prevents creation
      * of many spurious MondrianServer instances.
      */
-    private final HashMap<List<String>, MondrianServer>
+    protected final HashMap<List<String>, MondrianServer>
         SERVER_CACHE = new HashMap<List<String>, MondrianServer>();
 
     protected void tearDown() throws Exception {
@@ -972,6 +972,66 @@ public class XmlaBasicTest extends XmlaBaseTestCase {
             props, TestContext.instance(), role);
     }
 
+    /**
+     * Tests that an Execute request with the "ResultStreamingChunkSize"
+     * property, whose cells are computed a chunk at a time as they are
+     * written, returns the same response as one without, and that an invalid
+     * value is reported as a bad property.
+     */
+    public void testExecuteResultStreaming() throws Exception {
+        final String query =
+            "select {[Measures].[Unit Sales], [Measures].[Store Sales]}"
+            + " on columns,\n"
+            + " [Product].[Product Category].Members on rows\n"
+            + "from [Sales]";
+        final String expected = executeStreaming(query, null);
+        assertEquals(expected, executeStreaming(query, "7"));
+        try {
+            final String response = executeStreaming(query, "seven");
+            fail("expected error, got " + response);
+        } catch (XmlaException e) {
+            assertEquals(
+                mondrian.xmla.XmlaConstants.HSB_BAD_PROPERTIES_CODE,
+                e.getCode());
+            assertTrue(
+                e.getCause().getMessage(),
+                e.getCause().getMessage().contains(
+                    "Value 'seven' of connection property "
+                    + "'ResultStreamingChunkSize' is invalid"));
+        }
+    }
+
+    private String executeStreaming(String query, String chunkSize)
+        throws Exception
+    {
+        final String request =
+            "<Execute xmlns=\"urn:schemas-microsoft-com:xml-analysis\">\n"
+            + "  <Command>\n"
+            + "    <Statement>" + query + "</Statement>\n"
+            + "  </Command>\n"
+            + "  <Properties>\n"
+            + "    <PropertyList>\n"
+            + "      <Catalog>" + CATALOG + "</Catalog>\n"
+            + "      <DataSourceInfo>" + DATA_SOURCE_INFO
+            + "</DataSourceInfo>\n"
+            + "      <Format>" + FORMAT_MULTI_DIMENSIONAL + "</Format>\n"
+            + (chunkSize == null
+                ? ""
+                : "      <ResultStreamingChunkSize>" + chunkSize
+                  + "</ResultStreamingChunkSize>\n")
+            + "    </PropertyList>\n"
+            + "  </Properties>\n"
+            + "</Execute>";
+        final TestContext testContext = TestContext.instance();
+        final byte[] bytes =
+            XmlaSupport.processXmla(
+                request,
+                filterConnectString(testContext.getConnectString()),
+                getCatalogNameUrls(testContext),
+                SERVER_CACHE);
+        return new String(bytes, "UTF-8");
+    }
+
     public void testExecuteBugMondrian762()
         throws Exception
     {
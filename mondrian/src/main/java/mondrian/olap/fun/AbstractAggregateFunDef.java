@@ -106,6 +106,183 @@ public class AbstractAggregateFunDef extends FunDefBase {
         return iterable;
     }
 
+    /**
+     * Aggregates the current measure over a list of tuples by issuing a single
+     * cell request, constrained by a compound predicate built from the tuples,
+     * rather than by evaluating the measure for each tuple and rolling up the
+     * results. This is the mechanism that distinct-count measures and
+     * compound slicers already use; for a large set it replaces one cell
+     * lookup per tuple by one lookup.
+     *
+     * <p>Returns null if the list does not qualify, in which case the caller
+     * should aggregate tuple by tuple. The list qualifies if it has at least
+     * {@link MondrianProperties#CompoundAggregateThreshold} tuples; if the
+     * current measure is stored, belongs to the same cube as the tuples, and
+     * its aggregator rolls up using <code>rollup</code>; if no calculated
+     * members are in the context; and if no two tuples can overlap, that is,
+     * the tuples are distinct, contain no calculated or parent-child members,
+     * and each position holds members of a single level.
+     *
+     * <p>A set that is aggregated for the slicer, either as a compound slicer
+     * or as the expression of a calculated member in the slicer, is
+     * aggregated in every cell of the query; it qualifies whatever its size,
+     * provided that the threshold is positive.
+     *
+     * @param evaluator Evaluation context; its current measure is aggregated
+     * @param tupleList List of tuples
+     * @param rollup Aggregator with which the caller would combine the
+     *   per-tuple values; sum, min or max
+     * @param slicer Whether the set is aggregated for the slicer
+     * @return Aggregated value, {@link Util#nullValue} if there are no
+     *   facts, or null if the list does not qualify
+     */
+    protected static Object aggregateByCompoundPredicate(
+        Evaluator evaluator,
+        TupleList tupleList,
+        Aggregator rollup,
+        boolean slicer)
+    {
+        final int threshold =
+            MondrianProperties.instance().CompoundAggregateThreshold.get();
+        if (threshold <= 0
+            || tupleList.isEmpty()
+            || !slicer && tupleList.size() < threshold
+            || !(evaluator instanceof RolapEvaluator))
+        {
+            return null;
+        }
+        final Member measure = evaluator.getMembers()[0];
+        if (!(measure instanceof RolapStoredMeasure)) {
+            return null;
+        }
+        final RolapStoredMeasure storedMeasure = (RolapStoredMeasure) measure;
+        final RolapAggregator aggregator = storedMeasure.getAggregator();
+        if (aggregator != RolapAggregator.Sum
+            && aggregator != RolapAggregator.Count
+            && aggregator != RolapAggregator.Min
+            && aggregator != RolapAggregator.Max
+            || aggregator.getRollup() != rollup)
+        {
+            return null;
+        }
+        if (!isDisjoint(evaluator, tupleList, storedMeasure.getCube())) {
+            return null;
+        }
+        final Set<Hierarchy> hierarchies = new HashSet<Hierarchy>();
+        for (Member member : tupleList.get(0)) {
+            hierarchies.add(member.getHierarchy());
+        }
+        for (Member member : evaluator.getMembers()) {
+            if (member.isEvaluated()
+                && !hierarchies.contains(member.getHierarchy()))
+            {
+                // A calculated member would be evaluated for each tuple;
+                // applying it once to the aggregate could give a different
+                // answer.
+                return null;
+            }
+        }
+
+        // Keep the predicate within the database's limit on IN lists,
+        // replacing complete sets of children by their parent if necessary.
+        // This preserves disjointness.
+        final int maxConstraints =
+            MondrianProperties.instance().MaxConstraints.get();
+        if (tupleList.size() > maxConstraints
+            && !((RolapEvaluator) evaluator).getDialect()
+                .supportsUnlimitedValueList())
+        {
+            tupleList =
+                AggregateFunDef.AggregateCalc.optimizeTupleList(
+                    evaluator, tupleList, false);
+            if (tupleList.size() > maxConstraints) {
+                return null;
+            }
+        }
+
+        final Evaluator evaluator2 = evaluator.pushAggregation(tupleList);
+        evaluator2.setNonEmpty(false);
+        final Object o = evaluator2.evaluateCurrent();
+        if (o == null || o == Util.nullValue) {
+            return Util.nullValue;
+        }
+        if (o == RolapUtil.valueNotReadyException) {
+            // The sentinel is a Double; converting it would hide it from
+            // callers that test for it by identity.
+            return o;
+        }
+        if (o instanceof Number) {
+            // Per-tuple aggregation yields doubles; be consistent.
+            return ((Number) o).doubleValue();
+        }
+        return o;
+    }
+
+    /**
+     * Returns whether an aggregate expression is the expression of a
+     * calculated member in the slicer.
+     *
+     * @param evaluator Evaluation context
+     * @param exp Call to an aggregate function
+     * @return Whether a slicer member is calculated by the expression
+     */
+    protected static boolean isSlicerExpression(Evaluator evaluator, Exp exp) {
+        if (!(evaluator instanceof RolapEvaluator)) {
+            return false;
+        }
+        for (Member member : ((RolapEvaluator) evaluator).getSlicerMembers()) {
+            if (member.isCalculated() && member.getExpression() == exp) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether a list of tuples can be aggregated as a single compound
+     * predicate without double-counting; that is, whether each fact row
+     * belongs to at most one tuple.
+     */
+    private static boolean isDisjoint(
+        Evaluator evaluator,
+        TupleList tupleList,
+        RolapCube measureCube)
+    {
+        final int arity = tupleList.getArity();
+        final Level[] levels = new Level[arity];
+        final List<Member> first = tupleList.get(0);
+        for (int i = 0; i < arity; i++) {
+            final Member member = first.get(i);
+            if (member.getHierarchy().getDimension().isMeasures()
+                || ((RolapLevel) member.getLevel()).isParentChild()
+                || evaluator.getSchemaReader().getRole()
+                    .getAccessDetails(member.getHierarchy())
+                    .getRollupPolicy() != Role.RollupPolicy.FULL)
+            {
+                return false;
+            }
+            levels[i] = member.getLevel();
+        }
+        final Set<List<Member>> tupleSet = new HashSet<List<Member>>();
+        for (List<Member> tuple : tupleList) {
+            for (int i = 0; i < arity; i++) {
+                final Member member = tuple.get(i);
+                if (member.isCalculated()
+                    || member.isNull()
+                    || member.getLevel() != levels[i]
+                    || !(member instanceof RolapCubeMember)
+                    || ((RolapCubeMember) member).getCube() != measureCube)
+                {
+                    return false;
+                }
+            }
+            if (!tupleSet.add(tuple)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static void crossProd(Evaluator evaluator, int currLen) {
         long iterationLimit =
             MondrianProperties.instance().IterationLimit.get();
@@ -100,10 +100,18 @@ public class AggregateFunDef extends AbstractAggregateFunDef {
             final int savepoint = evaluator.savepoint();
             try {
                 TupleList list = evaluateCurrentList(listCalc, evaluator);
+                final boolean slicer = isSlicerExpression(evaluator, exp);
                 if (member != null) {
                     evaluator.setContext(member);
+                    // The value expression is the measure itself, so it is
+                    // safe to aggregate the current measure.
+                    final Object o =
+                        aggregateCurrentMeasure(evaluator, list, slicer);
+                    if (o != null) {
+                        return o;
+                    }
                 }
-                return aggregate(calc, evaluator, list);
+                return aggregate(calc, evaluator, list, slicer);
             } finally {
                 evaluator.restore(savepoint);
                 evaluator.getTiming().markEnd(TIMING_NAME);
@@ -124,6 +132,26 @@ public class AggregateFunDef extends AbstractAggregateFunDef {
             Calc calc,
             Evaluator evaluator,
             TupleList tupleList)
+        {
+            return aggregate(calc, evaluator, tupleList, false);
+        }
+
+        /**
+         * Computes an expression for each element of a list, and aggregates
+         * the result according to the evaluation context's current aggregation
+         * strategy.
+         *
+         * @param calc Compiled expression to evaluate a scalar
+         * @param evaluator Evaluation context
+         * @param tupleList List of members or tuples
+         * @param slicer Whether the list is aggregated for the slicer
+         * @return Aggregated result
+         */
+        public static Object aggregate(
+            Calc calc,
+            Evaluator evaluator,
+            TupleList tupleList,
+            boolean slicer)
         {
             Aggregator aggregator =
                 (Aggregator) evaluator.getProperty(
@@ -142,6 +170,14 @@ public class AggregateFunDef extends AbstractAggregateFunDef {
             if (aggregator != RolapAggregator.DistinctCount
                 && aggregator != RolapAggregator.Avg)
             {
+                if (calc instanceof ValueCalc) {
+                    final Object o =
+                        aggregateByCompoundPredicate(
+                            evaluator, tupleList, rollup, slicer);
+                    if (o != null) {
+                        return o;
+                    }
+                }
                 final int savepoint = evaluator.savepoint();
                 try {
                     evaluator.setNonEmpty(false);
@@ -203,6 +239,32 @@ public class AggregateFunDef extends AbstractAggregateFunDef {
             return evaluator2.evaluateCurrent();
         }
 
+        /**
+         * Attempts to aggregate the current measure over a list of tuples as
+         * a single cell request; see
+         * {@link AbstractAggregateFunDef#aggregateByCompoundPredicate}.
+         *
+         * @param evaluator Evaluation context
+         * @param tupleList List of tuples
+         * @param slicer Whether the list is aggregated for the slicer
+         * @return Aggregated value, or null if the list must be aggregated
+         *   tuple by tuple
+         */
+        private static Object aggregateCurrentMeasure(
+            Evaluator evaluator,
+            TupleList tupleList,
+            boolean slicer)
+        {
+            final Aggregator aggregator =
+                (Aggregator) evaluator.getProperty(
+                    Property.AGGREGATION_TYPE.name, null);
+            if (aggregator == null || aggregator.getRollup() == null) {
+                return null;
+            }
+            return aggregateByCompoundPredicate(
+                evaluator, tupleList, aggregator.getRollup(), slicer);
+        }
+
         /**
          * Analyzes a list of tuples and determines if the list can
          * be safely optimized. If a member of the tuple list is on
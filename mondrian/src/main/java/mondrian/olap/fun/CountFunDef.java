@@ -37,7 +37,7 @@ class CountFunDef extends AbstractAggregateFunDef {
         super(dummyFunDef);
     }
 
-    public Calc compileCall(ResolvedFunCall call, ExpCompiler compiler) {
+    public Calc compileCall(final ResolvedFunCall call, ExpCompiler compiler) {
         final Calc calc =
             compiler.compileAs(
                 call.getArg(0), null, ResultStyle.ITERABLE_ANY);
@@ -50,6 +50,16 @@ class CountFunDef extends AbstractAggregateFunDef {
             new Calc[] {calc})
         {
             public int evaluateInteger(Evaluator evaluator) {
+                // Count the non-empty tuples of the set in SQL, if possible.
+                final NativeEvaluator nativeEvaluator =
+                    evaluator.getSchemaReader().getNativeSetEvaluator(
+                        call.getFunDef(), call.getArgs(), evaluator, this);
+                if (nativeEvaluator != null) {
+                    final Object o = nativeEvaluator.execute(ResultStyle.VALUE);
+                    if (o instanceof Integer && (Integer) o >= 0) {
+                        return (Integer) o;
+                    }
+                }
                 final int savepoint = evaluator.savepoint();
                 try {
                     evaluator.setNonEmpty(false);
@@ -17,6 +17,7 @@ import mondrian.olap.*;
 import mondrian.olap.type.*;
 import mondrian.resource.MondrianResource;
 import mondrian.rolap.RolapEvaluator;
+import mondrian.rolap.RolapUtil;
 import mondrian.rolap.SqlConstraintUtils;
 import mondrian.server.Execution;
 import mondrian.server.Locus;
@@ -212,9 +213,150 @@ public class CrossJoinFunDef extends FunDefBase {
                 o2 = l2;
             }
 
+            // The left operand is read once, so it may be an iterable (say
+            // another crossjoin that is being streamed); the right operand
+            // is read once per left tuple, so it must be a list.
+            if (o2 instanceof TupleList && evaluator.isNonEmpty()) {
+                final TupleList l2 = (TupleList) o2;
+                final int streamingSize =
+                    MondrianProperties.instance().CrossJoinStreamingSize.get();
+                boolean stream = streamingSize > 0 && !isHighCardinality(l2);
+                if (stream && o1 instanceof TupleList) {
+                    final TupleList l1 = (TupleList) o1;
+                    final long size = (long) l1.size() * (long) l2.size();
+                    stream = size > streamingSize && !isHighCardinality(l1);
+                }
+                if (stream) {
+                    final TupleIterable iterable =
+                        makeNonEmptyIterable(evaluator, o1, l2, call);
+                    if (iterable != null) {
+                        return iterable;
+                    }
+                }
+            }
+
             return makeIterable(o1, o2);
         }
 
+        /**
+         * Returns the cross product of an iterable and a list, leaving out
+         * tuples that have no data for any measure in the query.
+         *
+         * <p>Tuples are generated as the iterable is read, and are checked
+         * one outer tuple at a time. Cells that are not yet in the cache are
+         * requested together; those tuples are left out on this pass, and
+         * included on a later pass once the cells have been loaded. The
+         * product is never materialized. The first operand is read once per
+         * cursor, so it may itself be generated lazily.
+         *
+         * @param evaluator Evaluator
+         * @param i1 First operand
+         * @param l2 Second operand
+         * @param call Call to CrossJoin
+         * @return Iterable, or null if emptiness cannot be determined
+         */
+        protected TupleIterable makeNonEmptyIterable(
+            Evaluator evaluator,
+            final TupleIterable i1,
+            final TupleList l2,
+            ResolvedFunCall call)
+        {
+            final TupleCursor firstCursor = i1.tupleCursor();
+            if (!firstCursor.forward()) {
+                return TupleCollections.emptyList(getType().getArity());
+            }
+            final int arity = i1.getArity() + l2.getArity();
+            final List<Member> first = new ArrayList<Member>(arity);
+            first.addAll(firstCursor.current());
+            first.addAll(l2.get(0));
+            final NonEmptyChecker checker =
+                createNonEmptyChecker(evaluator, first, call, "-PRODUCT");
+            if (checker == null) {
+                return null;
+            }
+            // The iterable may be read after the evaluator has moved on, so
+            // check tuples in a copy of the current context.
+            final Evaluator subEvaluator = evaluator.push();
+            final Execution execution =
+                evaluator.getQuery().getStatement().getCurrentExecution();
+            return new AbstractTupleIterable(arity) {
+                public TupleCursor tupleCursor() {
+                    return new AbstractTupleCursor(arity) {
+                        final TupleCursor c1 = i1.tupleCursor();
+                        final int arity1 = c1.getArity();
+                        TupleCursor i2 =
+                            TupleCollections.emptyList(1).tupleCursor();
+                        final Member[] members = new Member[arity];
+                        int currentIteration = 0;
+
+                        public boolean forward() {
+                            while (true) {
+                                while (i2.forward()) {
+                                    CancellationChecker.checkCancelOrTimeout(
+                                        currentIteration++, execution);
+                                    i2.currentToArray(members, arity1);
+                                    if (isNonEmpty()) {
+                                        return true;
+                                    }
+                                }
+                                if (!c1.forward()) {
+                                    return false;
+                                }
+                                c1.currentToArray(members, 0);
+                                i2 = l2.tupleCursor();
+                            }
+                        }
+
+                        private boolean isNonEmpty() {
+                            final List<Member> tuple =
+                                Arrays.asList(members);
+                            final int savepoint = subEvaluator.savepoint();
+                            try {
+                                subEvaluator.setContext(
+                                    checker.allMemberList);
+                                subEvaluator.setContext(tuple);
+                                return checker.check(subEvaluator, tuple);
+                            } finally {
+                                subEvaluator.restore(savepoint);
+                            }
+                        }
+
+                        public List<Member> current() {
+                            return Util.flatList(members.clone());
+                        }
+
+                        @Override
+                        public Member member(int column) {
+                            return members[column];
+                        }
+
+                        @Override
+                        public void setContext(Evaluator evaluator) {
+                            evaluator.setContext(members);
+                        }
+
+                        @Override
+                        public void currentToArray(
+                            Member[] members,
+                            int offset)
+                        {
+                            System.arraycopy(
+                                this.members, 0, members, offset, arity);
+                        }
+                    };
+                }
+            };
+        }
+
+        private boolean isHighCardinality(TupleList list) {
+            for (Member member : list.get(0)) {
+                if (member.getDimension().isHighCardinality()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
         protected TupleIterable makeIterable(
             final TupleIterable it1,
             final TupleIterable it2)
@@ -733,10 +875,71 @@ public class CrossJoinFunDef extends FunDefBase {
             return list;
         }
 
+        final NonEmptyChecker checker =
+            createNonEmptyChecker(evaluator, list.get(0), call, "");
+        if (checker == null) {
+            return list;
+        }
+
         TupleList result =
             TupleCollections.createList(
                 list.getArity(), (list.size() + 2) >> 1);
 
+        //
+        // Determine if there is any data.
+        //
+        // Put all of the All Members into Evaluator
+        final int savepoint = evaluator.savepoint();
+        try {
+            evaluator.setContext(checker.allMemberList);
+            // Iterate over elements of the input list. If for any
+            // combination of
+            // Measure and non-All Members evaluation is non-null, then
+            // add it to the result List.
+            final TupleCursor cursor = list.tupleCursor();
+            int currentIteration = 0;
+            Execution execution =
+                evaluator.getQuery().getStatement().getCurrentExecution();
+            while (cursor.forward()) {
+                cursor.setContext(evaluator);
+                // Check if the MDX query was canceled.
+                // Throws an exception in case of timeout is exceeded
+                // see MONDRIAN-2425
+                CancellationChecker.checkCancelOrTimeout(
+                    currentIteration++, execution);
+                if (checker.check(evaluator, cursor.current())) {
+                    result.addCurrent(cursor);
+                }
+            }
+            return result;
+        } finally {
+            evaluator.restore(savepoint);
+        }
+    }
+
+    /**
+     * Creates a checker that determines whether tuples of a given shape
+     * have data for any of the measures in the query. See
+     * {@link #nonEmptyList(Evaluator, TupleList, ResolvedFunCall)}.
+     *
+     * <p>The sets of measures and of context members are computed once and
+     * cached in the query.
+     *
+     * @param evaluator Evaluator
+     * @param tuple A tuple of the shape to be checked
+     * @param call Calling ResolvedFunCall used to determine what Measures
+     *             to use
+     * @param keySuffix Suffix for the query cache keys; distinguishes
+     *             checkers for tuples of different shape
+     * @return Checker, or null if emptiness cannot be determined (because
+     *   the query uses ValidMeasure)
+     */
+    private NonEmptyChecker createNonEmptyChecker(
+        Evaluator evaluator,
+        List<Member> tuple,
+        ResolvedFunCall call,
+        String keySuffix)
+    {
         // Get all of the Measures
         final Query query = evaluator.getQuery();
 
@@ -781,7 +984,7 @@ public class CrossJoinFunDef extends FunDefBase {
                             f.getExpression()))
                     {
                         // short circuit if VM is present.
-                        return list;
+                        return null;
                     }
                     f.accept(measureVisitor);
                 }
@@ -790,11 +993,13 @@ public class CrossJoinFunDef extends FunDefBase {
             query.putEvalCache(memberSetKey, memberSet);
         }
 
-        final String allMemberListKey = "ALL_MEMBER_LIST-" + ctag;
+        final String allMemberListKey =
+            "ALL_MEMBER_LIST-" + ctag + keySuffix;
         List<Member> allMemberList =
             Util.cast((List) query.getEvalCache(allMemberListKey));
 
-        final String nonAllMembersKey = "NON_ALL_MEMBERS-" + ctag;
+        final String nonAllMembersKey =
+            "NON_ALL_MEMBERS-" + ctag + keySuffix;
         Member[][] nonAllMembers =
             (Member[][]) query.getEvalCache(nonAllMembersKey);
         if (nonAllMembers == null) {
@@ -804,7 +1009,7 @@ public class CrossJoinFunDef extends FunDefBase {
             //
             Member[] evalMembers = evaluator.getMembers().clone();
 
-            List<Member> listMembers = list.get(0);
+            List<Member> listMembers = tuple;
 
             // Remove listMembers from evalMembers and independentSlicerMembers
             for (Member lm : listMembers) {
@@ -921,51 +1126,60 @@ public class CrossJoinFunDef extends FunDefBase {
             query.putEvalCache(nonAllMembersKey, nonAllMembers);
         }
 
-        //
-        // Determine if there is any data.
-        //
-        // Put all of the All Members into Evaluator
-        final int savepoint = evaluator.savepoint();
-        try {
-            evaluator.setContext(allMemberList);
-            // Iterate over elements of the input list. If for any
-            // combination of
-            // Measure and non-All Members evaluation is non-null, then
-            // add it to the result List.
-            final TupleCursor cursor = list.tupleCursor();
-            int currentIteration = 0;
-            Execution execution = query.getStatement().getCurrentExecution();
-            while (cursor.forward()) {
-                cursor.setContext(evaluator);
-                for (Member member : memberSet) {
-                    // memberSet contains members referenced within measures.
-                    // Make sure that we don't incorrectly assume a context
-                    // that will be changed by the measure, so conservatively
-                    // push context to [All] for each of the associated
-                    // hierarchies.
-                    evaluator.setContext(member.getHierarchy().getAllMember());
-                }
-                // Check if the MDX query was canceled.
-                // Throws an exception in case of timeout is exceeded
-                // see MONDRIAN-2425
-                CancellationChecker.checkCancelOrTimeout(
-                    currentIteration++, execution);
-                if (tupleContainsCalcs( cursor.current() ) || checkData(
-                        nonAllMembers,
-                        nonAllMembers.length - 1,
-                        measureSet,
-                        evaluator))
-                {
-                    result.addCurrent(cursor);
-                }
+        return new NonEmptyChecker(
+            measureSet, memberSet, allMemberList, nonAllMembers);
+    }
+
+    /**
+     * Determines whether a tuple has data for any of the measures in the
+     * query. Created by {@link #createNonEmptyChecker}.
+     */
+    private static class NonEmptyChecker {
+        final Set<Member> measureSet;
+        final Set<Member> memberSet;
+        final List<Member> allMemberList;
+        final Member[][] nonAllMembers;
+
+        NonEmptyChecker(
+            Set<Member> measureSet,
+            Set<Member> memberSet,
+            List<Member> allMemberList,
+            Member[][] nonAllMembers)
+        {
+            this.measureSet = measureSet;
+            this.memberSet = memberSet;
+            this.allMemberList = allMemberList;
+            this.nonAllMembers = nonAllMembers;
+        }
+
+        /**
+         * Returns whether a tuple has data. The evaluator's context must
+         * already have been set to {@link #allMemberList} and then to the
+         * tuple.
+         *
+         * @param evaluator Evaluator
+         * @param tuple Tuple
+         * @return Whether the tuple has data, or contains calculated members
+         */
+        boolean check(Evaluator evaluator, List<Member> tuple) {
+            for (Member member : memberSet) {
+                // memberSet contains members referenced within measures.
+                // Make sure that we don't incorrectly assume a context
+                // that will be changed by the measure, so conservatively
+                // push context to [All] for each of the associated
+                // hierarchies.
+                evaluator.setContext(member.getHierarchy().getAllMember());
             }
-            return result;
-        } finally {
-            evaluator.restore(savepoint);
+            return tupleContainsCalcs(tuple)
+                || checkData(
+                    nonAllMembers,
+                    nonAllMembers.length - 1,
+                    measureSet,
+                    evaluator);
         }
     }
 
-    private boolean tupleContainsCalcs( List<Member> current ) {
+    private static boolean tupleContainsCalcs( List<Member> current ) {
         return current.stream().anyMatch( Member::isCalculated );
     }
 
@@ -992,10 +1206,7 @@ public class CrossJoinFunDef extends FunDefBase {
         if (cnt < 0) {
             // no measures found, use standard algorithm
             if (measureSet.isEmpty()) {
-                Object value = evaluator.evaluateCurrent();
-                if (value != null
-                    && !(value instanceof Throwable))
-                {
+                if (hasData(evaluator.evaluateCurrent())) {
                     return true;
                 }
             } else {
@@ -1004,10 +1215,7 @@ public class CrossJoinFunDef extends FunDefBase {
                 boolean found = false;
                 for (Member measure : measureSet) {
                     evaluator.setContext(measure);
-                    Object value = evaluator.evaluateCurrent();
-                    if (value != null
-                        && !(value instanceof Throwable))
-                    {
+                    if (hasData(evaluator.evaluateCurrent())) {
                         found = true;
                     }
                 }
@@ -1026,6 +1234,21 @@ public class CrossJoinFunDef extends FunDefBase {
         return false;
     }
 
+    /**
+     * Returns whether a cell value counts as data. A cell that is not yet
+     * loaded does not: the evaluator returns
+     * {@link RolapUtil#valueNotReadyException}, which is a non-null Double,
+     * and the pass will be repeated once the cell has been loaded.
+     *
+     * @param value Cell value
+     * @return Whether the value is data
+     */
+    private static boolean hasData(Object value) {
+        return value != null
+            && value != RolapUtil.valueNotReadyException
+            && !(value instanceof Throwable);
+    }
+
     private static class StarCrossJoinResolver extends MultiResolver {
         public StarCrossJoinResolver() {
             super(
@@ -16,6 +16,7 @@ import mondrian.mdx.ResolvedFunCall;
 import mondrian.olap.*;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 /**
@@ -90,6 +91,9 @@ class DrilldownLevelFunDef extends FunDefBase {
                     TupleList result = TupleCollections.createList(arity);
                     final SchemaReader schemaReader =
                         evaluator.getSchemaReader();
+                    FunUtil.prefetchMemberChildren(
+                        schemaReader,
+                        new LinkedHashSet<Member>(list.slice(index)));
                     final Member[] tupleClone = new Member[arity];
                     for (List<Member> tuple : list) {
                         result.add(tuple);
@@ -122,26 +126,23 @@ class DrilldownLevelFunDef extends FunDefBase {
             }
         }
 
+        // Read the children of the members to be drilled in one go, rather
+        // than one query per member.
+        final List<Member> parents = new ArrayList<Member>();
+        for (int i = 0, m = list.size(); i < m; i++) {
+            if (isDrilled(list, i, searchDepth)) {
+                parents.add(list.get(i));
+            }
+        }
+        FunUtil.prefetchMemberChildren(evaluator.getSchemaReader(), parents);
+
         List<Member> drilledSet = new ArrayList<Member>();
 
         for (int i = 0, m = list.size(); i < m; i++) {
             Member member = list.get(i);
             drilledSet.add(member);
 
-            Member nextMember =
-                i == (m - 1)
-                ? null
-                : list.get(i + 1);
-
-            //
-            // This member is drilled if it's at the correct depth
-            // and if it isn't drilled yet. A member is considered
-            // to be "drilled" if it is immediately followed by
-            // at least one descendant
-            //
-            if (member.getLevel().getDepth() == searchDepth
-                && !FunUtil.isAncestorOf(member, nextMember, true))
-            {
+            if (isDrilled(list, i, searchDepth)) {
                 final List<Member> childMembers =
                     evaluator.getSchemaReader().getMemberChildren(member);
                 for (Member childMember : childMembers) {
@@ -151,6 +152,28 @@ class DrilldownLevelFunDef extends FunDefBase {
         }
         return drilledSet;
     }
+
+    /**
+     * Returns whether the member at a given position in a list is to be
+     * drilled.
+     *
+     * <p>A member is drilled if it's at the correct depth and if it isn't
+     * drilled yet. A member is considered to be "drilled" if it is
+     * immediately followed by at least one descendant.
+     */
+    private static boolean isDrilled(
+        List<Member> list,
+        int i,
+        int searchDepth)
+    {
+        final Member member = list.get(i);
+        final Member nextMember =
+            i == (list.size() - 1)
+            ? null
+            : list.get(i + 1);
+        return member.getLevel().getDepth() == searchDepth
+            && !FunUtil.isAncestorOf(member, nextMember, true);
+    }
 }
 
 // End DrilldownLevelFunDef.java
@@ -116,6 +116,13 @@ class DrilldownLevelTopBottomFunDef extends FunDefBase {
                 }
                 List<Member> result = new ArrayList<Member>();
                 assert list.getArity() == 1;
+                final List<Member> parents = new ArrayList<Member>();
+                for (Member member : list.slice(0)) {
+                    if (level == null || member.getLevel() == level) {
+                        parents.add(member);
+                    }
+                }
+                FunUtil.prefetchMemberChildren(schemaReader, parents);
                 for (Member member : list.slice(0)) {
                     result.add(member);
                     if (level != null && member.getLevel() != level) {
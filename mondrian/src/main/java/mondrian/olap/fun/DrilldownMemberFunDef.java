@@ -105,6 +105,20 @@ class DrilldownMemberFunDef extends FunDefBase {
 
                 Set<Member> set1 = new HashSet<Member>(v1.slice(0));
 
+                // Read the children of the members to be drilled in one go,
+                // rather than one query per member.
+                final Set<Member> drilled = new LinkedHashSet<Member>();
+                for (List<Member> tuple : v0) {
+                    for (Member member : tuple) {
+                        if (set1.contains(member)) {
+                            drilled.add(member);
+                            break;
+                        }
+                    }
+                }
+                FunUtil.prefetchMemberChildren(
+                    evaluator.getSchemaReader(), drilled);
+
                 TupleList result = TupleCollections.createList(v0.getArity());
                 int i = 0, n = v0.size();
                 final Member[] members = new Member[v0.getArity()];
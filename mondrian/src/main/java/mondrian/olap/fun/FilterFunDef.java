@@ -14,6 +14,7 @@ import mondrian.calc.*;
 import mondrian.calc.impl.*;
 import mondrian.mdx.ResolvedFunCall;
 import mondrian.olap.*;
+import mondrian.rolap.RolapEvaluator;
 import mondrian.server.Execution;
 import mondrian.server.Locus;
 import mondrian.util.CancellationChecker;
@@ -144,34 +145,14 @@ class FilterFunDef extends FunDefBase {
 
         protected TupleIterable makeIterable(Evaluator evaluator) {
             evaluator.getTiming().markStart(TIMING_NAME);
-            final int savepoint = evaluator.savepoint();
             try {
                 Calc[] calcs = getCalcs();
                 ListCalc lcalc = (ListCalc) calcs[0];
                 BooleanCalc bcalc = (BooleanCalc) calcs[1];
 
                 TupleList list = lcalc.evaluateList(evaluator);
-
-                // make list mutable; guess selectivity .5
-                TupleList result =
-                    TupleCollections.createList(
-                        list.getArity(), list.size() / 2);
-                evaluator.setNonEmpty(false);
-                TupleCursor cursor = list.tupleCursor();
-                int currentIteration = 0;
-                Execution execution =
-                    evaluator.getQuery().getStatement().getCurrentExecution();
-                while (cursor.forward()) {
-                    CancellationChecker.checkCancelOrTimeout(
-                        currentIteration++, execution);
-                    cursor.setContext(evaluator);
-                    if (bcalc.evaluateBoolean(evaluator)) {
-                        result.addCurrent(cursor);
-                    }
-                }
-                return result;
+                return filter(evaluator, exp, list, bcalc);
             } finally {
-                evaluator.restore(savepoint);
                 evaluator.getTiming().markEnd(TIMING_NAME);
             }
         }
@@ -189,28 +170,7 @@ class FilterFunDef extends FunDefBase {
             ListCalc lcalc = (ListCalc) calcs[0];
             BooleanCalc bcalc = (BooleanCalc) calcs[1];
             TupleList members = lcalc.evaluateList(evaluator);
-
-            // Not mutable, must create new list
-            TupleList result = members.cloneList(members.size() / 2);
-            final int savepoint = evaluator.savepoint();
-            try {
-                evaluator.setNonEmpty(false);
-                TupleCursor cursor = members.tupleCursor();
-                int currentIteration = 0;
-                Execution execution =
-                    evaluator.getQuery().getStatement().getCurrentExecution();
-                while (cursor.forward()) {
-                    CancellationChecker.checkCancelOrTimeout(
-                        currentIteration++, execution);
-                    cursor.setContext(evaluator);
-                    if (bcalc.evaluateBoolean(evaluator)) {
-                        result.addCurrent(cursor);
-                    }
-                }
-                return result;
-            } finally {
-                evaluator.restore(savepoint);
-            }
+            return filter(evaluator, exp, members, bcalc);
         }
     }
 
@@ -329,29 +289,7 @@ class FilterFunDef extends FunDefBase {
             ListCalc lcalc = (ListCalc) calcs[0];
             BooleanCalc bcalc = (BooleanCalc) calcs[1];
             TupleList members0 = lcalc.evaluateList(evaluator);
-
-            // make list mutable;
-            // for capacity planning, guess selectivity = .5
-            TupleList result = members0.cloneList(members0.size() / 2);
-            final int savepoint = evaluator.savepoint();
-            try {
-                evaluator.setNonEmpty(false);
-                final TupleCursor cursor = members0.tupleCursor();
-                int currentIteration = 0;
-                Execution execution =
-                    evaluator.getQuery().getStatement().getCurrentExecution();
-                while (cursor.forward()) {
-                    CancellationChecker.checkCancelOrTimeout(
-                        currentIteration++, execution);
-                    cursor.setContext(evaluator);
-                    if (bcalc.evaluateBoolean(evaluator)) {
-                        result.addCurrent(cursor);
-                    }
-                }
-                return result;
-            } finally {
-                evaluator.restore(savepoint);
-            }
+            return filter(evaluator, exp, members0, bcalc);
         }
     }
 
@@ -364,36 +302,79 @@ class FilterFunDef extends FunDefBase {
 
         protected TupleList makeList(Evaluator evaluator) {
             evaluator.getTiming().markStart(TIMING_NAME);
-            final int savepoint = evaluator.savepoint();
             try {
                 Calc[] calcs = getCalcs();
                 ListCalc lcalc = (ListCalc) calcs[0];
                 BooleanCalc bcalc = (BooleanCalc) calcs[1];
                 TupleList members0 = lcalc.evaluateList(evaluator);
-
-                // Not mutable, must create new list;
-                // for capacity planning, guess selectivity = .5
-                TupleList result = members0.cloneList(members0.size() / 2);
-                evaluator.setNonEmpty(false);
-                final TupleCursor cursor = members0.tupleCursor();
-                int currentIteration = 0;
-                Execution execution = evaluator.getQuery()
-                    .getStatement().getCurrentExecution();
-                while (cursor.forward()) {
-                    CancellationChecker.checkCancelOrTimeout(
-                        currentIteration++, execution);
-                    cursor.setContext(evaluator);
-                    if (bcalc.evaluateBoolean(evaluator)) {
-                        result.addCurrent(cursor);
-                    }
-                }
-                return result;
+                return filter(evaluator, exp, members0, bcalc);
             } finally {
-                evaluator.restore(savepoint);
                 evaluator.getTiming().markEnd(TIMING_NAME);
             }
         }
     }
+
+    /**
+     * Returns the tuples of a list for which a condition is true.
+     *
+     * <p>If the list has more than one tuple and the filter is evaluated
+     * once while its axis is evaluated, the condition is evaluated for all
+     * of them before any cells are loaded, so that the cells it reads are
+     * loaded in one batch and the result is final straight away; see
+     * {@link RolapEvaluator#evaluateLoadingCells(Exp, Calc)}.
+     *
+     * @param evaluator Evaluator
+     * @param exp Filter expression
+     * @param list List of tuples
+     * @param bcalc Compiled condition
+     * @return List of tuples for which the condition is true
+     */
+    private static TupleList filter(
+        Evaluator evaluator,
+        Exp exp,
+        final TupleList list,
+        final BooleanCalc bcalc)
+    {
+        if (list.size() > 1 && evaluator instanceof RolapEvaluator) {
+            final Calc calc = new GenericCalc(exp) {
+                public Object evaluate(Evaluator evaluator) {
+                    return filterList(evaluator, list, bcalc);
+                }
+            };
+            return (TupleList)
+                ((RolapEvaluator) evaluator).evaluateLoadingCells(exp, calc);
+        }
+        return filterList(evaluator, list, bcalc);
+    }
+
+    private static TupleList filterList(
+        Evaluator evaluator,
+        TupleList list,
+        BooleanCalc bcalc)
+    {
+        // Not mutable, must create new list;
+        // for capacity planning, guess selectivity = .5
+        TupleList result = list.cloneList(list.size() / 2);
+        final int savepoint = evaluator.savepoint();
+        try {
+            evaluator.setNonEmpty(false);
+            final TupleCursor cursor = list.tupleCursor();
+            int currentIteration = 0;
+            Execution execution =
+                evaluator.getQuery().getStatement().getCurrentExecution();
+            while (cursor.forward()) {
+                CancellationChecker.checkCancelOrTimeout(
+                    currentIteration++, execution);
+                cursor.setContext(evaluator);
+                if (bcalc.evaluateBoolean(evaluator)) {
+                    result.addCurrent(cursor);
+                }
+            }
+            return result;
+        } finally {
+            evaluator.restore(savepoint);
+        }
+    }
 }
 
 // End FilterFunDef.java
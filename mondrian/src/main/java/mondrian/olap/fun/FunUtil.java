@@ -530,6 +530,35 @@ public class FunUtil extends Util {
                     evaluator, exp, memberIter, null, parentsToo);
             }
 
+            if (brk) {
+                final Object[] values = new Object[memberList.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = mapMemberToValue.get(memberList.get(i));
+                }
+                evaluator.getTiming().markEnd(SORT_EVAL_TIMING_NAME);
+                timingEval = false;
+                evaluator.getTiming().markStart(SORT_TIMING_NAME);
+                timingSort = true;
+                final int[] indexes = new ValueIndexSorter(values, desc).sort();
+                final Member[] members =
+                    memberList.toArray(new Member[values.length]);
+                for (int i = 0; i < indexes.length; i++) {
+                    memberList.set(i, members[indexes[i]]);
+                }
+                if (LOGGER.isDebugEnabled()) {
+                    StringBuilder sb =
+                        new StringBuilder("FunUtil.sortMembers returned:");
+                    for (int i = 0; i < indexes.length; i++) {
+                        sb.append("\n")
+                            .append(members[indexes[i]].getUniqueName())
+                            .append("(")
+                            .append(values[indexes[i]])
+                            .append(")");
+                    }
+                    LOGGER.debug(sb.toString());
+                }
+                return memberList;
+            }
             MemberComparator comp;
             if (brk) {
                 comp = new BreakMemberComparator(evaluator, exp, desc);
@@ -663,20 +692,21 @@ public class FunUtil extends Util {
                 tupleIterable.getArity(),
                 Arrays.asList(tuples));
 
-        Comparator<List<Member>> comparator;
         if (brk) {
-            comparator =
-                new BreakTupleComparator(evaluator, exp, arity);
-            if (desc) {
-                comparator = Collections.reverseOrder(comparator);
+            // Evaluate each sort key once, then sort positions rather than
+            // comparing tuples through a comparator that looks up values.
+            final Object[] values = evaluateSortKeys(evaluator, exp, tuples);
+            final int[] indexes = new ValueIndexSorter(values, desc).sort();
+            final List<Member>[] unsorted = tuples.clone();
+            for (int i = 0; i < indexes.length; i++) {
+                tuples[i] = unsorted[indexes[i]];
             }
         } else {
-            comparator =
-                new HierarchicalTupleComparator(evaluator, exp, arity, desc);
+            Arrays.sort(
+                tuples,
+                new HierarchicalTupleComparator(evaluator, exp, arity, desc));
         }
 
-        Arrays.sort(tuples, comparator);
-
         if (LOGGER.isDebugEnabled()) {
             StringBuilder sb =
                 new StringBuilder("FunUtil.sortTuples returned:");
@@ -690,6 +720,37 @@ public class FunUtil extends Util {
         return result;
     }
 
+    /**
+     * Evaluates a sort key for each of an array of tuples.
+     *
+     * @param evaluator Evaluator
+     * @param exp Expression to sort on
+     * @param tuples Tuples
+     * @return Array of values, one per tuple; null values are represented by
+     *   {@link Util#nullValue}
+     */
+    private static Object[] evaluateSortKeys(
+        Evaluator evaluator,
+        Calc exp,
+        List<Member>[] tuples)
+    {
+        final Object[] values = new Object[tuples.length];
+        final Execution execution =
+            evaluator.getQuery().getStatement().getCurrentExecution();
+        final int savepoint = evaluator.savepoint();
+        try {
+            for (int i = 0; i < tuples.length; i++) {
+                CancellationChecker.checkCancelOrTimeout(i, execution);
+                evaluator.setContext(tuples[i]);
+                final Object value = exp.evaluate(evaluator);
+                values[i] = value == null ? Util.nullValue : value;
+            }
+            return values;
+        } finally {
+            evaluator.restore(savepoint);
+        }
+    }
+
     /**
      * Partially sorts a list of Members by the value of an applied expression.
      *
@@ -861,8 +922,18 @@ public class FunUtil extends Util {
                         dimension.getUniqueName()));
             return;
         }
-        Comparator<Member> comparator = new HierarchizeComparator(post);
-        Collections.sort(memberList, comparator);
+        final int[] ordinals = hierarchyOrdinals(memberList, post);
+        if (ordinals == null) {
+            Comparator<Member> comparator = new HierarchizeComparator(post);
+            Collections.sort(memberList, comparator);
+            return;
+        }
+        final int[] positions = sortPositions(ordinals, null);
+        final Member[] members =
+            memberList.toArray(new Member[memberList.size()]);
+        for (int i = 0; i < positions.length; i++) {
+            memberList.set(i, members[positions[i]]);
+        }
     }
 
     /**
@@ -885,10 +956,28 @@ public class FunUtil extends Util {
             hierarchizeMemberList(fixedList.slice(0), post);
             return fixedList;
         }
-        Comparator<List<Member>> comparator =
-            new HierarchizeTupleComparator(fixedList.getArity(), post);
+        final int[][] ordinals = new int[fixedList.getArity()][];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = hierarchyOrdinals(fixedList.slice(i), post);
+            if (ordinals[i] == null) {
+                Comparator<List<Member>> comparator =
+                    new HierarchizeTupleComparator(
+                        fixedList.getArity(), post);
+                Collections.sort(fixedList, comparator);
+                return fixedList;
+            }
+        }
 
-        Collections.sort(fixedList, comparator);
+        // Sort by the last column, then stably by each column before it.
+        int[] positions = null;
+        for (int i = ordinals.length - 1; i >= 0; i--) {
+            positions = sortPositions(ordinals[i], positions);
+        }
+        final List<List<Member>> tuples =
+            new ArrayList<List<Member>>(fixedList);
+        for (int i = 0; i < positions.length; i++) {
+            fixedList.set(i, tuples.get(positions[i]));
+        }
 
         if (LOGGER.isDebugEnabled()) {
             StringBuilder sb =
@@ -902,6 +991,136 @@ public class FunUtil extends Util {
         return fixedList;
     }
 
+    /**
+     * Assigns each member of a list a number that is its position in a
+     * prefix-order (or postfix-order, if {@code post} is true) walk over a
+     * hierarchy.
+     *
+     * <p>The walk covers only the members in the list and their ancestors.
+     * Each ancestor is visited once, and siblings are sorted once, so sorting
+     * the list by these numbers gives the same order as
+     * {@link #compareHierarchically(Member, Member, boolean)} without walking
+     * ancestor chains on every comparison. Equal members get the same number.
+     *
+     * <p>Returns null if some member's parent is more than one level above
+     * it, as happens in ragged hierarchies; the caller should use
+     * {@link #compareHierarchically(Member, Member, boolean)} in that case.
+     *
+     * @param memberList List of members
+     * @param post Whether to number in postfix order
+     * @return Number of each member in the list, or null
+     */
+    static int[] hierarchyOrdinals(List<Member> memberList, boolean post) {
+        final Map<Member, HierarchyNode> nodeMap =
+            new HashMap<Member, HierarchyNode>();
+        final HierarchyNode root = new HierarchyNode(null);
+        final HierarchyNode[] nodes = new HierarchyNode[memberList.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = lookupNode(
+                nodeMap, root, unwrapLimitedRollupMember(memberList.get(i)));
+            if (nodes[i] == null) {
+                return null;
+            }
+        }
+        root.number(0, post);
+        final int[] ordinals = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            ordinals[i] = nodes[i].ordinal;
+        }
+        return ordinals;
+    }
+
+    private static HierarchyNode lookupNode(
+        Map<Member, HierarchyNode> nodeMap,
+        HierarchyNode root,
+        Member member)
+    {
+        HierarchyNode node = nodeMap.get(member);
+        if (node != null) {
+            return node;
+        }
+        final Member parent =
+            unwrapLimitedRollupMember(member.getParentMember());
+        final HierarchyNode parentNode;
+        if (parent == null) {
+            parentNode = root;
+        } else if (parent.getDepth() != member.getDepth() - 1) {
+            return null;
+        } else {
+            parentNode = lookupNode(nodeMap, root, parent);
+            if (parentNode == null) {
+                return null;
+            }
+        }
+        node = new HierarchyNode(member);
+        parentNode.children.add(node);
+        nodeMap.put(member, node);
+        return node;
+    }
+
+    /**
+     * Sorts positions by integer keys. Stable: positions with equal keys
+     * keep the order in which they occur in {@code positions}.
+     *
+     * @param keys Key of each position
+     * @param positions Positions to sort, or null to sort 0 .. n - 1
+     * @return Sorted positions
+     */
+    private static int[] sortPositions(int[] keys, int[] positions) {
+        final long[] packed = new long[keys.length];
+        for (int i = 0; i < packed.length; i++) {
+            final int position = positions == null ? i : positions[i];
+            packed[i] = ((long) keys[position] << 32) | i;
+        }
+        Arrays.sort(packed);
+        final int[] sorted = new int[packed.length];
+        for (int i = 0; i < packed.length; i++) {
+            final int j = (int) packed[i];
+            sorted[i] = positions == null ? j : positions[j];
+        }
+        return sorted;
+    }
+
+    /**
+     * Node in the part of a hierarchy walked by
+     * {@link #hierarchyOrdinals(List, boolean)}.
+     */
+    private static class HierarchyNode {
+        final Member member;
+        final List<HierarchyNode> children = new ArrayList<HierarchyNode>(2);
+        int ordinal;
+
+        HierarchyNode(Member member) {
+            this.member = member;
+        }
+
+        /**
+         * Numbers this node and its descendants, starting at {@code next},
+         * and returns the next unused number.
+         */
+        int number(int next, boolean post) {
+            if (!post) {
+                ordinal = next++;
+            }
+            if (children.size() > 1) {
+                Collections.sort(
+                    children,
+                    new Comparator<HierarchyNode>() {
+                        public int compare(HierarchyNode n1, HierarchyNode n2) {
+                            return compareSiblingMembers(n1.member, n2.member);
+                        }
+                    });
+            }
+            for (HierarchyNode child : children) {
+                next = child.number(next, post);
+            }
+            if (post) {
+                ordinal = next++;
+            }
+            return next;
+        }
+    }
+
     /**
      * Compares double-precision values according to MDX semantics.
      *
@@ -1224,11 +1443,7 @@ public class FunUtil extends Util {
         } else if (sw.v.size() == 0) {
             return FunUtil.DoubleNull;
         }
-        double[] asArray = new double[sw.v.size()];
-        for (int i = 0; i < asArray.length; i++) {
-            asArray[i] = (Double) sw.v.get(i);
-        }
-        Arrays.sort(asArray);
+        double[] asArray = toDoubleArray(sw);
 
         // The median is defined as the value that has exactly the same
         // number of entries before it in the sorted list as after.
@@ -1237,25 +1452,27 @@ public class FunUtil extends Util {
         // If the number of entries is even, the median is defined as the
         // arithmetic mean of the two numbers in the middle of the list, or
         // (entries[length/2 - 1] + entries[length/2]) / 2.
+        //
+        // Rather than sorting the whole array, we select the entries we need;
+        // see {@link #select(double[], int)}.
         int length = asArray.length;
         if (length == 1) {
             // if array contains a single element return it
             return asArray[0];
         }
         if (p <= 0.0) {
-            return asArray[0];
+            return select(asArray, 0);
         } else if (p >= 1.0) {
-            return asArray[length - 1];
-        } else if (length == 1) {
-            return asArray[0];
+            return select(asArray, length - 1);
         } else if (p == 0.5) {
             // Special case for median.
             if ((length & 1) == 1) {
                 // The length is odd. Note that length/2 is an integer
                 // expression, and it's positive so we save ourselves a divide.
-                return asArray[length >> 1];
+                return select(asArray, length >> 1);
             } else {
-                return (asArray[(length >> 1) - 1] + asArray[length >> 1])
+                final double lower = select(asArray, (length >> 1) - 1);
+                return (lower + selectNext(asArray, (length >> 1) - 1))
                     / 2.0;
             }
         } else {
@@ -1266,13 +1483,95 @@ public class FunUtil extends Util {
             assert decimalPart >= 0;
             assert decimalPart <= 1;
             int indexForFormula = integerPart - 1;
-            double percentile = asArray[indexForFormula]
-                + ((asArray[indexForFormula + 1] - asArray[indexForFormula])
-                * decimalPart);
+            final double lower = select(asArray, indexForFormula);
+            final double upper = selectNext(asArray, indexForFormula);
+            double percentile = lower + ((upper - lower) * decimalPart);
             return percentile;
         }
     }
 
+    /**
+     * Copies the values of a set wrapper into an array of doubles.
+     */
+    private static double[] toDoubleArray(SetWrapper sw) {
+        double[] asArray = new double[sw.v.size()];
+        for (int i = 0; i < asArray.length; i++) {
+            asArray[i] = ((Number) sw.v.get(i)).doubleValue();
+        }
+        return asArray;
+    }
+
+    /**
+     * Returns the value that would be at position {@code k} if the array
+     * were sorted, in the order of {@link Arrays#sort(double[])}.
+     *
+     * <p>Rearranges the array so that entry {@code k} holds that value, no
+     * entry before it is greater, and no entry after it is less. Takes
+     * linear time on average, whereas sorting takes n log n.
+     *
+     * @param a Array
+     * @param k Position, 0 &le; k &lt; a.length
+     * @return Value at position k in sorted order
+     */
+    static double select(double[] a, int k) {
+        int left = 0;
+        int right = a.length - 1;
+        while (right > left) {
+            // Median-of-three pivot, moved to the right end.
+            final int mid = (left + right) >>> 1;
+            if (Double.compare(a[mid], a[left]) < 0) {
+                swap(a, left, mid);
+            }
+            if (Double.compare(a[right], a[left]) < 0) {
+                swap(a, left, right);
+            }
+            if (Double.compare(a[mid], a[right]) < 0) {
+                swap(a, mid, right);
+            }
+            final double pivot = a[right];
+            int store = left;
+            for (int i = left; i < right; i++) {
+                if (Double.compare(a[i], pivot) < 0) {
+                    swap(a, i, store++);
+                }
+            }
+            swap(a, store, right);
+            if (store == k) {
+                break;
+            } else if (store < k) {
+                left = store + 1;
+            } else {
+                right = store - 1;
+            }
+        }
+        return a[k];
+    }
+
+    /**
+     * Returns the value at position {@code k + 1} in sorted order, given an
+     * array that has been rearranged by {@link #select(double[], int)} for
+     * position {@code k}. If {@code k} is the last position, returns the
+     * value at {@code k}.
+     */
+    private static double selectNext(double[] a, int k) {
+        if (k + 1 >= a.length) {
+            return a[k];
+        }
+        double next = a[k + 1];
+        for (int i = k + 2; i < a.length; i++) {
+            if (Double.compare(a[i], next) < 0) {
+                next = a[i];
+            }
+        }
+        return next;
+    }
+
+    private static void swap(double[] a, int i, int j) {
+        final double t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
     /**
      * Returns the member which lies upon a particular quartile according to a
      * given expression.
@@ -1299,18 +1598,15 @@ public class FunUtil extends Util {
             return DoubleNull;
         }
 
-        double[] asArray = new double[sw.v.size()];
-        for (int i = 0; i < asArray.length; i++) {
-            asArray[i] = ((Double) sw.v.get(i)).doubleValue();
-        }
+        double[] asArray = toDoubleArray(sw);
 
-        Arrays.sort(asArray);
         // get a quartile, median is a second q
         double dm = 0.25 * asArray.length * range;
         int median = (int) Math.floor(dm);
+        final double value = select(asArray, median);
         return dm == median && median < asArray.length - 1
-            ? (asArray[median] + asArray[median + 1]) / 2
-            : asArray[median];
+            ? (value + selectNext(asArray, median)) / 2
+            : value;
     }
 
     public static Object min(
@@ -1379,11 +1675,15 @@ public class FunUtil extends Util {
         } else if (sw.v.size() == 0) {
             return Util.nullValue;
         } else {
+            // Welford's algorithm: one pass, updating the mean and the sum
+            // of squared deviations from it as each value arrives.
+            double avg = 0.0;
             double stdev = 0.0;
-            double avg = _avg(sw);
             for (int i = 0; i < sw.v.size(); i++) {
-                stdev +=
-                    Math.pow((((Number) sw.v.get(i)).doubleValue() - avg), 2);
+                final double x = ((Number) sw.v.get(i)).doubleValue();
+                final double delta = x - avg;
+                avg += delta / (i + 1);
+                stdev += delta * (x - avg);
             }
             int n = sw.v.size();
             if (!biased) {
@@ -1401,14 +1701,40 @@ public class FunUtil extends Util {
     {
         SetWrapper sw1 = evaluateSet(evaluator, memberList, exp1);
         SetWrapper sw2 = evaluateSet(evaluator, memberList, exp2);
-        Object covar = _covariance(sw1, sw2, false);
-        Object var1 = _var(sw1, false); // this should be false, yes?
-        Object var2 = _var(sw2, false);
-
-        return ((Number) covar).doubleValue()
-            / Math.sqrt(
-                ((Number) var1).doubleValue()
-                * ((Number) var2).doubleValue());
+        if (sw1.v.size() != sw2.v.size()
+            || sw1.errorCount > 0
+            || sw2.errorCount > 0
+            || sw1.v.isEmpty())
+        {
+            Object covar = _covariance(sw1, sw2, false);
+            Object var1 = _var(sw1, false); // this should be false, yes?
+            Object var2 = _var(sw2, false);
+
+            return ((Number) covar).doubleValue()
+                / Math.sqrt(
+                    ((Number) var1).doubleValue()
+                    * ((Number) var2).doubleValue());
+        }
+        // One pass, accumulating both means, both sums of squared
+        // deviations and the co-moment. The (n - 1) divisors of covariance
+        // and variance cancel.
+        double avg1 = 0.0;
+        double avg2 = 0.0;
+        double m1 = 0.0;
+        double m2 = 0.0;
+        double c12 = 0.0;
+        for (int i = 0; i < sw1.v.size(); i++) {
+            final double x = ((Number) sw1.v.get(i)).doubleValue();
+            final double y = ((Number) sw2.v.get(i)).doubleValue();
+            final double dx = x - avg1;
+            final double dy = y - avg2;
+            avg1 += dx / (i + 1);
+            avg2 += dy / (i + 1);
+            m1 += dx * (x - avg1);
+            m2 += dy * (y - avg2);
+            c12 += dx * (y - avg2);
+        }
+        return c12 / Math.sqrt(m1 * m2);
     }
 
     static Object covariance(
@@ -1445,15 +1771,18 @@ public class FunUtil extends Util {
         if (sw1.v.size() != sw2.v.size()) {
             return Util.nullValue;
         }
-        double avg1 = _avg(sw1);
-        double avg2 = _avg(sw2);
+        // One pass, updating both means and the co-moment as each pair of
+        // values arrives.
+        double avg1 = 0.0;
+        double avg2 = 0.0;
         double covar = 0.0;
         for (int i = 0; i < sw1.v.size(); i++) {
-            // all of this casting seems inefficient - can we make SetWrapper
-            // contain an array of double instead?
-            double diff1 = (((Number) sw1.v.get(i)).doubleValue() - avg1);
-            double diff2 = (((Number) sw2.v.get(i)).doubleValue() - avg2);
-            covar += (diff1 * diff2);
+            final double x = ((Number) sw1.v.get(i)).doubleValue();
+            final double y = ((Number) sw2.v.get(i)).doubleValue();
+            final double diff1 = x - avg1;
+            avg1 += diff1 / (i + 1);
+            avg2 += (y - avg2) / (i + 1);
+            covar += diff1 * (y - avg2);
         }
         int n = sw1.v.size();
         if (!biased) {
@@ -2185,6 +2514,48 @@ public class FunUtil extends Util {
         };
     }
 
+    /**
+     * Reads the children of a collection of members into the member cache,
+     * with one query per level rather than one per member, so that
+     * subsequent calls to {@link SchemaReader#getMemberChildren(Member)} for
+     * those members do not go to the database.
+     *
+     * <p>Functions that drill down many members, one at a time, call this
+     * first with all of the members they are about to drill.
+     *
+     * @param schemaReader Schema reader
+     * @param members Members whose children will be needed
+     */
+    static void prefetchMemberChildren(
+        SchemaReader schemaReader,
+        Collection<Member> members)
+    {
+        if (members.size() < 2) {
+            return;
+        }
+        final Map<Hierarchy, List<Member>> membersByHierarchy =
+            new LinkedHashMap<Hierarchy, List<Member>>();
+        for (Member member : members) {
+            if (member.isCalculated()
+                || member.isNull()
+                || member.isMeasure())
+            {
+                continue;
+            }
+            List<Member> list = membersByHierarchy.get(member.getHierarchy());
+            if (list == null) {
+                list = new ArrayList<Member>();
+                membersByHierarchy.put(member.getHierarchy(), list);
+            }
+            list.add(member);
+        }
+        for (List<Member> list : membersByHierarchy.values()) {
+            if (list.size() > 1) {
+                schemaReader.getMemberChildren(list);
+            }
+        }
+    }
+
     public static List<Member> getNonEmptyMemberChildren(
         Evaluator evaluator,
         Member member)
@@ -3210,6 +3581,21 @@ public class FunUtil extends Util {
     {
         private final boolean desc;
 
+        /**
+         * Values of the expression, keyed by the leading members of a tuple
+         * that are in context followed by the member being compared. A sort
+         * compares each tuple many times, so without this map the
+         * expression would be evaluated O(n log n) times.
+         */
+        private final Map<List<Member>, Object> valueMap =
+            new HashMap<List<Member>, Object>();
+
+        /**
+         * Members of the tuples being compared that precede the current
+         * position; they are in context while values are evaluated.
+         */
+        private List<Member> prefix = Collections.emptyList();
+
         HierarchicalTupleComparator(
             Evaluator evaluator, Calc calc, int arity, boolean desc)
         {
@@ -3223,6 +3609,7 @@ public class FunUtil extends Util {
             try {
                 for (int i = 0; i < arity; i++) {
                     Member m1 = a1.get(i), m2 = a2.get(i);
+                    prefix = a1.subList(0, i);
                     c = compareHierarchicallyButSiblingsByValue(m1, m2);
                     if (c != 0) {
                         break;
@@ -3275,19 +3662,34 @@ public class FunUtil extends Util {
         }
 
         private int compareByValue(Member m1, Member m2) {
-            int c;
+            return FunUtil.compareValues(eval(m1), eval(m2));
+        }
+
+        private Object eval(Member m) {
+            final List<Member> key = new ArrayList<Member>(prefix.size() + 1);
+            key.addAll(prefix);
+            key.add(m);
+            Object value = valueMap.get(key);
+            if (value != null) {
+                return value;
+            }
             final int savepoint = evaluator.savepoint();
             try {
-                evaluator.setContext(m1);
-                Object v1 = calc.evaluate(evaluator);
-                evaluator.setContext(m2);
-                Object v2 = calc.evaluate(evaluator);
-                c = FunUtil.compareValues(v1, v2);
-                return c;
+                evaluator.setContext(m);
+                value = calc.evaluate(evaluator);
             } finally {
                 // important to restore the evaluator state
                 evaluator.restore(savepoint);
             }
+            if (value == null) {
+                value = Util.nullValue;
+            }
+            // Do not remember a value that is not in the cache yet; the
+            // expression will be evaluated again on the next pass.
+            if (value != RolapUtil.valueNotReadyException) {
+                valueMap.put(key, value);
+            }
+            return value;
         }
     }
 
@@ -3435,6 +3837,116 @@ public class FunUtil extends Util {
         }
     }
 
+    /**
+     * Sorts the positions of an array of values, so that a list can be
+     * sorted by keys that have been evaluated once up front. Stable.
+     *
+     * <p>If every value is a number or null, the values are copied into a
+     * primitive array so that comparisons do not unbox; otherwise they are
+     * compared using {@link FunUtil#compareValues(Object, Object)}. Both
+     * ways give the same order.
+     */
+    static class ValueIndexSorter {
+        private static final byte NOT_READY = 0;
+        private static final byte NULL = 1;
+        private static final byte NUMBER = 2;
+
+        private final Object[] values;
+        private final double[] doubles;
+        private final byte[] kinds;
+        private final int descMask;
+
+        /**
+         * Creates a ValueIndexSorter.
+         *
+         * @param values Values
+         * @param desc Whether to sort descending
+         */
+        ValueIndexSorter(Object[] values, boolean desc) {
+            this.values = values;
+            this.descMask = desc ? -1 : 1;
+            double[] doubles = new double[values.length];
+            byte[] kinds = new byte[values.length];
+            for (int i = 0; i < values.length; i++) {
+                final Object value = values[i];
+                // Both sentinels are Doubles, so test them before Number.
+                if (value == Util.nullValue) {
+                    kinds[i] = NULL;
+                } else if (value == RolapUtil.valueNotReadyException) {
+                    kinds[i] = NOT_READY;
+                } else if (value instanceof Number) {
+                    doubles[i] = ((Number) value).doubleValue();
+                    kinds[i] = NUMBER;
+                } else {
+                    doubles = null;
+                    kinds = null;
+                    break;
+                }
+            }
+            this.doubles = doubles;
+            this.kinds = kinds;
+        }
+
+        /**
+         * Returns the positions of the values in sorted order.
+         */
+        int[] sort() {
+            final int[] indexes = new int[values.length];
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = i;
+            }
+            sort(indexes, new int[indexes.length], 0, indexes.length);
+            return indexes;
+        }
+
+        private int compare(int i, int j) {
+            final int c;
+            if (kinds == null) {
+                c = FunUtil.compareValues(values[i], values[j]);
+            } else if (kinds[i] != kinds[j]) {
+                c = kinds[i] < kinds[j] ? -1 : 1;
+            } else if (kinds[i] == NUMBER) {
+                c = FunUtil.compareValues(doubles[i], doubles[j]);
+            } else {
+                c = 0;
+            }
+            return descMask * c;
+        }
+
+        // Merge sort of indexes[low, high), using work as scratch space.
+        private void sort(int[] indexes, int[] work, int low, int high) {
+            if (high - low <= 7) {
+                for (int i = low + 1; i < high; i++) {
+                    for (int j = i;
+                         j > low && compare(indexes[j - 1], indexes[j]) > 0;
+                         j--)
+                    {
+                        final int t = indexes[j];
+                        indexes[j] = indexes[j - 1];
+                        indexes[j - 1] = t;
+                    }
+                }
+                return;
+            }
+            final int mid = (low + high) >>> 1;
+            sort(indexes, work, low, mid);
+            sort(indexes, work, mid, high);
+            if (compare(indexes[mid - 1], indexes[mid]) <= 0) {
+                return;
+            }
+            System.arraycopy(indexes, low, work, low, high - low);
+            for (int k = low, i = low, j = mid; k < high; k++) {
+                if (j >= high
+                    || (i < mid && compare(work[i], work[j]) <= 0))
+                {
+                    indexes[k] = work[i++];
+                } else {
+                    indexes[k] = work[j++];
+                }
+            }
+        }
+    }
+
     static class SetWrapper {
         List v = new ArrayList();
         public int errorCount = 0, nullCount = 0;
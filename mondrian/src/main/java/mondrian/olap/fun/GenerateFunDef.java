@@ -115,29 +115,53 @@ class GenerateFunDef extends FunDefBase {
                 evaluator.restore(savepoint);
                 TupleList result = TupleCollections.createList(arityOut);
                 Execution execution = Locus.peek().execution;
-                if (all) {
-                    final TupleCursor cursor = iterable1.tupleCursor();
-                    int rowCount = 0;
-                    while (cursor.forward()) {
-                        CancellationChecker.checkCancelOrTimeout(
-                            rowCount++, execution);
-                        cursor.setContext(evaluator);
-                        final TupleList result2 =
-                            listCalc2.evaluateList(evaluator);
-                        result.addAll(result2);
+                final Set<List<Member>> emitted =
+                    all ? null : new HashSet<List<Member>>();
+                final TupleCursor cursor = iterable1.tupleCursor();
+                // If the inner set depends on only some of the hierarchies
+                // in the outer tuples, evaluate it once for each distinct
+                // combination of members of those hierarchies. Not in
+                // non-empty mode: there, native and non-empty sets depend
+                // on the whole context, whatever dependsOn says.
+                final boolean memoize =
+                    !evaluator.isNonEmpty()
+                    && MondrianProperties.instance().GenerateMemoize.get();
+                Map<List<Member>, TupleList> memo = null;
+                int[] positions = null;
+                int rowCount = 0;
+                while (cursor.forward()) {
+                    CancellationChecker.checkCancelOrTimeout(
+                        rowCount++, execution);
+                    cursor.setContext(evaluator);
+                    if (rowCount == 1 && memoize) {
+                        positions = dependentPositions(cursor.current());
+                        if (positions != null) {
+                            memo = new HashMap<List<Member>, TupleList>();
+                        }
+                    }
+                    TupleList result2;
+                    if (memo == null) {
+                        result2 = listCalc2.evaluateList(evaluator);
+                    } else {
+                        final List<Member> tuple = cursor.current();
+                        final List<Member> key =
+                            new ArrayList<Member>(positions.length);
+                        for (int position : positions) {
+                            key.add(tuple.get(position));
+                        }
+                        result2 = memo.get(key);
+                        if (result2 != null && !all) {
+                            // Its tuples have all been emitted already.
+                            continue;
+                        }
+                        if (result2 == null) {
+                            result2 = listCalc2.evaluateList(evaluator);
+                            memo.put(key, result2);
+                        }
                     }
-                } else {
-                    final Set<List<Member>> emitted =
-                            new HashSet<List<Member>>();
-                    final TupleCursor cursor = iterable1.tupleCursor();
-
-                    int rowCount = 0;
-                    while (cursor.forward()) {
-                        CancellationChecker.checkCancelOrTimeout(
-                            rowCount++, execution);
-                        cursor.setContext(evaluator);
-                        final TupleList result2 =
-                                listCalc2.evaluateList(evaluator);
+                    if (all) {
+                        result.addAll(result2);
+                    } else {
                         addDistinctTuples(result, result2, emitted);
                     }
                 }
@@ -147,6 +171,22 @@ class GenerateFunDef extends FunDefBase {
             }
         }
 
+        /**
+         * Returns the positions of the members of an outer tuple whose
+         * hierarchies the inner set depends on, or null if it depends on
+         * all of them.
+         */
+        private int[] dependentPositions(List<Member> tuple) {
+            final int[] positions = new int[tuple.size()];
+            int n = 0;
+            for (int i = 0; i < tuple.size(); i++) {
+                if (listCalc2.dependsOn(tuple.get(i).getHierarchy())) {
+                    positions[n++] = i;
+                }
+            }
+            return n == positions.length ? null : Arrays.copyOf(positions, n);
+        }
+
         private static void addDistinctTuples(
             TupleList result,
             TupleList result2,
@@ -15,6 +15,10 @@ import mondrian.calc.impl.ConstantCalc;
 import mondrian.mdx.ResolvedFunCall;
 import mondrian.olap.Evaluator;
 import mondrian.olap.FunDef;
+import mondrian.olap.NativeEvaluator;
+
+import java.io.Closeable;
+import java.io.IOException;
 
 /**
  * Definition of the <code>Head</code> and <code>Tail</code>
@@ -47,30 +51,42 @@ class HeadTailFunDef extends FunDefBase {
         head = dummyFunDef.getName().equals("Head");
     }
 
-    public Calc compileCall(ResolvedFunCall call, ExpCompiler compiler) {
-        final ListCalc listCalc =
-            compiler.compileList(call.getArg(0));
+    public Calc compileCall(final ResolvedFunCall call, ExpCompiler compiler) {
         final IntegerCalc integerCalc =
             call.getArgCount() > 1
             ? compiler.compileInteger(call.getArg(1))
             : ConstantCalc.constantInteger(1);
         if (head) {
+            // Head needs only the first tuples of the set, so it consumes
+            // the set as an iterable, which may stop reading it early.
+            final IterCalc iterCalc = compiler.compileIter(call.getArg(0));
             return new AbstractListCalc(
-                call, new Calc[] {listCalc, integerCalc})
+                call, new Calc[] {iterCalc, integerCalc})
             {
                 public TupleList evaluateList(Evaluator evaluator) {
+                    // Head(Order(...), n) may be evaluated in SQL.
+                    final NativeEvaluator nativeEvaluator =
+                        evaluator.getSchemaReader().getNativeSetEvaluator(
+                            call.getFunDef(), call.getArgs(), evaluator, this);
+                    if (nativeEvaluator != null) {
+                        return (TupleList)
+                            nativeEvaluator.execute(ResultStyle.LIST);
+                    }
                     final int savepoint = evaluator.savepoint();
                     try {
                         evaluator.setNonEmpty(false);
-                        TupleList list = listCalc.evaluateList(evaluator);
+                        TupleIterable iterable =
+                            iterCalc.evaluateIterable(evaluator);
                         int count = integerCalc.evaluateInteger(evaluator);
-                        return head(count, list);
+                        return head(count, iterable);
                     } finally {
                         evaluator.restore(savepoint);
                     }
                 }
             };
         } else {
+            final ListCalc listCalc =
+                compiler.compileList(call.getArg(0));
             return new AbstractListCalc(
                 call, new Calc[] {listCalc, integerCalc})
             {
@@ -101,6 +117,38 @@ class HeadTailFunDef extends FunDefBase {
         return members.subList(members.size() - count, members.size());
     }
 
+    /**
+     * Returns the first <code>count</code> tuples of an iterable, reading no
+     * more of it than that. If the cursor over the iterable is
+     * {@link Closeable}, it is closed, so that a set that is being read from
+     * the database stops being read.
+     */
+    static TupleList head(final int count, final TupleIterable iterable) {
+        if (iterable instanceof TupleList) {
+            return head(count, (TupleList) iterable);
+        }
+        final TupleList list =
+            TupleCollections.createList(iterable.getArity());
+        if (count <= 0) {
+            return list;
+        }
+        final TupleCursor cursor = iterable.tupleCursor();
+        try {
+            while (list.size() < count && cursor.forward()) {
+                list.addCurrent(cursor);
+            }
+        } finally {
+            if (cursor instanceof Closeable) {
+                try {
+                    ((Closeable) cursor).close();
+                } catch (IOException e) {
+                    // ignore; the tuples have been read
+                }
+            }
+        }
+        return list;
+    }
+
     static TupleList head(final int count, final TupleList members) {
         assert members != null;
         if (count <= 0) {
@@ -33,6 +33,18 @@ class OrderFunDef extends FunDefBase {
     }
 
     public Calc compileCall(ResolvedFunCall call, ExpCompiler compiler) {
+        final Calc calc = compileSort(call, compiler);
+        // Only a single breaking sort key can be evaluated in SQL.
+        if (call.getArgCount() == 3
+            && call.getArg(2).getCategory() == Category.Symbol
+            && getLiteralArg(call, 2, Flag.ASC, Flag.class).brk)
+        {
+            return new NativeCalc(call, calc);
+        }
+        return calc;
+    }
+
+    private Calc compileSort(ResolvedFunCall call, ExpCompiler compiler) {
         final IterCalc listCalc = compiler.compileIter(call.getArg(0));
         List<SortKeySpec> keySpecList = new ArrayList<SortKeySpec>();
         buildKeySpecList(keySpecList, call, compiler);
@@ -381,6 +393,41 @@ class OrderFunDef extends FunDefBase {
         }
     }
 
+    /**
+     * Calc that evaluates the sort in SQL if the context allows, and
+     * otherwise sorts in memory.
+     */
+    private static class NativeCalc extends GenericIterCalc {
+        private final ResolvedFunCall call;
+        private final Calc calc;
+
+        protected NativeCalc(ResolvedFunCall call, Calc calc) {
+            super(call, new Calc[] {calc});
+            this.call = call;
+            this.calc = calc;
+        }
+
+        public Object evaluate(Evaluator evaluator) {
+            final NativeEvaluator nativeEvaluator =
+                evaluator.getSchemaReader().getNativeSetEvaluator(
+                    call.getFunDef(), call.getArgs(), evaluator, this);
+            if (nativeEvaluator != null) {
+                final TupleList list =
+                    (TupleList) nativeEvaluator.execute(ResultStyle.LIST);
+                // The native list may be cached; callers that were promised
+                // a mutable list get a copy.
+                return getResultStyle() == ResultStyle.MUTABLE_LIST
+                    ? list.cloneList(-1)
+                    : list;
+            }
+            return calc.evaluate(evaluator);
+        }
+
+        public ResultStyle getResultStyle() {
+            return calc.getResultStyle();
+        }
+    }
+
     private static class ResolverImpl extends ResolverBase {
         private final String[] reservedWords;
         static int[] argTypes;
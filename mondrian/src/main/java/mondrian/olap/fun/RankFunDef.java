@@ -209,7 +209,7 @@ public class RankFunDef extends FunDefBase {
             // If there is an exception while calculating the
             // list, propagate it up.
             final TupleSortResult sortResult =
-                (TupleSortResult) evaluator.getCachedResult(cacheDescriptor);
+                (TupleSortResult) getSortResult(evaluator, cacheDescriptor);
             if (debug) {
                 sortResult.print(new PrintWriter(System.out));
             }
@@ -242,20 +242,11 @@ public class RankFunDef extends FunDefBase {
 
             // If value is null, it won't be in the values array.
             if (value == Util.nullValue || value == null) {
-                return sortResult.values.length + 1;
+                return sortResult.size() + 1;
             }
 
-            value = coerceValue(sortResult.values, value);
-
             // Look for the ranked value in the array.
-            int j = Arrays.binarySearch(
-                sortResult.values, value, Collections.<Object>reverseOrder());
-            if (j < 0) {
-                // Value not found. Flip the result to find the
-                // insertion point.
-                j = -(j + 1);
-            }
-            return j + 1; // 1-based
+            return sortResult.rankOfValue(value);
         }
     }
 
@@ -286,7 +277,7 @@ public class RankFunDef extends FunDefBase {
             // If there was an exception while calculating the
             // list, propagate it up.
             final MemberSortResult sortResult =
-                (MemberSortResult) evaluator.getCachedResult(cacheDescriptor);
+                (MemberSortResult) getSortResult(evaluator, cacheDescriptor);
             if (debug) {
                 sortResult.print(new PrintWriter(System.out));
             }
@@ -318,31 +309,35 @@ public class RankFunDef extends FunDefBase {
 
             // If value is null, it won't be in the values array.
             if (value == Util.nullValue || value == null) {
-                return sortResult.values.length + 1;
+                return sortResult.size() + 1;
             }
 
-            value = coerceValue(sortResult.values, value);
-
             // Look for the ranked value in the array.
-            int j = Arrays.binarySearch(
-                sortResult.values, value, Collections.<Object>reverseOrder());
-            if (j < 0) {
-                // Value not found. Flip the result to find the
-                // insertion point.
-                j = -(j + 1);
-            }
-            return j + 1; // 1-based
+            return sortResult.rankOfValue(value);
         }
     }
 
-    private static Object coerceValue(Object[] values, Object value) {
-        if (values.length > 0) {
-            final Object firstValue = values[0];
-            if (firstValue instanceof Integer && value instanceof Double) {
-                return  ((Double) value).intValue();
-            }
+    /**
+     * Returns the result of a {@link SortedListCalc}, from the expression
+     * cache if possible.
+     *
+     * <p>The calc evaluates its set and keys with NON EMPTY off, so it is
+     * looked up with NON EMPTY off. Otherwise the cache key would contain
+     * every member in the context, and the sorted list would be rebuilt for
+     * each row of a NON EMPTY axis rather than shared by all rows that
+     * differ only in hierarchies that the set and key do not depend on.
+     */
+    private static Object getSortResult(
+        Evaluator evaluator,
+        ExpCacheDescriptor cacheDescriptor)
+    {
+        final int savepoint = evaluator.savepoint();
+        try {
+            evaluator.setNonEmpty(false);
+            return evaluator.getCachedResult(cacheDescriptor);
+        } finally {
+            evaluator.restore(savepoint);
         }
-        return value;
     }
 
     private static boolean valueNotReady(Object value) {
@@ -360,8 +355,6 @@ public class RankFunDef extends FunDefBase {
         private final ListCalc listCalc;
         private final Calc keyCalc;
 
-        private static final Integer ONE = 1;
-
         /**
          * Creates a SortCalc.
          *
@@ -387,149 +380,82 @@ public class RankFunDef extends FunDefBase {
             // Save the state of the evaluator.
             final int savepoint = evaluator.savepoint();
             RuntimeException exception = null;
-            final Map<Member, Object> memberValueMap;
-            final Map<List<Member>, Object> tupleValueMap;
-            final int numValues;
-            //noinspection unchecked
-            final Map<Object, Integer> uniqueValueCounterMap =
-                new TreeMap<Object, Integer>(
-                    FunUtil.DescendingValueComparator.instance);
-            TupleList list;
+            final Set<Object> keySet = new HashSet<Object>();
+            final List<Object> keyList = new ArrayList<Object>();
+            final List<Object> valueList = new ArrayList<Object>();
+            final boolean unary;
             try {
                 evaluator.setNonEmpty(false);
 
-                // Construct an array containing the value of the expression
-                // for each member.
-
-                list = listCalc.evaluateList(evaluator);
+                // Evaluate the expression once for each member or tuple.
+                // Null values are not ranked; a member or tuple that occurs
+                // more than once is ranked once.
+                final TupleList list = listCalc.evaluateList(evaluator);
                 assert list != null;
-                if (list.isEmpty()) {
-                    return list.getArity() == 1
-                        ? new MemberSortResult(
-                            new Object[0],
-                            Collections.<Member, Integer>emptyMap())
-                    : new TupleSortResult(
-                        new Object[0],
-                        Collections.<List<Member>, Integer>emptyMap());
-                }
-
-                if (list.getArity() == 1) {
-                    memberValueMap = new HashMap<Member, Object>();
-                    tupleValueMap = null;
-                    for (Member member : list.slice(0)) {
-                        evaluator.setContext(member);
-                        final Object keyValue = keyCalc.evaluate(evaluator);
-                        if (keyValue instanceof RuntimeException) {
-                            if (exception == null) {
-                                exception = (RuntimeException) keyValue;
-                            }
-                        } else if (Util.isNull(keyValue)) {
-                            // nothing to do
-                        } else {
-                            // Assume it's the first time seeing this keyValue.
-                            Integer valueCounter =
-                                uniqueValueCounterMap.put(keyValue, ONE);
-                            if (valueCounter != null) {
-                                // Update the counter on how many times this
-                                // keyValue has been seen.
-                                uniqueValueCounterMap.put(
-                                    keyValue, valueCounter + 1);
-                            }
-                            memberValueMap.put(member, keyValue);
-                        }
+                unary = list.getArity() == 1;
+                final Iterable<?> keys = unary ? list.slice(0) : list;
+                for (Object key : keys) {
+                    if (!keySet.add(key)) {
+                        continue;
                     }
-                    numValues = memberValueMap.keySet().size();
-                } else {
-                    tupleValueMap = new HashMap<List<Member>, Object>();
-                    memberValueMap = null;
-                    for (List<Member> tuple : list) {
-                        evaluator.setContext(tuple);
-                        final Object keyValue = keyCalc.evaluate(evaluator);
-                        if (keyValue instanceof RuntimeException) {
-                            if (exception == null) {
-                                exception = (RuntimeException) keyValue;
-                            }
-                        } else if (Util.isNull(keyValue)) {
-                            // nothing to do
-                        } else {
-                            // Assume it's the first time seeing this keyValue.
-                            Integer valueCounter = uniqueValueCounterMap.put(
-                                keyValue, ONE);
-                            if (valueCounter != null) {
-                                // Update the counter on how many times this
-                                // keyValue has been seen.
-                                uniqueValueCounterMap.put(
-                                    keyValue, valueCounter + 1);
-                            }
-                            tupleValueMap.put(tuple, keyValue);
+                    if (unary) {
+                        evaluator.setContext((Member) key);
+                    } else {
+                        //noinspection unchecked
+                        evaluator.setContext((List<Member>) key);
+                    }
+                    final Object keyValue = keyCalc.evaluate(evaluator);
+                    if (keyValue instanceof RuntimeException) {
+                        if (exception == null) {
+                            exception = (RuntimeException) keyValue;
                         }
+                    } else if (Util.isNull(keyValue)) {
+                        // nothing to do
+                    } else {
+                        keyList.add(key);
+                        valueList.add(keyValue);
                     }
-                    numValues = tupleValueMap.keySet().size();
                 }
             } finally {
                 evaluator.restore(savepoint);
             }
 
-
             // If there were exceptions, quit now... we'll be back.
             if (exception != null) {
                 return exception;
             }
 
-            final Object[] allValuesSorted = new Object[numValues];
-
-            // Now build the sorted array containing all keyValues
-            // And update the counter to the rank
-            int currentOrdinal = 0;
-            //noinspection unchecked
-            final Map<Object, Integer> uniqueValueRankMap =
-                new TreeMap<Object, Integer>(
-                    Collections.<Object>reverseOrder());
-
-            for (Map.Entry<Object, Integer> entry
-                : uniqueValueCounterMap.entrySet())
-            {
-                Object keyValue = entry.getKey();
-                Integer valueCount = entry.getValue();
-                // Because uniqueValueCounterMap is already sorted, so the
-                // reconstructed allValuesSorted is guaranteed to be sorted.
-                for (int i = 0; i < valueCount; i ++) {
-                    allValuesSorted[currentOrdinal + i] = keyValue;
-                }
-                uniqueValueRankMap.put(keyValue, currentOrdinal + 1);
-                currentOrdinal += valueCount;
-            }
-
-            // Build a member/tuple to rank map
-            if (list.getArity() == 1) {
-                final Map<Member, Integer> rankMap =
-                    new HashMap<Member, Integer>();
-                for (Map.Entry<Member, Object> entry
-                    : memberValueMap.entrySet())
-                {
-                    int oneBasedRank =
-                        uniqueValueRankMap.get(entry.getValue());
-                    rankMap.put(entry.getKey(), oneBasedRank);
-                }
-                return new MemberSortResult(allValuesSorted, rankMap);
-            } else {
-                final Map<List<Member>, Integer> rankMap =
-                    new HashMap<List<Member>, Integer>();
-                for (Map.Entry<List<Member>, Object> entry
-                    : tupleValueMap.entrySet())
+            // Sort the values, largest first, and assign each member or tuple
+            // the 1-based rank of the first occurrence of its value.
+            final Object[] values = valueList.toArray();
+            final int[] indexes = new ValueIndexSorter(values, true).sort();
+            final Object[] sortedValues = new Object[values.length];
+            final Map<Object, Integer> rankMap =
+                new HashMap<Object, Integer>(keyList.size() * 2);
+            int rank = 0;
+            for (int i = 0; i < indexes.length; i++) {
+                sortedValues[i] = values[indexes[i]];
+                if (i == 0
+                    || FunUtil.compareValues(
+                        sortedValues[i - 1], sortedValues[i]) != 0)
                 {
-                    int oneBasedRank =
-                        uniqueValueRankMap.get(entry.getValue());
-                    rankMap.put(entry.getKey(), oneBasedRank);
+                    rank = i + 1;
                 }
-                return new TupleSortResult(allValuesSorted, rankMap);
+                rankMap.put(keyList.get(indexes[i]), rank);
             }
+            return unary
+                ? new MemberSortResult(sortedValues, rankMap)
+                : new TupleSortResult(sortedValues, rankMap);
         }
     }
 
     /**
      * Holder for the result of sorting a set of values.
      * It provides simple interface to look up the rank for a member or a tuple.
+     *
+     * <p>If every value is numeric, the values are held in a primitive array,
+     * so that looking up the rank of a value not in the set is a binary
+     * search without boxing.
      */
     private static abstract class SortResult {
         /**
@@ -538,28 +464,105 @@ public class RankFunDef extends FunDefBase {
          *  10 should be ranked 3.
          *
          * <p>Null values are not present: they would be at the end, anyway.
+         *
+         * <p>Null if all values are numeric; see {@link #doubleValues}.
          */
         final Object[] values;
 
+        /**
+         * All values in sorted order, if all values are numeric; otherwise
+         * null.
+         */
+        final double[] doubleValues;
+
+        /**
+         * Whether the largest value is an integer. If so, a double value is
+         * truncated before it is ranked.
+         */
+        final boolean integral;
 
-        public SortResult(Object[] values) {
-            this.values = values;
+        /**
+         * The precomputed rank of each member or tuple in the set.
+         */
+        final Map<Object, Integer> rankMap;
+
+        public SortResult(Object[] values, Map<Object, Integer> rankMap) {
+            this.rankMap = rankMap;
+            this.integral = values.length > 0 && values[0] instanceof Integer;
+            double[] doubleValues = new double[values.length];
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] instanceof Number) {
+                    doubleValues[i] = ((Number) values[i]).doubleValue();
+                } else {
+                    doubleValues = null;
+                    break;
+                }
+            }
+            this.doubleValues = doubleValues;
+            this.values = doubleValues == null ? values : null;
         }
 
         public boolean isEmpty() {
-            return values == null;
+            return values == null && doubleValues == null;
+        }
+
+        /**
+         * Returns the number of non-null values.
+         */
+        public int size() {
+            return doubleValues != null ? doubleValues.length : values.length;
+        }
+
+        /**
+         * Returns the 1-based rank that a value would have in the set: one
+         * more than the number of values that are strictly larger.
+         *
+         * @param value Value; not null
+         * @return Rank
+         */
+        public int rankOfValue(Object value) {
+            if (integral && value instanceof Double) {
+                value = ((Double) value).intValue();
+            }
+            int low = 0;
+            int high = size();
+            if (doubleValues != null && value instanceof Number) {
+                final double d = ((Number) value).doubleValue();
+                while (low < high) {
+                    final int mid = (low + high) >>> 1;
+                    if (FunUtil.compareValues(doubleValues[mid], d) <= 0) {
+                        high = mid;
+                    } else {
+                        low = mid + 1;
+                    }
+                }
+            } else {
+                while (low < high) {
+                    final int mid = (low + high) >>> 1;
+                    if (FunUtil.compareValues(get(mid), value) <= 0) {
+                        high = mid;
+                    } else {
+                        low = mid + 1;
+                    }
+                }
+            }
+            return low + 1; // 1-based
+        }
+
+        private Object get(int i) {
+            return doubleValues != null ? doubleValues[i] : values[i];
         }
 
         public void print(PrintWriter pw) {
-            if (values == null) {
+            if (isEmpty()) {
                 pw.println("SortResult: empty");
             } else {
                 pw.println("SortResult {");
-                for (int i = 0; i < values.length; i++) {
+                for (int i = 0; i < size(); i++) {
                     if (i > 0) {
                         pw.println(",");
                     }
-                    Object value = values[i];
+                    Object value = get(i);
                     pw.print(value);
                 }
                 pw.println("}");
@@ -569,16 +572,10 @@ public class RankFunDef extends FunDefBase {
     }
 
     private static class MemberSortResult extends SortResult {
-        /**
-         * The precomputed rank associated with all members
-         */
-        final Map<Member, Integer> rankMap;
-
         public MemberSortResult(
-            Object[] values, Map<Member, Integer> rankMap)
+            Object[] values, Map<Object, Integer> rankMap)
         {
-            super(values);
-            this.rankMap = rankMap;
+            super(values, rankMap);
         }
 
         public Integer rankOf(Member member) {
@@ -587,16 +584,10 @@ public class RankFunDef extends FunDefBase {
     }
 
     private static class TupleSortResult extends SortResult {
-        /**
-         * The precomputed rank associated with all tuples
-         */
-        final Map<List<Member>, Integer> rankMap;
-
         public TupleSortResult(
-            Object[] values, Map<List<Member>, Integer> rankMap)
+            Object[] values, Map<Object, Integer> rankMap)
         {
-            super(values);
-            this.rankMap = rankMap;
+            super(values, rankMap);
         }
 
         public Integer rankOf(Member[] tuple) {
@@ -12,8 +12,11 @@ package mondrian.olap.fun;
 import mondrian.calc.*;
 import mondrian.calc.impl.AbstractDoubleCalc;
 import mondrian.calc.impl.ValueCalc;
+import mondrian.mdx.MemberExpr;
 import mondrian.mdx.ResolvedFunCall;
 import mondrian.olap.*;
+import mondrian.rolap.RolapAggregator;
+import mondrian.rolap.RolapUtil;
 
 /**
  * Definition of the <code>Sum</code> MDX function.
@@ -90,6 +93,23 @@ class SumFunDef extends AbstractAggregateFunDef {
         }
     }
 
+    /**
+     * Returns the stored measure that is the value expression of a call to
+     * <code>Sum</code>, or null if the value expression is not a stored
+     * measure.
+     */
+    private static Member getStoredMeasure(ResolvedFunCall call) {
+        if (call.getArgCount() > 1
+            && call.getArg(1) instanceof MemberExpr)
+        {
+            final Member member = ((MemberExpr) call.getArg(1)).getMember();
+            if (member.isMeasure() && !member.isCalculated()) {
+                return member;
+            }
+        }
+        return null;
+    }
+
     protected Calc genIterCalc(
         final ResolvedFunCall call,
         final IterCalc iterCalc,
@@ -118,15 +138,38 @@ class SumFunDef extends AbstractAggregateFunDef {
         final ListCalc listCalc,
         final Calc calc)
     {
+        final Member measure = getStoredMeasure(call);
         return new AbstractDoubleCalc(call, new Calc[] {listCalc, calc}) {
             public double evaluateDouble(Evaluator evaluator) {
+                final Object o = evaluate(evaluator);
+                return o == null ? DoubleNull : ((Number) o).doubleValue();
+            }
+
+            public Object evaluate(Evaluator evaluator) {
                 TupleList memberList = evaluateCurrentList(listCalc, evaluator);
                 final int savepoint = evaluator.savepoint();
                 try {
                     evaluator.setNonEmpty(false);
-                    return
-                        sumDouble(
-                            evaluator, memberList, calc);
+                    if (measure != null || calc instanceof ValueCalc) {
+                        if (measure != null) {
+                            evaluator.setContext(measure);
+                        }
+                        final Object o =
+                            aggregateByCompoundPredicate(
+                                evaluator, memberList, RolapAggregator.Sum,
+                                isSlicerExpression(evaluator, call));
+                        if (o == RolapUtil.valueNotReadyException) {
+                            // Return the sentinel itself, not a copy, so
+                            // that callers still recognize it.
+                            return o;
+                        } else if (o instanceof Number) {
+                            return ((Number) o).doubleValue();
+                        } else if (o == Util.nullValue) {
+                            return null;
+                        }
+                    }
+                    final double d = sumDouble(evaluator, memberList, calc);
+                    return d == DoubleNull ? null : new Double(d);
                 } finally {
                     evaluator.restore(savepoint);
                 }
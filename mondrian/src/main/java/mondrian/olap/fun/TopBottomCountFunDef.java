@@ -16,8 +16,10 @@ import mondrian.calc.impl.*;
 import mondrian.mdx.ResolvedFunCall;
 import mondrian.olap.*;
 
-import java.util.AbstractList;
-import java.util.List;
+import mondrian.server.Execution;
+import mondrian.util.CancellationChecker;
+
+import java.util.*;
 
 /**
  * Definition of the <code>TopCount</code> and <code>BottomCount</code>
@@ -59,10 +61,11 @@ class TopBottomCountFunDef extends FunDefBase {
     }
 
     public Calc compileCall(final ResolvedFunCall call, ExpCompiler compiler) {
-        // Compile the member list expression. Ask for a mutable list, because
-        // we're going to sort it later.
-        final ListCalc listCalc =
-                compiler.compileList(call.getArg(0), true);
+        // Compile the member list expression as an iterable. The set is
+        // consumed once, and only the best n tuples are retained, so there is
+        // no need to materialize it.
+        final IterCalc iterCalc =
+                compiler.compileIter(call.getArg(0));
         final IntegerCalc integerCalc =
                 compiler.compileInteger(call.getArg(1));
         final Calc orderCalc =
@@ -72,7 +75,7 @@ class TopBottomCountFunDef extends FunDefBase {
         final int arity = call.getType().getArity();
         return new AbstractListCalc(
             call,
-            new Calc[]{listCalc, integerCalc, orderCalc})
+            new Calc[]{iterCalc, integerCalc, orderCalc})
         {
             public TupleList evaluateList(Evaluator evaluator) {
                 // Use a native evaluator, if more efficient.
@@ -87,77 +90,40 @@ class TopBottomCountFunDef extends FunDefBase {
                 }
 
                 int n = integerCalc.evaluateInteger(evaluator);
-                if (n == 0 || n == mondrian.olap.fun.FunUtil.IntegerNull) {
+                if (n <= 0 || n == mondrian.olap.fun.FunUtil.IntegerNull) {
                     return TupleCollections.emptyList(arity);
                 }
 
-                TupleList list = listCalc.evaluateList(evaluator);
-                assert list.getArity() == arity;
-                if (list.isEmpty()) {
-                    return list;
-                }
+                final TupleIterable iterable =
+                    iterCalc.evaluateIterable(evaluator);
+                assert iterable.getArity() == arity;
 
                 if (orderCalc == null) {
-                    // REVIEW: Why require "instanceof AbstractList"?
-                    if (list instanceof AbstractList && list.size() <= n) {
-                        return list;
-                    } else {
-                        return list.subList(0, n);
-                    }
-                }
-
-                return partiallySortList(
-                    evaluator, list, hasHighCardDimension(list),
-                    Math.min(n, list.size()));
-            }
-
-            private TupleList partiallySortList(
-                Evaluator evaluator,
-                TupleList list,
-                boolean highCard,
-                int n)
-            {
-                assert list.size() > 0;
-                assert n <= list.size();
-                if (highCard) {
-                    // sort list in chunks, collect the results
-                    final int chunkSize = 6400; // what is this really?
-                    TupleList allChunkResults = TupleCollections.createList(
-                        arity);
-                    for (int i = 0, next; i < list.size(); i = next) {
-                        next = Math.min(i + chunkSize, list.size());
-                        final TupleList chunk = list.subList(i, next);
-                        TupleList chunkResult =
-                            partiallySortList(
-                                evaluator, chunk, false, n);
-                        allChunkResults.addAll(chunkResult);
+                    final TupleList list = TupleCollections.createList(arity);
+                    final TupleCursor cursor = iterable.tupleCursor();
+                    while (list.size() < n && cursor.forward()) {
+                        list.addCurrent(cursor);
                     }
-                    // one last sort, to merge and cull
-                    return partiallySortList(
-                        evaluator, allChunkResults, false, n);
+                    return list;
                 }
 
-                // normal case: no need for chunks
                 final int savepoint = evaluator.savepoint();
                 try {
-                    switch (list.getArity()) {
-                    case 1:
-                        final List<Member> members =
-                        partiallySortMembers(
-                            evaluator.push(),
-                            list.slice(0),
-                            orderCalc, n, top);
-                        return new UnaryTupleList(members);
-                    default:
-                        final List<List<Member>> tuples =
-                        partiallySortTuples(
-                            evaluator.push(),
-                            list,
-                            orderCalc, n, top);
-                        return new DelegatingTupleList(
-                            list.getArity(),
-                            tuples);
+                    final Evaluator subEvaluator = evaluator.push();
+                    final TupleHeap heap = new TupleHeap(arity, n, top);
+                    final TupleCursor cursor = iterable.tupleCursor();
+                    final Execution execution =
+                        evaluator.getQuery().getStatement()
+                            .getCurrentExecution();
+                    int currentIteration = 0;
+                    while (cursor.forward()) {
+                        CancellationChecker.checkCancelOrTimeout(
+                            currentIteration++, execution);
+                        final List<Member> tuple = cursor.current();
+                        subEvaluator.setContext(tuple);
+                        heap.offer(tuple, orderCalc.evaluate(subEvaluator));
                     }
+                    return heap.toList();
                 } finally {
                     evaluator.restore(savepoint);
                 }
@@ -166,17 +132,157 @@ class TopBottomCountFunDef extends FunDefBase {
             public boolean dependsOn(Hierarchy hierarchy) {
                 return anyDependsButFirst(getCalcs(), hierarchy);
             }
+        };
+    }
+
+    /**
+     * Bounded heap that retains the best <i>n</i> tuples offered to it, in
+     * the order in which a stable sort on value would return them.
+     *
+     * <p>The root of the heap is the retained tuple that would come last;
+     * a new tuple is retained only if it would come before the root, which
+     * it then replaces. Ties are broken by the order in which tuples were
+     * offered, so the result is the same as a stable sort of the whole set
+     * followed by taking the first <i>n</i> tuples.
+     */
+    private static class TupleHeap {
+        private final int arity;
+        private final int descMask;
+        private final int limit;
+        private Member[][] tuples;
+        private Object[] values;
+        private int[] ordinals;
+        private int size;
+        private int count;
+
+        /**
+         * Creates a TupleHeap.
+         *
+         * @param arity Number of members in each tuple
+         * @param n Maximum number of tuples to retain
+         * @param top Whether to retain the largest (as opposed to smallest)
+         *   values
+         */
+        TupleHeap(int arity, int n, boolean top) {
+            this.arity = arity;
+            this.descMask = top ? -1 : 1;
+            this.limit = n;
+            // The heap grows as tuples arrive, so that a large n with a small
+            // set does not allocate large arrays.
+            final int capacity = Math.min(n, 16);
+            this.tuples = new Member[capacity][];
+            this.values = new Object[capacity];
+            this.ordinals = new int[capacity];
+        }
+
+        /**
+         * Offers a tuple and its value.
+         *
+         * @param tuple Tuple; copied if it is retained
+         * @param value Value of the sort expression for the tuple
+         */
+        void offer(List<Member> tuple, Object value) {
+            if (value == null) {
+                value = Util.nullValue;
+            }
+            final int ordinal = count++;
+            if (size < limit) {
+                if (size == tuples.length) {
+                    final int capacity =
+                        (int) Math.min((long) limit, 2L * size);
+                    tuples = Arrays.copyOf(tuples, capacity);
+                    values = Arrays.copyOf(values, capacity);
+                    ordinals = Arrays.copyOf(ordinals, capacity);
+                }
+                int i = size++;
+                set(i, tuple.toArray(new Member[arity]), value, ordinal);
+                siftUp(i);
+            } else if (compare(value, ordinal, 0) < 0) {
+                set(0, tuple.toArray(new Member[arity]), value, ordinal);
+                siftDown(0);
+            }
+        }
 
-            private boolean hasHighCardDimension(TupleList l) {
-                final List<Member> trial = l.get(0);
-                for (Member m : trial) {
-                    if (m.getHierarchy().getDimension().isHighCardinality()) {
-                        return true;
+        /**
+         * Returns the retained tuples, best first.
+         */
+        TupleList toList() {
+            final Integer[] indexes = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                indexes[i] = i;
+            }
+            Arrays.sort(
+                indexes,
+                new Comparator<Integer>() {
+                    public int compare(Integer i1, Integer i2) {
+                        return TupleHeap.this.compare(
+                            values[i1], ordinals[i1], i2);
                     }
+                });
+            final TupleList list = TupleCollections.createList(arity);
+            for (Integer index : indexes) {
+                list.addTuple(tuples[index]);
+            }
+            return list;
+        }
+
+        private void set(int i, Member[] tuple, Object value, int ordinal) {
+            tuples[i] = tuple;
+            values[i] = value;
+            ordinals[i] = ordinal;
+        }
+
+        /**
+         * Compares a value with the retained tuple at position {@code j} in
+         * the heap. Returns a negative number if the value comes first.
+         */
+        private int compare(Object value, int ordinal, int j) {
+            final int c = descMask * FunUtil.compareValues(value, values[j]);
+            if (c != 0) {
+                return c;
+            }
+            return ordinal < ordinals[j] ? -1 : ordinal > ordinals[j] ? 1 : 0;
+        }
+
+        private void swap(int i, int j) {
+            final Member[] tuple = tuples[i];
+            final Object value = values[i];
+            final int ordinal = ordinals[i];
+            set(i, tuples[j], values[j], ordinals[j]);
+            set(j, tuple, value, ordinal);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                final int parent = (i - 1) >>> 1;
+                if (compare(values[i], ordinals[i], parent) <= 0) {
+                    break;
                 }
-                return false;
+                swap(i, parent);
+                i = parent;
             }
-        };
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                final int left = 2 * i + 1;
+                if (left >= size) {
+                    break;
+                }
+                int last = left;
+                final int right = left + 1;
+                if (right < size
+                    && compare(values[right], ordinals[right], left) > 0)
+                {
+                    last = right;
+                }
+                if (compare(values[i], ordinals[i], last) >= 0) {
+                    break;
+                }
+                swap(i, last);
+                i = last;
+            }
+        }
     }
 }
 
@@ -15,9 +15,6 @@ import mondrian.calc.impl.AbstractListCalc;
 import mondrian.mdx.ResolvedFunCall;
 import mondrian.olap.*;
 
-import java.util.List;
-import java.util.Map;
-
 /**
  * Definition of the <code>TopPercent</code>, <code>BottomPercent</code>,
  * <code>TopSum</code> and <code>BottomSum</code> MDX builtin functions.
@@ -73,7 +70,7 @@ class TopBottomPercentSumFunDef extends FunDefBase {
 
     public Calc compileCall(ResolvedFunCall call, ExpCompiler compiler) {
         final ListCalc listCalc =
-            compiler.compileList(call.getArg(0), true);
+            compiler.compileList(call.getArg(0));
         final DoubleCalc doubleCalc = compiler.compileDouble(call.getArg(1));
         final Calc calc = compiler.compileScalar(call.getArg(2), true);
         return new CalcImpl(call, listCalc, doubleCalc, calc);
@@ -121,39 +118,46 @@ class TopBottomPercentSumFunDef extends FunDefBase {
             if (list.isEmpty()) {
                 return list;
             }
-            Map<List<Member>, Object> mapMemberToValue =
-                evaluateTuples(evaluator, calc, list);
+
+            // Evaluate each tuple's value once, and sort positions by value.
+            // The values are used both for ordering and for the running total.
+            final Object[] values = new Object[list.size()];
             final int savepoint = evaluator.savepoint();
             try {
                 evaluator.setNonEmpty(false);
-                list = sortTuples(
-                    evaluator,
-                    list,
-                    list,
-                    calc,
-                    top,
-                    true,
-                    getType().getArity());
+                for (int i = 0; i < values.length; i++) {
+                    evaluator.setContext(list.get(i));
+                    final Object o = calc.evaluate(evaluator);
+                    values[i] = o == null ? Util.nullValue : o;
+                }
             } finally {
                 evaluator.restore(savepoint);
             }
+            final int[] indexes = new ValueIndexSorter(values, top).sort();
+
+            double total = 0;
             if (percent) {
-                toPercent(list, mapMemberToValue);
+                for (Object o : values) {
+                    if (o instanceof Number) {
+                        total += ((Number) o).doubleValue();
+                    }
+                }
             }
             double runningTotal = 0;
-            int memberCount = list.size();
+            int memberCount = values.length;
             int nullCount = 0;
+            int resultCount = memberCount;
             for (int i = 0; i < memberCount; i++) {
                 if (runningTotal >= target) {
-                    list = list.subList(0, i);
+                    resultCount = i;
                     break;
                 }
-                final List<Member> key = list.get(i);
-                final Object o = mapMemberToValue.get(key);
+                final Object o = values[indexes[i]];
                 if (o == Util.nullValue) {
                     nullCount++;
                 } else if (o instanceof Number) {
-                    runningTotal += ((Number) o).doubleValue();
+                    final double d = ((Number) o).doubleValue();
+                    runningTotal += percent ? d / total * (double) 100 : d;
                 } else if (o instanceof Exception) {
                     // ignore the error
                 } else {
@@ -166,11 +170,30 @@ class TopBottomPercentSumFunDef extends FunDefBase {
             // is null, then the first (or last) member of the set is returned
             // for percent operations.
             if (memberCount > 0 && percent && nullCount == memberCount) {
-                return top
-                    ? list.subList(0, 1)
-                    : list.subList(memberCount - 1, memberCount);
+                return sublist(
+                    list,
+                    indexes,
+                    top ? 0 : memberCount - 1,
+                    top ? 1 : memberCount);
+            }
+            return sublist(list, indexes, 0, resultCount);
+        }
+
+        /**
+         * Returns the tuples at a range of positions of a sorted index.
+         */
+        private TupleList sublist(
+            TupleList list,
+            int[] indexes,
+            int start,
+            int end)
+        {
+            final TupleList result =
+                TupleCollections.createList(list.getArity(), end - start);
+            for (int i = start; i < end; i++) {
+                result.add(list.get(indexes[i]));
             }
-            return list;
+            return result;
         }
 
         public boolean dependsOn(Hierarchy hierarchy) {
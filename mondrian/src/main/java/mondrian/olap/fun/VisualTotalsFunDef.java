@@ -172,22 +172,6 @@ public class VisualTotalsFunDef extends FunDefBase {
             }
             return i;
         }
-
-        private Exp makeExpr(final List childMemberList) {
-            Exp[] memberExprs = new Exp[childMemberList.size()];
-            for (int i = 0; i < childMemberList.size(); i++) {
-                final Member childMember = (Member) childMemberList.get(i);
-                memberExprs[i] = new MemberExpr(childMember);
-            }
-            return new UnresolvedFunCall(
-                "Aggregate",
-                new Exp[] {
-                    new UnresolvedFunCall(
-                        "{}",
-                        Syntax.Braces,
-                        memberExprs)
-                });
-        }
     }
 
     /**
@@ -203,6 +187,7 @@ public class VisualTotalsFunDef extends FunDefBase {
     public static class VisualTotalMember extends RolapMemberBase {
         private final Member member;
         private Exp exp;
+        private Exp cachedExp;
         private String caption;
 
         VisualTotalMember(
@@ -271,6 +256,31 @@ public class VisualTotalsFunDef extends FunDefBase {
 
         public void setExpression(Exp exp) {
             this.exp = exp;
+            this.cachedExp = null;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * <p>Evaluates the aggregate inside a <code>Cache</code> call, so
+         * that its value is computed once per cell context. A visual total
+         * nested inside others is otherwise re-aggregated for each visual
+         * total above it, which is O(depth &times; members) for deep
+         * hierarchies. {@link #getExpression()} still returns the plain
+         * aggregate, which is what native evaluation and drill-through
+         * look for.
+         */
+        @Override
+        protected Exp getEvaluationExpression() {
+            if (cachedExp == null) {
+                final Exp[] args = {exp};
+                cachedExp =
+                    new ResolvedFunCall(
+                        CacheFunDef.Resolver.resolve(args, null, null),
+                        args,
+                        exp.getType());
+            }
+            return cachedExp;
         }
 
         public void setExpression(
@@ -283,22 +293,6 @@ public class VisualTotalsFunDef extends FunDefBase {
             setExpression(validatedExp);
         }
 
-        private Exp makeExpr(final List childMemberList) {
-            Exp[] memberExprs = new Exp[childMemberList.size()];
-            for (int i = 0; i < childMemberList.size(); i++) {
-                final Member childMember = (Member) childMemberList.get(i);
-                memberExprs[i] = new MemberExpr(childMember);
-            }
-            return new UnresolvedFunCall(
-                "Aggregate",
-                new Exp[] {
-                    new UnresolvedFunCall(
-                        "{}",
-                        Syntax.Braces,
-                        memberExprs)
-                });
-        }
-
         public int getOrdinal() {
             return member.getOrdinal();
         }
@@ -329,6 +323,26 @@ public class VisualTotalsFunDef extends FunDefBase {
         }
     }
 
+    /**
+     * Creates the expression for a visual total: the aggregate of the
+     * members (and nested visual totals) that follow it in the list.
+     */
+    private static Exp makeExpr(final List childMemberList) {
+        Exp[] memberExprs = new Exp[childMemberList.size()];
+        for (int i = 0; i < childMemberList.size(); i++) {
+            final Member childMember = (Member) childMemberList.get(i);
+            memberExprs[i] = new MemberExpr(childMember);
+        }
+        return new UnresolvedFunCall(
+            "Aggregate",
+            new Exp[] {
+                new UnresolvedFunCall(
+                    "{}",
+                    Syntax.Braces,
+                    memberExprs)
+            });
+    }
+
     /**
      * Substitutes a name into a pattern.<p/>
      *
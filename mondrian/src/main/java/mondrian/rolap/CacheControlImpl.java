@@ -200,11 +200,28 @@ public class CacheControlImpl implements CacheControl {
         }
         final UnionCellRegion union = normalize((CellRegionImpl) region);
         for (CellRegionImpl cellRegion : union.regions) {
+            flushNativeSetCache(cellRegion);
             // Figure out the bits.
             flushNonUnion(cellRegion);
         }
     }
 
+    /**
+     * Removes from the native set caches the tuple lists that were computed
+     * from facts in a region.
+     *
+     * @param region Cell region that is not a union
+     */
+    private void flushNativeSetCache(CellRegion region) {
+        final Set<RolapSchema> schemas = new HashSet<RolapSchema>();
+        for (RolapStar star : getStarList(region)) {
+            if (schemas.add(star.getSchema())) {
+                star.getSchema().getNativeRegistry()
+                    .flushNativeSetCache(region);
+            }
+        }
+    }
+
     /**
      * Flushes a list of cell regions.
      *
@@ -467,6 +484,42 @@ public class CacheControlImpl implements CacheControl {
         return list;
     }
 
+    /**
+     * Returns the members of the non-measures dimensions that are mentioned
+     * in a region specification, by the unique name of their hierarchy.
+     * Hierarchies that are constrained by a range of members are not
+     * included.
+     *
+     * @param region Cell region
+     * @return Map from hierarchy unique name to members
+     */
+    static Map<String, List<Member>> findMembersByHierarchy(
+        CellRegion region)
+    {
+        final Map<String, List<Member>> map =
+            new HashMap<String, List<Member>>();
+        final CellRegionVisitor visitor =
+            new CellRegionVisitorImpl() {
+                public void visit(MemberCellRegion region) {
+                    if (region.dimension.isMeasures()) {
+                        return;
+                    }
+                    for (Member member : region.memberList) {
+                        final String name =
+                            member.getHierarchy().getUniqueName();
+                        List<Member> list = map.get(name);
+                        if (list == null) {
+                            list = new ArrayList<Member>();
+                            map.put(name, list);
+                        }
+                        list.add(member);
+                    }
+                }
+            };
+        ((CellRegionImpl) region).accept(visitor);
+        return map;
+    }
+
     public static SegmentColumn[] findAxisValues(CellRegion region) {
         final List<SegmentColumn> list =
             new ArrayList<SegmentColumn>();
@@ -0,0 +1,363 @@
+/*
+// This software is subject to the terms of the Eclipse Public License v1.0
+// Agreement, available at the following URL:
+// http://www.eclipse.org/legal/epl-v10.html.
+// You must accept the terms of that agreement to use this software.
+//
+// Copyright (C) 2015-2015 Pentaho and others
+// All Rights Reserved.
+*/
+package mondrian.rolap;
+
+import mondrian.olap.MondrianProperties;
+import mondrian.rolap.cache.SmartCache;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Cache of the members of a hierarchy by key, that holds the members of each
+ * level in arrays rather than in a map of soft references.
+ *
+ * <p>Each level has a segment in which a member is identified by an ordinal:
+ * the member and its key are stored at that index of two arrays, and an
+ * open-addressed table of ints maps the hash of a key to its ordinal. A
+ * member costs a few array slots, instead of an entry object and two soft
+ * references in a {@link mondrian.rolap.cache.SoftSmartCache}, and the
+ * garbage collector has no references to process.
+ *
+ * <p>Reads take no lock. Writes are serialized; a new entry is written to
+ * the arrays before its ordinal is published to the table, and a segment
+ * that is full is copied, compacted, and replaced in one step.
+ *
+ * <p>Since nothing is softly held, the cache has an explicit budget,
+ * {@link MondrianProperties#MemberCacheSize}. When a write would exceed it,
+ * the largest segment of another level is discarded, or, failing that, the
+ * segment being written to. Discarding members is safe; a member that is
+ * read again is a new object with the same key, as when a soft reference is
+ * cleared.
+ *
+ * @see MondrianProperties#CompactMemberCache
+ */
+class CompactMemberCache implements SmartCache<Object, RolapMember> {
+    /** Estimated size of a reference, in bytes. */
+    private static final int REFERENCE_BYTES = 8;
+
+    /**
+     * Estimated size of a member in a segment: the member object itself, its
+     * key, its slots in the arrays, and two slots in the table.
+     */
+    private static final int MEMBER_BYTES = 96 + 32 + 2 * REFERENCE_BYTES + 12;
+
+    /** Initial number of ordinals in a segment. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Table slot that has never held an ordinal. */
+    private static final int EMPTY = 0;
+
+    /** Table slot whose entry has been removed. */
+    private static final int REMOVED = -1;
+
+    /** Segment key for members whose key does not identify a level. */
+    private static final Object ROOT = new Object();
+
+    private final ConcurrentHashMap<Object, Segment> segments =
+        new ConcurrentHashMap<Object, Segment>();
+
+    /** Guards writes; reads are not locked. */
+    private final Object writeLock = new Object();
+
+    /** Number of ordinals allocated in all segments. Guarded by writeLock. */
+    private long ordinalCount;
+
+    public RolapMember get(Object key) {
+        final Segment segment = segments.get(segmentKey(key));
+        return segment == null ? null : segment.get(key);
+    }
+
+    public RolapMember put(Object key, RolapMember value) {
+        if (value == null) {
+            return remove(key);
+        }
+        final Object segmentKey = segmentKey(key);
+        synchronized (writeLock) {
+            Segment segment = segments.get(segmentKey);
+            if (segment == null) {
+                segment = new Segment(INITIAL_CAPACITY);
+                segments.put(segmentKey, segment);
+                ordinalCount += segment.capacity();
+            } else if (segment.isFull()) {
+                final Segment newSegment = segment.copy();
+                segments.put(segmentKey, newSegment);
+                ordinalCount += newSegment.capacity() - segment.capacity();
+                segment = newSegment;
+            }
+            final RolapMember previous = segment.put(key, value);
+            trim(segmentKey);
+            return previous;
+        }
+    }
+
+    public RolapMember remove(Object key) {
+        final Object segmentKey = segmentKey(key);
+        synchronized (writeLock) {
+            final Segment segment = segments.get(segmentKey);
+            return segment == null ? null : segment.remove(key);
+        }
+    }
+
+    public void clear() {
+        synchronized (writeLock) {
+            segments.clear();
+            ordinalCount = 0;
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments.values()) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the estimated size of the cache, in bytes.
+     */
+    long getByteCount() {
+        synchronized (writeLock) {
+            return ordinalCount * MEMBER_BYTES;
+        }
+    }
+
+    public void execute(SmartCacheTask<Object, RolapMember> task) {
+        synchronized (writeLock) {
+            final List<Map.Entry<Object, RolapMember>> entries =
+                new ArrayList<Map.Entry<Object, RolapMember>>();
+            for (Segment segment : segments.values()) {
+                segment.addEntries(entries);
+            }
+            final Iterator<Map.Entry<Object, RolapMember>> iterator =
+                entries.iterator();
+            task.execute(
+                new Iterator<Map.Entry<Object, RolapMember>>() {
+                    Map.Entry<Object, RolapMember> current;
+
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    public Map.Entry<Object, RolapMember> next() {
+                        return current = iterator.next();
+                    }
+
+                    public void remove() {
+                        iterator.remove();
+                        CompactMemberCache.this.remove(current.getKey());
+                    }
+                });
+        }
+    }
+
+    /**
+     * Discards segments, largest first, until the cache is within its budget.
+     * The segment being written to is discarded only if it is the last.
+     */
+    private void trim(Object currentSegmentKey) {
+        final long maxBytes =
+            MondrianProperties.instance().MemberCacheSize.get()
+            * 1024L * 1024L;
+        while (ordinalCount * MEMBER_BYTES > maxBytes && !segments.isEmpty()) {
+            Object largestKey = currentSegmentKey;
+            int largestCapacity = -1;
+            for (Map.Entry<Object, Segment> entry : segments.entrySet()) {
+                if (entry.getKey() != currentSegmentKey
+                    && entry.getValue().capacity() > largestCapacity)
+                {
+                    largestKey = entry.getKey();
+                    largestCapacity = entry.getValue().capacity();
+                }
+            }
+            final Segment segment = segments.remove(largestKey);
+            if (segment != null) {
+                ordinalCount -= segment.capacity();
+            }
+        }
+    }
+
+    private static Object segmentKey(Object key) {
+        if (key instanceof MemberKey) {
+            final RolapLevel level = ((MemberKey) key).getLevel();
+            if (level != null) {
+                return level;
+            }
+        }
+        return ROOT;
+    }
+
+    /**
+     * Members of one level, indexed by ordinal.
+     *
+     * <p>Slots of {@link #table} hold {@link #EMPTY}, {@link #REMOVED}, or 1
+     * plus the ordinal of an entry. The table has twice as many slots as
+     * there are ordinals, so a probe always reaches an empty slot.
+     */
+    private static class Segment {
+        private final Object[] keys;
+        private final RolapMember[] members;
+        private final int[] hashes;
+        private final AtomicIntegerArray table;
+        private final int mask;
+
+        /** Number of ordinals allocated. Written under the cache's lock. */
+        private volatile int count;
+
+        /** Number of live entries. Written under the cache's lock. */
+        private volatile int size;
+
+        Segment(int capacity) {
+            assert Integer.bitCount(capacity) == 1 : capacity;
+            keys = new Object[capacity];
+            members = new RolapMember[capacity];
+            hashes = new int[capacity];
+            table = new AtomicIntegerArray(capacity * 2);
+            mask = capacity * 2 - 1;
+        }
+
+        int capacity() {
+            return members.length;
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isFull() {
+            return count == members.length;
+        }
+
+        RolapMember get(Object key) {
+            final int hash = hash(key);
+            for (int i = hash & mask;; i = (i + 1) & mask) {
+                final int slot = table.get(i);
+                if (slot == EMPTY) {
+                    return null;
+                }
+                if (slot != REMOVED) {
+                    final int ordinal = slot - 1;
+                    if (hashes[ordinal] == hash
+                        && key.equals(keys[ordinal]))
+                    {
+                        return members[ordinal];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds or replaces an entry. The segment must not be full. A
+         * replaced entry gets a new ordinal, so that a concurrent reader
+         * sees either the old member or the new one.
+         */
+        RolapMember put(Object key, RolapMember value) {
+            final int hash = hash(key);
+            int free = -1;
+            int previousOrdinal = -1;
+            int i = hash & mask;
+            for (;; i = (i + 1) & mask) {
+                final int slot = table.get(i);
+                if (slot == EMPTY) {
+                    if (free >= 0) {
+                        i = free;
+                    }
+                    break;
+                }
+                if (slot == REMOVED) {
+                    if (free < 0) {
+                        free = i;
+                    }
+                } else if (hashes[slot - 1] == hash
+                    && key.equals(keys[slot - 1]))
+                {
+                    previousOrdinal = slot - 1;
+                    break;
+                }
+            }
+            final int ordinal = count;
+            keys[ordinal] = key;
+            members[ordinal] = value;
+            hashes[ordinal] = hash;
+            count = ordinal + 1;
+            table.set(i, ordinal + 1);
+            if (previousOrdinal < 0) {
+                ++size;
+                return null;
+            }
+            final RolapMember previous = members[previousOrdinal];
+            keys[previousOrdinal] = null;
+            members[previousOrdinal] = null;
+            return previous;
+        }
+
+        RolapMember remove(Object key) {
+            final int hash = hash(key);
+            for (int i = hash & mask;; i = (i + 1) & mask) {
+                final int slot = table.get(i);
+                if (slot == EMPTY) {
+                    return null;
+                }
+                if (slot != REMOVED) {
+                    final int ordinal = slot - 1;
+                    if (hashes[ordinal] == hash
+                        && key.equals(keys[ordinal]))
+                    {
+                        final RolapMember member = members[ordinal];
+                        table.set(i, REMOVED);
+                        keys[ordinal] = null;
+                        members[ordinal] = null;
+                        --size;
+                        return member;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns a copy of this segment without the removed entries, with
+         * room for at least as many again. The capacity is a power of two,
+         * so that the probe mask reaches every slot of the table.
+         */
+        Segment copy() {
+            final Segment segment =
+                new Segment(
+                    Math.max(
+                        INITIAL_CAPACITY,
+                        Integer.highestOneBit(2 * size - 1) << 1));
+            for (int ordinal = 0; ordinal < count; ordinal++) {
+                if (members[ordinal] != null) {
+                    segment.put(keys[ordinal], members[ordinal]);
+                }
+            }
+            return segment;
+        }
+
+        void addEntries(List<Map.Entry<Object, RolapMember>> entries) {
+            for (int ordinal = 0; ordinal < count; ordinal++) {
+                if (members[ordinal] != null) {
+                    entries.add(
+                        new AbstractMap.SimpleImmutableEntry
+                            <Object, RolapMember>(
+                                keys[ordinal], members[ordinal]));
+                }
+            }
+        }
+
+        private static int hash(Object key) {
+            final int h = key.hashCode();
+            return h ^ (h >>> 16);
+        }
+    }
+}
+
+// End CompactMemberCache.java
@@ -30,7 +30,8 @@ import javax.sql.DataSource;
  * Reads the members of a single level (level.members) or of multiple levels
  * (crossjoin).
  *
- * @deprecated Deprecated for Mondrian 4.0.
+ * @deprecated Deprecated for Mondrian 4.0. To read tuples as they are
+ * consumed, use {@link SqlTupleReader#iterateTuples(DataSource)}.
  * @author luis f. canals
  * @since Dec, 2007
  */
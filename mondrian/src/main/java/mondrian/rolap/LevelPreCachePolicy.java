@@ -0,0 +1,201 @@
+/*
+// This software is subject to the terms of the Eclipse Public License v1.0
+// Agreement, available at the following URL:
+// http://www.eclipse.org/legal/epl-v10.html.
+// You must accept the terms of that agreement to use this software.
+//
+// Copyright (C) 2015-2015 Pentaho and others
+// All Rights Reserved.
+*/
+package mondrian.rolap;
+
+import mondrian.olap.*;
+import mondrian.server.Locus;
+
+import org.apache.log4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides whether to read all members of a level that is above
+ * {@link MondrianProperties#LevelPreCacheThreshold}, based on how often the
+ * level is accessed.
+ *
+ * <p>{@link SqlConstraintFactory} consults the policy when a level is too
+ * large for the threshold. The policy counts accesses to each level. Once a
+ * level has been accessed {@link MondrianProperties#LevelPreCacheHotAccessCount}
+ * times it is hot: it is precached as if it were below the threshold, and
+ * its members are loaded in the background. A level whose cardinality, from
+ * the schema's statistics, is above
+ * {@link MondrianProperties#LevelPreCacheMaxHotCardinality} is never
+ * precached, however often it is accessed.
+ *
+ * <p>There is one policy per {@link RolapSchema}. The names of its hot levels
+ * outlive the schema, so that when a schema of the same name is loaded again,
+ * for instance after a flush, those levels are loaded in the background
+ * straight away.
+ *
+ * <p>Decisions are counted by the current {@link mondrian.server.Execution}
+ * and are visible through the monitor, in
+ * {@link mondrian.server.monitor.ServerInfo}.
+ */
+class LevelPreCachePolicy {
+    private static final Logger LOGGER =
+        Logger.getLogger(LevelPreCachePolicy.class);
+
+    /**
+     * Unique names of the hot levels of each schema, by schema name.
+     */
+    private static final ConcurrentMap<String, Set<String>> HOT_LEVELS =
+        new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * Executor that loads hot levels. One thread is enough: loads are rare,
+     * and should not compete with queries for connections.
+     */
+    private static final ExecutorService EXECUTOR =
+        Util.getExecutorService(
+            1, 1, 1,
+            "mondrian.rolap.LevelPreCachePolicy$executor",
+            null);
+
+    private final RolapSchema schema;
+
+    /** Number of accesses to each level, by unique name. */
+    private final ConcurrentMap<String, AtomicInteger> accessCounts =
+        new ConcurrentHashMap<String, AtomicInteger>();
+
+    /** Unique names of the levels that have been loaded or queued. */
+    private final Set<String> loadedLevels =
+        Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    LevelPreCachePolicy(RolapSchema schema) {
+        this.schema = schema;
+    }
+
+    /**
+     * Records an access to a level that is above the pre-cache threshold,
+     * and returns whether it should be precached nevertheless.
+     *
+     * @param level Level
+     * @param cardinality Cardinality of the level
+     * @return Whether to read all members of the level
+     */
+    boolean preCache(RolapLevel level, long cardinality) {
+        final MondrianProperties properties = MondrianProperties.instance();
+        final int hotAccessCount = properties.LevelPreCacheHotAccessCount.get();
+        if (hotAccessCount <= 0) {
+            return false;
+        }
+        if (cardinality > properties.LevelPreCacheMaxHotCardinality.get()) {
+            if (!Locus.isEmpty()) {
+                Locus.peek().execution.incrementLevelPreCacheRefusedCount();
+            }
+            return false;
+        }
+        final String name = level.getUniqueName();
+        AtomicInteger count = accessCounts.get(name);
+        if (count == null) {
+            final AtomicInteger newCount = new AtomicInteger();
+            count = accessCounts.putIfAbsent(name, newCount);
+            if (count == null) {
+                count = newCount;
+            }
+        }
+        if (count.incrementAndGet() < hotAccessCount) {
+            return false;
+        }
+        hotLevels(schema.getName()).add(name);
+        load(level);
+        if (!Locus.isEmpty()) {
+            Locus.peek().execution.incrementLevelPreCacheHotCount();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of accesses recorded for a level.
+     */
+    int getAccessCount(RolapLevel level) {
+        final AtomicInteger count = accessCounts.get(level.getUniqueName());
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Loads, in the background, the levels that were hot in a previous
+     * instance of this schema. Called once the schema is loaded.
+     */
+    void loadHotLevels() {
+        if (MondrianProperties.instance().LevelPreCacheHotAccessCount.get()
+            <= 0)
+        {
+            return;
+        }
+        final Set<String> names = HOT_LEVELS.get(schema.getName());
+        if (names == null || names.isEmpty()) {
+            return;
+        }
+        for (RolapCube cube : schema.getCubeList()) {
+            for (Hierarchy hierarchy : cube.getHierarchies()) {
+                for (Level level : hierarchy.getLevels()) {
+                    if (names.contains(level.getUniqueName())) {
+                        load((RolapLevel) level);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues a background load of all members of a level, unless one has
+     * already been queued.
+     *
+     * @return Future of the load, or null if already queued
+     */
+    Future<?> load(final RolapLevel level) {
+        if (!loadedLevels.add(level.getUniqueName())) {
+            return null;
+        }
+        return EXECUTOR.submit(
+            new Runnable() {
+                public void run() {
+                    try {
+                        Locus.execute(
+                            schema.getInternalConnection(),
+                            "LevelPreCachePolicy.load",
+                            new Locus.Action<Object>() {
+                                public Object execute() {
+                                    return schema.getSchemaReader()
+                                        .getLevelMembers(level, false);
+                                }
+                            });
+                    } catch (Throwable e) {
+                        // The load is only an optimization; a query will
+                        // read the members when it needs them.
+                        loadedLevels.remove(level.getUniqueName());
+                        LOGGER.warn(
+                            "Failed to precache level "
+                            + level.getUniqueName(), e);
+                    }
+                }
+            });
+    }
+
+    private static Set<String> hotLevels(String schemaName) {
+        Set<String> names = HOT_LEVELS.get(schemaName);
+        if (names == null) {
+            final Set<String> newNames =
+                Collections.newSetFromMap(
+                    new ConcurrentHashMap<String, Boolean>());
+            names = HOT_LEVELS.putIfAbsent(schemaName, newNames);
+            if (names == null) {
+                names = newNames;
+            }
+        }
+        return names;
+    }
+}
+
+// End LevelPreCachePolicy.java
@@ -12,6 +12,7 @@
 package mondrian.rolap;
 
 import mondrian.olap.Level;
+import mondrian.olap.MondrianProperties;
 import mondrian.olap.Util;
 import mondrian.rolap.cache.*;
 import mondrian.rolap.sql.MemberChildrenConstraint;
@@ -65,8 +66,11 @@ public class MemberCacheHelper implements MemberCache {
         this.rolapHierarchy = rolapHierarchy;
         this.mapLevelToMembers =
             new SmartMemberListCache<RolapLevel, List<RolapMember>>();
-        this.mapKeyToMember =
-            new SoftSmartCache<Object, RolapMember>();
+        if (MondrianProperties.instance().CompactMemberCache.get()) {
+            this.mapKeyToMember = new CompactMemberCache();
+        } else {
+            this.mapKeyToMember = ConcurrentSmartCache.createSoftCache();
+        }
         this.mapMemberToChildren =
             new SmartMemberListCache<RolapMember, List<RolapMember>>();
         this.mapParentToNamedChildren =
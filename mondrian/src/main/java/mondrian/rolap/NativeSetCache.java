@@ -0,0 +1,252 @@
+/*
+// This software is subject to the terms of the Eclipse Public License v1.0
+// Agreement, available at the following URL:
+// http://www.eclipse.org/legal/epl-v10.html.
+// You must accept the terms of that agreement to use this software.
+//
+// Copyright (C) 2015-2015 Pentaho and others
+// All Rights Reserved.
+*/
+package mondrian.rolap;
+
+import mondrian.calc.TupleList;
+import mondrian.olap.*;
+import mondrian.olap.CacheControl.CellRegion;
+
+import java.util.*;
+
+/**
+ * Cache of the results of native set evaluation, shared by the
+ * {@link RolapNativeSet}s of a schema.
+ *
+ * <p>Entries are held strongly, and the least recently used are evicted when
+ * the estimated size of the cache exceeds
+ * {@link MondrianProperties#NativeSetCacheSize}. The estimate counts the
+ * tuple lists themselves, not the members they reference, which belong to
+ * the member cache.
+ *
+ * <p>Each entry remembers the stars whose fact tables its SQL joined, and
+ * the members that constrained it in the evaluation context, so that
+ * {@link #flush(CellRegion)} can discard just the entries that the facts of
+ * a flushed region may have contributed to.
+ */
+class NativeSetCache {
+    /** Estimated size of a reference, in bytes. */
+    private static final int REFERENCE_BYTES = 8;
+
+    /** Estimated fixed size of an entry, its key and its value, in bytes. */
+    private static final int ENTRY_BYTES = 128;
+
+    /** Estimated size of a tuple in a tuple list, less its members. */
+    private static final int TUPLE_BYTES = 32;
+
+    private final LinkedHashMap<Object, Entry> map =
+        new LinkedHashMap<Object, Entry>(16, 0.75f, true);
+    private long byteCount;
+    private int hitCount;
+    private int missCount;
+    private int evictionCount;
+
+    /**
+     * Looks up a tuple list or a count, and records a hit or a miss.
+     *
+     * @param key Key
+     * @return Cached value, or null
+     */
+    synchronized Object get(Object key) {
+        final Entry entry = map.get(key);
+        if (entry == null) {
+            ++missCount;
+            return null;
+        }
+        ++hitCount;
+        return entry.value;
+    }
+
+    /**
+     * Caches a tuple list or a count, evicting the least recently used
+     * entries if the cache becomes too large. A value larger than the whole
+     * cache is not cached.
+     *
+     * @param key Key
+     * @param value Tuple list or count
+     * @param evaluator Evaluation context of the constraint that produced the
+     *   value, or null if the value does not depend on facts
+     */
+    synchronized void put(Object key, Object value, RolapEvaluator evaluator) {
+        final long maxBytes =
+            MondrianProperties.instance().NativeSetCacheSize.get()
+            * 1024L * 1024L;
+        final long bytes = estimateBytes(value);
+        remove(key);
+        if (bytes > maxBytes) {
+            return;
+        }
+        final Entry entry = new Entry(value, bytes, evaluator);
+        map.put(key, entry);
+        byteCount += bytes;
+        final Iterator<Entry> iterator = map.values().iterator();
+        while (byteCount > maxBytes && iterator.hasNext()) {
+            final Entry eldest = iterator.next();
+            iterator.remove();
+            byteCount -= eldest.bytes;
+            ++evictionCount;
+        }
+    }
+
+    private void remove(Object key) {
+        final Entry entry = map.remove(key);
+        if (entry != null) {
+            byteCount -= entry.bytes;
+        }
+    }
+
+    /**
+     * Removes the entries that the facts in a cell region may have
+     * contributed to.
+     *
+     * @param region Cell region, a crossjoin of member regions that includes
+     *   measures
+     */
+    synchronized void flush(CellRegion region) {
+        final List<RolapStar> starList = CacheControlImpl.getStarList(region);
+        final Map<String, List<Member>> membersByHierarchy =
+            CacheControlImpl.findMembersByHierarchy(region);
+        for (Iterator<Entry> iterator = map.values().iterator();
+            iterator.hasNext();)
+        {
+            final Entry entry = iterator.next();
+            if (entry.intersects(starList, membersByHierarchy)) {
+                iterator.remove();
+                byteCount -= entry.bytes;
+            }
+        }
+    }
+
+    synchronized void clear() {
+        map.clear();
+        byteCount = 0;
+    }
+
+    synchronized int size() {
+        return map.size();
+    }
+
+    /**
+     * Returns the estimated size of the cached values, in bytes.
+     */
+    synchronized long getByteCount() {
+        return byteCount;
+    }
+
+    synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    synchronized int getMissCount() {
+        return missCount;
+    }
+
+    synchronized int getEvictionCount() {
+        return evictionCount;
+    }
+
+    private static long estimateBytes(Object value) {
+        if (value instanceof TupleList) {
+            final TupleList tupleList = (TupleList) value;
+            return ENTRY_BYTES
+                + (long) tupleList.size()
+                * (TUPLE_BYTES + tupleList.getArity() * REFERENCE_BYTES);
+        }
+        return ENTRY_BYTES;
+    }
+
+    /**
+     * Cached value, and what it depends on.
+     */
+    private static class Entry {
+        private final Object value;
+        private final long bytes;
+
+        /**
+         * Stars whose fact tables the value depends on; null if they are not
+         * known, so that any star is assumed.
+         */
+        private final Set<RolapStar> stars;
+
+        /**
+         * The non-all stored members of the evaluation context, by unique
+         * name of hierarchy. Only facts of their descendants are read.
+         */
+        private final Map<String, Member> contextMembers;
+
+        Entry(Object value, long bytes, RolapEvaluator evaluator) {
+            this.value = value;
+            this.bytes = bytes;
+            if (evaluator == null) {
+                this.stars = Collections.emptySet();
+                this.contextMembers = Collections.emptyMap();
+                return;
+            }
+            this.stars = findStars(evaluator.getCube());
+            this.contextMembers = new HashMap<String, Member>();
+            for (Member member : evaluator.getNonAllMembers()) {
+                if (!member.isMeasure() && !member.isCalculated()) {
+                    contextMembers.put(
+                        member.getHierarchy().getUniqueName(), member);
+                }
+            }
+        }
+
+        private static Set<RolapStar> findStars(RolapCube cube) {
+            if (!cube.isVirtual()) {
+                return Collections.singleton(cube.getStar());
+            }
+            final Set<RolapStar> stars = new HashSet<RolapStar>();
+            for (Member measure : cube.getMeasuresMembers()) {
+                if (measure instanceof RolapStoredMeasure) {
+                    stars.add(
+                        ((RolapStoredMeasure) measure).getCube().getStar());
+                }
+            }
+            return stars.isEmpty() ? null : stars;
+        }
+
+        /**
+         * Returns whether a region may contain facts that this entry read;
+         * that is, whether it is on one of the entry's stars and overlaps
+         * every context member.
+         */
+        boolean intersects(
+            List<RolapStar> starList,
+            Map<String, List<Member>> membersByHierarchy)
+        {
+            if (stars != null && Collections.disjoint(stars, starList)) {
+                return false;
+            }
+            for (Map.Entry<String, Member> e : contextMembers.entrySet()) {
+                final List<Member> regionMembers =
+                    membersByHierarchy.get(e.getKey());
+                if (regionMembers != null
+                    && !overlaps(e.getValue(), regionMembers))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean overlaps(Member member, List<Member> members) {
+            for (Member regionMember : members) {
+                if (member.isChildOrEqualTo(regionMember)
+                    || regionMember.isChildOrEqualTo(member))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
+
+// End NativeSetCache.java
@@ -540,6 +540,7 @@ public class RolapCell implements Cell {
                     } finally {
                         evaluator.restore(savepoint);
                     }
+                    result.updateCellInfo(pos, ci);
                 }
                 return ci.formatString;
             case Property.FORMATTED_VALUE_ORDINAL:
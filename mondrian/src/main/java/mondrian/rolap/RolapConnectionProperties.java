@@ -178,6 +178,22 @@ public enum RolapConnectionProperties {
      */
     JdbcConnectionUuid,
 
+    /**
+     * The "ResultStreamingChunkSize" property is an integer. If positive,
+     * the cells of a query result are not all computed when the query is
+     * executed; instead, they are computed as they are requested, for this
+     * many positions of the last axis (usually the rows axis) at a time, and
+     * only the cells of the current chunk are held in memory.
+     *
+     * <p>This allows very large results to be exported with bounded memory,
+     * provided that the client reads cells in cell ordinal order. Cells read
+     * out of order are correct, but may require chunks to be recomputed.
+     *
+     * <p>Defaults to 0, meaning that all cells are computed when the query is
+     * executed.
+     */
+    ResultStreamingChunkSize,
+
     /**
      * The "PinSchemaTimeout" defines how much time must Mondrian
      * keep a hard reference to schema objects within the pool of schemas.
@@ -1121,6 +1121,42 @@ public class RolapEvaluator implements Evaluator {
         root.clearResultCache(clearValidResult);
     }
 
+    /**
+     * Evaluates a set expression, loading the cells it reads before
+     * returning.
+     *
+     * <p>While axes are being evaluated, an expression that reads many
+     * cells normally sees them as "not ready" during the first pass; it
+     * returns a provisional result, and the query is re-evaluated once the
+     * cells have been loaded in one batch. If the expression is nested
+     * (say a {@code Filter} inside an {@code Order} or another
+     * {@code Filter}), each level may need its own pass.
+     *
+     * <p>This method evaluates {@code calc} once to collect its cell
+     * requests, loads them as a single batch, and evaluates it again, so
+     * that its result is final immediately. It does so only if there are
+     * no other pending cell requests, and only for an expression evaluated
+     * once in the context of its axis; otherwise it simply evaluates
+     * {@code calc}, and the cells are loaded by the enclosing pass. See
+     * {@link RolapResult#canLoadCells}.
+     *
+     * @param exp Expression
+     * @param calc Compiled expression
+     * @return Result of evaluating the expression in this context
+     */
+    public final Object evaluateLoadingCells(Exp exp, Calc calc) {
+        if (evalAxes
+            && root instanceof RolapResult.RolapResultEvaluatorRoot)
+        {
+            final RolapResult result =
+                ((RolapResult.RolapResultEvaluatorRoot) root).result;
+            if (result.canLoadCells(this, exp)) {
+                return result.evaluateExp(calc, this, this);
+            }
+        }
+        return calc.evaluate(this);
+    }
+
     public final boolean isNonEmpty() {
         return nonEmpty;
     }
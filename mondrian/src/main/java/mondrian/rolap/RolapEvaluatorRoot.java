@@ -31,6 +31,14 @@ class RolapEvaluatorRoot {
     final Map<Object, Object> expResultCache = new HashMap<Object, Object>();
     final Map<Object, Object> tmpExpResultCache =
         new HashMap<Object, Object>();
+
+    /**
+     * Number of times that a result has been served from
+     * {@link #tmpExpResultCache}. A caller that sees this count change while
+     * evaluating an expression knows that the value it computed depends on
+     * a result that was itself computed from missing cells.
+     */
+    int tmpExpResultHitCount;
     final RolapCube cube;
     final RolapConnection connection;
     final SchemaReader schemaReader;
@@ -276,6 +284,9 @@ class RolapEvaluatorRoot {
         Object result = expResultCache.get(key);
         if (result == null) {
             result = tmpExpResultCache.get(key);
+            if (result != null) {
+                ++tmpExpResultHitCount;
+            }
         }
         return result;
     }
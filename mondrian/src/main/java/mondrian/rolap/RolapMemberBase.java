@@ -993,6 +993,193 @@ public class RolapMemberBase
         }
     }
 
+    /**
+     * {@link RolapMemberBase.PropertyValueMapFactory} that stores the
+     * property values of the members of a level in columns.
+     *
+     * <p>The property names of each level are held once, in a list shared by
+     * its members, and each member holds just an array of values, one per
+     * column. This saves a map entry per property per member, which adds up
+     * for the leaf levels of large hierarchies. Each column also pools its
+     * values until it has seen {@link #MAX_POOLED_VALUES} distinct ones, so
+     * that members share, rather than each hold, the value objects of
+     * low-cardinality properties such as gender or marital status.
+     *
+     * <p>To use it, set
+     * {@link mondrian.olap.MondrianProperties#PropertyValueMapFactoryClass}
+     * to <code>mondrian.rolap.RolapMemberBase$ColumnarPropertyValueMapFactory
+     * </code>.
+     */
+    public static final class ColumnarPropertyValueMapFactory
+        implements PropertyValueMapFactory
+    {
+        /**
+         * Number of distinct values that a column pools. Beyond it, values
+         * are assumed to be unique to their members.
+         */
+        static final int MAX_POOLED_VALUES = 1000;
+
+        private final Map<Level, PropertyColumns> columnsByLevel =
+            new WeakHashMap<Level, PropertyColumns>();
+
+        public Map<String, Object> create(Member member) {
+            assert member != null;
+            if (member instanceof RolapMeasure) {
+                return new HashMap<String, Object>();
+            }
+            PropertyColumns columns;
+            synchronized (columnsByLevel) {
+                columns = columnsByLevel.get(member.getLevel());
+                if (columns == null) {
+                    columns = new PropertyColumns();
+                    columnsByLevel.put(member.getLevel(), columns);
+                }
+            }
+            return new PropertyRow(columns);
+        }
+    }
+
+    /**
+     * Property names of a level, and the values that its members share.
+     */
+    private static class PropertyColumns {
+        private volatile String[] names = new String[0];
+        private final List<Map<Object, Object>> pools =
+            new ArrayList<Map<Object, Object>>();
+
+        int indexOf(Object name) {
+            final String[] names = this.names;
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        synchronized int add(String name) {
+            int i = indexOf(name);
+            if (i < 0) {
+                i = names.length;
+                final String[] newNames = new String[i + 1];
+                System.arraycopy(names, 0, newNames, 0, i);
+                newNames[i] = name;
+                pools.add(new HashMap<Object, Object>());
+                names = newNames;
+            }
+            return i;
+        }
+
+        String getName(int i) {
+            return names[i];
+        }
+
+        /**
+         * Returns a pooled value equal to the given one, pooling it if the
+         * column has room.
+         */
+        synchronized Object pool(int i, Object value) {
+            final Map<Object, Object> pool = pools.get(i);
+            if (value == null || pool == null) {
+                return value;
+            }
+            final Object pooled = pool.get(value);
+            if (pooled != null) {
+                return pooled;
+            }
+            if (pool.size()
+                < ColumnarPropertyValueMapFactory.MAX_POOLED_VALUES)
+            {
+                pool.put(value, value);
+            } else {
+                // Too many distinct values to be worth pooling.
+                pools.set(i, null);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Property values of a member, as a map over the columns of its level.
+     */
+    private static class PropertyRow extends AbstractMap<String, Object> {
+        /** Marks a column that has no value for this member. */
+        private static final Object NO_VALUE = new Object();
+
+        private final PropertyColumns columns;
+        private Object[] values = new Object[0];
+
+        PropertyRow(PropertyColumns columns) {
+            this.columns = columns;
+        }
+
+        public Object get(Object name) {
+            final int i = columns.indexOf(name);
+            if (i < 0 || i >= values.length || values[i] == NO_VALUE) {
+                return null;
+            }
+            return values[i];
+        }
+
+        public boolean containsKey(Object name) {
+            final int i = columns.indexOf(name);
+            return i >= 0 && i < values.length && values[i] != NO_VALUE;
+        }
+
+        public Object put(String name, Object value) {
+            final int i = columns.add(name);
+            if (i >= values.length) {
+                final Object[] newValues = new Object[i + 1];
+                System.arraycopy(values, 0, newValues, 0, values.length);
+                Arrays.fill(newValues, values.length, i, NO_VALUE);
+                values = newValues;
+            } else if (values[i] != NO_VALUE) {
+                final Object previous = values[i];
+                values[i] = columns.pool(i, value);
+                return previous;
+            }
+            values[i] = columns.pool(i, value);
+            return null;
+        }
+
+        public Object remove(Object name) {
+            final int i = columns.indexOf(name);
+            if (i < 0 || i >= values.length || values[i] == NO_VALUE) {
+                return null;
+            }
+            final Object previous = values[i];
+            values[i] = NO_VALUE;
+            return previous;
+        }
+
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                public Iterator<Entry<String, Object>> iterator() {
+                    final List<Entry<String, Object>> entries =
+                        new ArrayList<Entry<String, Object>>();
+                    for (int i = 0; i < values.length; i++) {
+                        if (values[i] != NO_VALUE) {
+                            entries.add(
+                                new SimpleImmutableEntry<String, Object>(
+                                    columns.getName(i), values[i]));
+                        }
+                    }
+                    return entries.iterator();
+                }
+
+                public int size() {
+                    int size = 0;
+                    for (Object value : values) {
+                        if (value != NO_VALUE) {
+                            ++size;
+                        }
+                    }
+                    return size;
+                }
+            };
+        }
+    }
+
     /**
      * <p>Creates the PropertyValueMapFactory which is in turn used
      * to create property-value maps for member properties.</p>
@@ -1077,7 +1264,18 @@ public class RolapMemberBase
     }
 
     public Calc getCompiledExpression(RolapEvaluatorRoot root) {
-        return root.getCompiled(getExpression(), true, null);
+        return root.getCompiled(getEvaluationExpression(), true, null);
+    }
+
+    /**
+     * Returns the expression that is compiled to compute this member's
+     * value. By default, the same as {@link #getExpression()}; a subclass
+     * may wrap it, for instance to cache its results.
+     *
+     * @return Expression to evaluate
+     */
+    protected Exp getEvaluationExpression() {
+        return getExpression();
     }
 
     public int getHierarchyOrdinal() {
@@ -0,0 +1,268 @@
+/*
+// This software is subject to the terms of the Eclipse Public License v1.0
+// Agreement, available at the following URL:
+// http://www.eclipse.org/legal/epl-v10.html.
+// You must accept the terms of that agreement to use this software.
+//
+// Copyright (C) 2005-2015 Pentaho and others
+// All Rights Reserved.
+*/
+package mondrian.rolap;
+
+import mondrian.calc.ResultStyle;
+import mondrian.mdx.MemberExpr;
+import mondrian.mdx.ResolvedFunCall;
+import mondrian.olap.*;
+import mondrian.rolap.sql.*;
+
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Computes the number of non-empty tuples in a set in SQL, as a single
+ * <code>SELECT COUNT(*)</code> over the query that would read the tuples,
+ * instead of evaluating every tuple of the set.
+ *
+ * <p>Handles <code>Count(&lt;set&gt;, EXCLUDEEMPTY)</code>,
+ * <code>Count(NonEmpty(&lt;set&gt;[, {&lt;measure&gt;}]))</code> and
+ * <code>Count(Filter(&lt;set&gt;, NOT IsEmpty(&lt;measure&gt;)))</code>,
+ * optionally with <code>Distinct</code> around the set, where the set is one
+ * that native crossjoin can evaluate and emptiness is that of a stored
+ * measure.
+ */
+public class RolapNativeCount extends RolapNativeSet {
+
+    public RolapNativeCount() {
+        super.setEnabled(
+            MondrianProperties.instance().EnableNativeCount.get());
+    }
+
+    static class CountConstraint extends SetConstraint {
+        CountConstraint(CrossJoinArg[] args, RolapEvaluator evaluator) {
+            super(args, evaluator, true);
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * <p>Only the tuples that have facts are counted.
+         */
+        protected boolean isJoinRequired() {
+            return true;
+        }
+    }
+
+    protected boolean restrictMemberTypes() {
+        return true;
+    }
+
+    NativeEvaluator createEvaluator(
+        RolapEvaluator evaluator,
+        FunDef fun,
+        Exp[] args)
+    {
+        if (!isEnabled()
+            || !"Count".equalsIgnoreCase(fun.getName())
+            || !SqlContextConstraint.isValidContext(evaluator, true))
+        {
+            return null;
+        }
+        // Whether tuples for which the current measure is empty are
+        // excluded.
+        boolean nonEmpty =
+            args.length > 1
+            && args[1] instanceof Literal
+            && "EXCLUDEEMPTY".equals(((Literal) args[1]).getValue());
+
+        // Strip the functions that do not change the count of a non-empty
+        // native set, and those that make it non-empty.
+        Exp setExp = args[0];
+        Member filterMeasure = null;
+        boolean distinct = false;
+        while (setExp instanceof ResolvedFunCall) {
+            final ResolvedFunCall call = (ResolvedFunCall) setExp;
+            final String name = call.getFunName();
+            if (call.getArgCount() == 1
+                && (name.equalsIgnoreCase("Cache")
+                    || name.equalsIgnoreCase("Distinct")
+                    || name.equalsIgnoreCase("NonEmpty")))
+            {
+                distinct |= name.equalsIgnoreCase("Distinct");
+                nonEmpty |= name.equalsIgnoreCase("NonEmpty");
+                setExp = call.getArg(0);
+            } else if (call.getArgCount() == 2
+                && getEmptinessMeasure(call) != null
+                && (filterMeasure == null
+                    || filterMeasure == getEmptinessMeasure(call)))
+            {
+                filterMeasure = getEmptinessMeasure(call);
+                setExp = call.getArg(0);
+            } else {
+                break;
+            }
+        }
+
+        // A single stored measure must decide emptiness.
+        final Member contextMeasure = evaluator.getMembers()[0];
+        final Member measure;
+        if (filterMeasure == null) {
+            if (!nonEmpty) {
+                return null;
+            }
+            measure = contextMeasure;
+        } else if (nonEmpty && filterMeasure != contextMeasure) {
+            alertNonNativeCount("Emptiness depends on more than one measure.");
+            return null;
+        } else {
+            measure = filterMeasure;
+        }
+        if (!(measure instanceof RolapStoredMeasure)) {
+            alertNonNativeCount("Emptiness is not that of a stored measure.");
+            return null;
+        }
+
+        List<CrossJoinArg[]> allArgs =
+            crossJoinArgFactory().checkCrossJoinArg(evaluator, setExp);
+        if (allArgs == null || allArgs.isEmpty() || allArgs.get(0) == null) {
+            alertNonNativeCount(
+                "Set in 1st argument does not support native eval.");
+            return null;
+        }
+        CrossJoinArg[] cjArgs = allArgs.get(0);
+        if (isPreferInterpreter(cjArgs, false)) {
+            alertNonNativeCount("One or more args prefer non-native.");
+            return null;
+        }
+        if (!canCount(evaluator, cjArgs, distinct)) {
+            alertNonNativeCount(
+                "Some tuples of the set cannot be counted in SQL.");
+            return null;
+        }
+
+        final SchemaReader schemaReader = evaluator.getSchemaReader();
+        final int savepoint = evaluator.savepoint();
+        try {
+            overrideContext(
+                evaluator, cjArgs, (RolapStoredMeasure) measure);
+            evaluator.setNonEmpty(true);
+
+            CrossJoinArg[] combinedArgs =
+                allArgs.size() == 2
+                    ? Util.appendArrays(cjArgs, allArgs.get(1))
+                    : cjArgs;
+            final CountConstraint constraint =
+                new CountConstraint(combinedArgs, evaluator);
+            LOGGER.debug("using native count");
+            final SetEvaluator sev =
+                new SetEvaluator(cjArgs, schemaReader, constraint);
+            return new NativeEvaluator() {
+                public Object execute(ResultStyle resultStyle) {
+                    return sev.executeCount();
+                }
+            };
+        } finally {
+            evaluator.restore(savepoint);
+        }
+    }
+
+    /**
+     * Returns whether every tuple that SQL returns for a set would be
+     * a distinct, visible tuple of the set; that is, whether the count
+     * of the query is the count of the set.
+     */
+    private static boolean canCount(
+        RolapEvaluator evaluator,
+        CrossJoinArg[] args,
+        boolean distinct)
+    {
+        final Role role = evaluator.getSchemaReader().getRole();
+        for (CrossJoinArg arg : args) {
+            final RolapLevel level = arg.getLevel();
+            if (level == null) {
+                continue;
+            }
+            if (level.isParentChild()
+                || level.getHideMemberCondition()
+                    != RolapLevel.HideMemberCondition.Never
+                || role.getAccess(level.getHierarchy()) == Access.CUSTOM)
+            {
+                return false;
+            }
+            if (arg instanceof MemberListCrossJoinArg) {
+                final MemberListCrossJoinArg listArg =
+                    (MemberListCrossJoinArg) arg;
+                if (listArg.hasCalcMembers()) {
+                    return false;
+                }
+                // SQL returns each member once; Count without Distinct
+                // counts a repeated member each time.
+                if (!distinct
+                    && new HashSet<RolapMember>(listArg.getMembers()).size()
+                        < listArg.getMembers().size())
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the measure <code>m</code> if a call is
+     * <code>Filter(&lt;set&gt;, NOT IsEmpty(m))</code> or
+     * <code>NonEmpty(&lt;set&gt;, {m})</code>, otherwise null.
+     */
+    private static Member getEmptinessMeasure(ResolvedFunCall call) {
+        if (call.getFunName().equalsIgnoreCase("Filter")) {
+            return getNotIsEmptyMeasure(call.getArg(1));
+        }
+        if (call.getFunName().equalsIgnoreCase("NonEmpty")) {
+            Exp exp = call.getArg(1);
+            if (exp instanceof ResolvedFunCall
+                && ((ResolvedFunCall) exp).getFunName().equals("{}")
+                && ((ResolvedFunCall) exp).getArgCount() == 1)
+            {
+                exp = ((ResolvedFunCall) exp).getArg(0);
+            }
+            if (exp instanceof MemberExpr
+                && ((MemberExpr) exp).getMember().isMeasure())
+            {
+                return ((MemberExpr) exp).getMember();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the measure <code>m</code> if an expression is
+     * <code>NOT IsEmpty(m)</code>, otherwise null.
+     */
+    private static Member getNotIsEmptyMeasure(Exp exp) {
+        if (!(exp instanceof ResolvedFunCall)) {
+            return null;
+        }
+        final ResolvedFunCall notCall = (ResolvedFunCall) exp;
+        if (!notCall.getFunName().equalsIgnoreCase("NOT")
+            || notCall.getArgCount() != 1
+            || !(notCall.getArg(0) instanceof ResolvedFunCall))
+        {
+            return null;
+        }
+        final ResolvedFunCall isEmptyCall =
+            (ResolvedFunCall) notCall.getArg(0);
+        if (!isEmptyCall.getFunName().equalsIgnoreCase("IsEmpty")
+            || isEmptyCall.getArgCount() != 1
+            || !(isEmptyCall.getArg(0) instanceof MemberExpr))
+        {
+            return null;
+        }
+        final Member member = ((MemberExpr) isEmptyCall.getArg(0)).getMember();
+        return member.isMeasure() ? member : null;
+    }
+
+    private void alertNonNativeCount(String msg) {
+        RolapUtil.alertNonNative("Count", msg);
+    }
+}
+
+// End RolapNativeCount.java
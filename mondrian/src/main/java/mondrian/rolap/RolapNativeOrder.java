@@ -0,0 +1,266 @@
+/*
+// This software is subject to the terms of the Eclipse Public License v1.0
+// Agreement, available at the following URL:
+// http://www.eclipse.org/legal/epl-v10.html.
+// You must accept the terms of that agreement to use this software.
+//
+// Copyright (C) 2005-2015 Pentaho and others
+// All Rights Reserved.
+*/
+package mondrian.rolap;
+
+import mondrian.calc.ResultStyle;
+import mondrian.calc.TupleCollections;
+import mondrian.calc.TupleList;
+import mondrian.mdx.ResolvedFunCall;
+import mondrian.olap.*;
+import mondrian.rolap.RolapNativeTopCount.TopCountConstraint;
+import mondrian.rolap.sql.*;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+/**
+ * Computes <code>Order(&lt;set&gt;, &lt;numeric expr&gt;, BDESC|BASC)</code>
+ * in SQL, and pages through the ordered set when it is the first argument
+ * of <code>Head</code> or <code>Subset</code>.
+ *
+ * <p>The sort expression becomes the leading ORDER BY column of the query
+ * generated by {@link SqlTupleReader}; the level keys that follow it keep
+ * ties in the same order as the stable in-memory sort. A page is limited
+ * by the JDBC max-rows of the statement; rows before the start of a
+ * <code>Subset</code> are skipped as they are read back.
+ *
+ * <p><code>Tail</code> is not pushed down: reversing the sort would also
+ * reverse the order of ties.
+ */
+public class RolapNativeOrder extends RolapNativeSet {
+
+    public RolapNativeOrder() {
+        super.setEnabled(
+            MondrianProperties.instance().EnableNativeOrder.get());
+    }
+
+    protected boolean restrictMemberTypes() {
+        return true;
+    }
+
+    NativeEvaluator createEvaluator(
+        RolapEvaluator evaluator,
+        FunDef fun,
+        Exp[] args)
+    {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        // Find the Order call, and the page of it that is required. A count
+        // of -1 means the whole set.
+        final String funName = fun.getName();
+        final Exp[] orderArgs;
+        int start = 0;
+        int count = -1;
+        if ("Order".equalsIgnoreCase(funName)) {
+            orderArgs = args;
+        } else if ("Head".equalsIgnoreCase(funName)) {
+            orderArgs = getOrderArgs(args[0]);
+            count = args.length > 1 ? getIntLiteral(args[1]) : 1;
+            if (count < 0) {
+                return null;
+            }
+        } else if ("Subset".equalsIgnoreCase(funName)) {
+            orderArgs = getOrderArgs(args[0]);
+            start = getIntLiteral(args[1]);
+            if (args.length > 2) {
+                count = getIntLiteral(args[2]);
+                if (count < 0) {
+                    return null;
+                }
+            }
+            if (start < 0) {
+                return null;
+            }
+        } else {
+            return null;
+        }
+        if (orderArgs == null || !isValidContext(evaluator)) {
+            return null;
+        }
+        if (orderArgs.length != 3
+            || !(orderArgs[2] instanceof Literal)
+            || orderArgs[2].getCategory() != Category.Symbol)
+        {
+            alertNonNativeOrder(
+                "Only a single BASC or BDESC sort key can be evaluated "
+                + "natively.");
+            return null;
+        }
+        final String flag = (String) ((Literal) orderArgs[2]).getValue();
+        final boolean ascending;
+        if ("BDESC".equalsIgnoreCase(flag)) {
+            ascending = false;
+        } else if ("BASC".equalsIgnoreCase(flag)) {
+            ascending = true;
+        } else {
+            alertNonNativeOrder(
+                "Hierarchical sort cannot be evaluated natively.");
+            return null;
+        }
+
+        // NonEmpty(<set>) has the same effect as evaluating in a non-empty
+        // context, which is what the join to the fact table provides.
+        //
+        // Head and Subset evaluate their set with non-empty switched off,
+        // and a non-empty axis removes empty tuples only after the page has
+        // been taken; so for them, only an explicit NonEmpty counts. For
+        // Order itself, removing empty tuples before or after sorting gives
+        // the same result.
+        Exp setExp = orderArgs[0];
+        boolean nonEmpty =
+            "Order".equalsIgnoreCase(funName) && evaluator.isNonEmpty();
+        if (setExp instanceof ResolvedFunCall
+            && ((ResolvedFunCall) setExp).getFunName()
+                .equalsIgnoreCase("NonEmpty")
+            && ((ResolvedFunCall) setExp).getArgCount() == 1)
+        {
+            setExp = ((ResolvedFunCall) setExp).getArg(0);
+            nonEmpty = true;
+        }
+
+        // Empty tuples can only be added back at the end, where a descending
+        // sort puts them, and only up to a known count.
+        if (!nonEmpty && (ascending || count < 0)) {
+            alertNonNativeOrder(
+                "Empty tuples cannot be placed by SQL for this sort.");
+            return null;
+        }
+
+        List<CrossJoinArg[]> allArgs =
+            crossJoinArgFactory().checkCrossJoinArg(evaluator, setExp);
+        if (allArgs == null || allArgs.isEmpty() || allArgs.get(0) == null) {
+            alertNonNativeOrder(
+                "Set in 1st argument does not support native eval.");
+            return null;
+        }
+        CrossJoinArg[] cjArgs = allArgs.get(0);
+        if (isPreferInterpreter(cjArgs, false)) {
+            alertNonNativeOrder("One or more args prefer non-native.");
+            return null;
+        }
+        if (!nonEmpty && cjArgs.length != 1) {
+            alertNonNativeOrder(
+                "Empty tuples can only be added back for a single level.");
+            return null;
+        }
+
+        SchemaReader schemaReader = evaluator.getSchemaReader();
+        DataSource ds = schemaReader.getDataSource();
+        SqlQuery sqlQuery = SqlQuery.newQuery(ds, "NativeOrder");
+        RolapNativeSql sql =
+            new RolapNativeSql(sqlQuery, null, evaluator, null);
+        final Exp orderByExpr = orderArgs[1];
+        if (sql.generateTopCountOrderBy(orderByExpr) == null) {
+            alertNonNativeOrder("Cannot convert order by expression to SQL.");
+            return null;
+        }
+
+        final int maxRows = count < 0 ? 0 : start + count;
+        if (count == 0 || (count > 0 && maxRows < 0)) {
+            // Empty page, or a page beyond what max-rows can express.
+            return null;
+        }
+
+        final int savepoint = evaluator.savepoint();
+        try {
+            overrideContext(evaluator, cjArgs, sql.getStoredMeasure());
+            evaluator.setNonEmpty(nonEmpty);
+
+            CrossJoinArg[] combinedArgs =
+                allArgs.size() == 2
+                    ? Util.appendArrays(cjArgs, allArgs.get(1))
+                    : cjArgs;
+            TopCountConstraint constraint =
+                new TopCountConstraint(
+                    maxRows, combinedArgs, evaluator, orderByExpr,
+                    ascending, !ascending);
+            if (!constraint.isValid()) {
+                alertNonNativeOrder(
+                    "Constraint constructed cannot be used for native eval.");
+                return null;
+            }
+            LOGGER.debug("using native order");
+            SetEvaluator sev =
+                new SetEvaluator(cjArgs, schemaReader, constraint);
+            sev.setMaxRows(maxRows);
+            sev.setCompleteWithNullValues(!nonEmpty);
+            if (start == 0) {
+                return sev;
+            }
+            return new OffsetEvaluator(sev, start);
+        } finally {
+            evaluator.restore(savepoint);
+        }
+    }
+
+    /**
+     * Returns the arguments of an <code>Order</code> call, or null if the
+     * expression is not a call to <code>Order</code>.
+     */
+    private static Exp[] getOrderArgs(Exp exp) {
+        if (exp instanceof ResolvedFunCall
+            && ((ResolvedFunCall) exp).getFunName().equalsIgnoreCase("Order"))
+        {
+            return ((ResolvedFunCall) exp).getArgs();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the value of a non-negative integer literal, or -1 if the
+     * expression is not a literal.
+     */
+    private static int getIntLiteral(Exp exp) {
+        if (exp instanceof Literal
+            && ((Literal) exp).getValue() instanceof Number)
+        {
+            return ((Literal) exp).getIntValue();
+        }
+        return -1;
+    }
+
+    private void alertNonNativeOrder(String msg) {
+        RolapUtil.alertNonNative("Order", msg);
+    }
+
+    // package-local visibility for testing purposes
+    boolean isValidContext(RolapEvaluator evaluator) {
+        return TopCountConstraint.isValidContext(
+            evaluator, restrictMemberTypes());
+    }
+
+    /**
+     * Evaluator that skips the leading tuples of a native set, for the
+     * start offset of <code>Subset</code>.
+     */
+    private static class OffsetEvaluator implements NativeEvaluator {
+        private final NativeEvaluator evaluator;
+        private final int start;
+
+        OffsetEvaluator(NativeEvaluator evaluator, int start) {
+            this.evaluator = evaluator;
+            this.start = start;
+        }
+
+        public Object execute(ResultStyle resultStyle) {
+            final TupleList list =
+                (TupleList) evaluator.execute(ResultStyle.LIST);
+            if (start >= list.size()) {
+                return TupleCollections.emptyList(list.getArity());
+            }
+            return list.subList(start, list.size());
+        }
+    }
+}
+
+// End RolapNativeOrder.java
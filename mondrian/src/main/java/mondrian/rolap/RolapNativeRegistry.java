@@ -10,6 +10,7 @@
 */
 package mondrian.rolap;
 
+import mondrian.olap.CacheControl.CellRegion;
 import mondrian.olap.Exp;
 import mondrian.olap.FunDef;
 import mondrian.olap.NativeEvaluator;
@@ -29,6 +30,12 @@ public class RolapNativeRegistry extends RolapNative {
     private Map<String, RolapNative> nativeEvaluatorMap =
         new HashMap<String, RolapNative>();
 
+    /**
+     * Results of the native set evaluators of this registry, and so of its
+     * schema.
+     */
+    private final NativeSetCache nativeSetCache = new NativeSetCache();
+
     private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
     private final Lock readLock = readWriteLock.readLock();
     private final Lock writeLock = readWriteLock.writeLock();
@@ -40,6 +47,11 @@ public class RolapNativeRegistry extends RolapNative {
         register("CrossJoin".toUpperCase(), new RolapNativeCrossJoin());
         register("TopCount".toUpperCase(), new RolapNativeTopCount());
         register("Filter".toUpperCase(), new RolapNativeFilter());
+        final RolapNativeOrder nativeOrder = new RolapNativeOrder();
+        register("Order".toUpperCase(), nativeOrder);
+        register("Head".toUpperCase(), nativeOrder);
+        register("Subset".toUpperCase(), nativeOrder);
+        register("Count".toUpperCase(), new RolapNativeCount());
     }
 
     /**
@@ -80,6 +92,9 @@ public class RolapNativeRegistry extends RolapNative {
         writeLock.lock();
         try {
             nativeEvaluatorMap.put(funName, rn);
+            if (rn instanceof RolapNativeSet) {
+                ((RolapNativeSet) rn).setCache(nativeSetCache);
+            }
         } finally {
             writeLock.unlock();
         }
@@ -111,21 +126,22 @@ public class RolapNativeRegistry extends RolapNative {
     }
 
     void flushAllNativeSetCache() {
-        readLock.lock();
-        try {
-            for (String key : nativeEvaluatorMap.keySet()) {
-                RolapNative currentRolapNative = nativeEvaluatorMap.get(key);
-                if (currentRolapNative instanceof RolapNativeSet
-                        && currentRolapNative != null)
-                {
-                    RolapNativeSet currentRolapNativeSet =
-                            (RolapNativeSet) currentRolapNative;
-                    currentRolapNativeSet.flushCache();
-                }
-            }
-        } finally {
-            readLock.unlock();
-        }
+        nativeSetCache.clear();
+    }
+
+    /**
+     * Removes the cached native sets that facts in a cell region may have
+     * contributed to.
+     *
+     * @param region Cell region that is not a union
+     */
+    void flushNativeSetCache(CellRegion region) {
+        nativeSetCache.flush(region);
+    }
+
+    /** for testing */
+    NativeSetCache getNativeSetCache() {
+        return nativeSetCache;
     }
 }
 
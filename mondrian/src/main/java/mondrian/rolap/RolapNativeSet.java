@@ -12,17 +12,21 @@
 package mondrian.rolap;
 
 import mondrian.calc.ResultStyle;
+import mondrian.calc.TupleCursor;
+import mondrian.calc.TupleIterable;
 import mondrian.calc.TupleList;
 import mondrian.calc.impl.*;
 import mondrian.olap.*;
 import mondrian.rolap.TupleReader.MemberBuilder;
 import mondrian.rolap.aggmatcher.AggStar;
-import mondrian.rolap.cache.*;
 import mondrian.rolap.sql.*;
+import mondrian.server.Locus;
 
 import org.apache.commons.collections.*;
 import org.apache.log4j.Logger;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.*;
 
 import javax.sql.DataSource;
@@ -44,8 +48,11 @@ public abstract class RolapNativeSet extends RolapNative {
     protected static final Logger LOGGER =
         Logger.getLogger(RolapNativeSet.class);
 
-    private SmartCache<Object, TupleList> cache =
-        new SoftSmartCache<Object, TupleList>();
+    /**
+     * Cache of tuple lists and counts; shared by the natives of a schema once
+     * they are registered.
+     */
+    private NativeSetCache cache = new NativeSetCache();
 
     /**
      * Returns whether certain member types (e.g. calculated members) should
@@ -185,16 +192,20 @@ public abstract class RolapNativeSet extends RolapNative {
             switch (desiredResultStyle) {
             case ITERABLE:
                 for (CrossJoinArg arg : this.args) {
-                    if (arg.getLevel().getDimension().isHighCardinality()) {
-                        // If any of the dimensions is a HCD,
-                        // use the proper tuple reader.
-                        return executeList(
-                            new HighCardSqlTupleReader(constraint));
+                    if (arg.getLevel() != null
+                        && arg.getLevel().getDimension().isHighCardinality())
+                    {
+                        // If any of the dimensions is a HCD, read the tuples
+                        // as they are consumed, if possible.
+                        final TupleIterable iterable =
+                            executeIterable(new SqlTupleReader(constraint));
+                        if (iterable != null) {
+                            return iterable;
+                        }
+                        break;
                     }
-                    // Use the regular tuple reader.
-                    return executeList(
-                        new SqlTupleReader(constraint));
                 }
+                // fall through
             case MUTABLE_LIST:
             case LIST:
                 return executeList(new SqlTupleReader(constraint));
@@ -216,25 +227,12 @@ public abstract class RolapNativeSet extends RolapNative {
             // members because the cached result does not include those
             // members; so we still need to cross join the cached result
             // with those enumerated members.
-            //
-            // The key needs to include the arguments (projection) as well as
-            // the constraint, because it's possible (see bug MONDRIAN-902)
-            // that independent axes have identical constraints but different
-            // args (i.e. projections). REVIEW: In this case, should we use the
-            // same cached result and project different columns?
-            //
-            // [MONDRIAN-2411] adds the roles to the key. Normally, the
-            // schemaReader would apply the roles, but we cache the lists over
-            // its head.
-            List<Object> key = new ArrayList<Object>();
-            key.add(tr.getCacheKey());
-            key.addAll(Arrays.asList(args));
-            key.add(maxRows);
-            key.add(schemaReader.getRole());
+            List<Object> key = makeListCacheKey(tr);
 
-            TupleList result = cache.get(key);
+            TupleList result = (TupleList) cache.get(key);
             boolean hasEnumTargets = (tr.getEnumTargetCount() > 0);
             if (result != null && !hasEnumTargets) {
+                Locus.peek().execution.incrementNativeSetCacheHitCount();
                 if (listener != null) {
                     TupleEvent e = new TupleEvent(this, tr);
                     listener.foundInCache(e);
@@ -244,9 +242,12 @@ public abstract class RolapNativeSet extends RolapNative {
             }
 
             // execute sql and store the result
-            if (result == null && listener != null) {
-                TupleEvent e = new TupleEvent(this, tr);
-                listener.executingSql(e);
+            if (result == null) {
+                Locus.peek().execution.incrementNativeSetCacheMissCount();
+                if (listener != null) {
+                    TupleEvent e = new TupleEvent(this, tr);
+                    listener.executingSql(e);
+                }
             }
 
             // if we don't have a cached result in the case where we have
@@ -300,15 +301,154 @@ public abstract class RolapNativeSet extends RolapNative {
                             key,
                             new DelegatingTupleList(
                                 args.length,
-                                Util.<List<Member>>cast(newPartialResult)));
+                                Util.<List<Member>>cast(newPartialResult)),
+                            getContext());
                     }
                 } else {
-                    cache.put(key, result);
+                    cache.put(key, result, getContext());
                 }
             }
             return filterInaccessibleTuples(result);
         }
 
+        /**
+         * Returns the key in the native set cache of the tuples that a reader
+         * reads.
+         */
+        private List<Object> makeListCacheKey(SqlTupleReader tr) {
+            // The key needs to include the arguments (projection) as well as
+            // the constraint, because it's possible (see bug MONDRIAN-902)
+            // that independent axes have identical constraints but different
+            // args (i.e. projections). REVIEW: In this case, should we use the
+            // same cached result and project different columns?
+            //
+            // [MONDRIAN-2411] adds the roles to the key. Normally, the
+            // schemaReader would apply the roles, but we cache the lists over
+            // its head.
+            //
+            // The cache is shared by the natives of the schema, so the key
+            // also includes the kind of native.
+            List<Object> key = new ArrayList<Object>();
+            key.add(RolapNativeSet.this.getClass());
+            key.add(tr.getCacheKey());
+            key.addAll(Arrays.asList(args));
+            key.add(maxRows);
+            key.add(schemaReader.getRole());
+            return key;
+        }
+
+        /**
+         * Returns an iterable that reads the tuples from the database as they
+         * are consumed, or null if they must be read into a list. A tuple list
+         * that is already in cache is returned rather than read again;
+         * tuples that are streamed are not cached.
+         *
+         * @see SqlTupleReader#iterateTuples
+         */
+        protected TupleIterable executeIterable(final SqlTupleReader tr) {
+            if (completeWithNullValues) {
+                return null;
+            }
+            tr.setMaxRows(maxRows);
+            for (CrossJoinArg arg : args) {
+                addLevel(tr, arg);
+            }
+            final TupleList result =
+                (TupleList) cache.get(makeListCacheKey(tr));
+            if (result != null && tr.getEnumTargetCount() == 0) {
+                Locus.peek().execution.incrementNativeSetCacheHitCount();
+                if (listener != null) {
+                    TupleEvent e = new TupleEvent(this, tr);
+                    listener.foundInCache(e);
+                }
+                return new DelegatingTupleList(
+                    args.length, Util.<List<Member>>cast(result));
+            }
+            final TupleIterable iterable =
+                tr.iterateTuples(schemaReader.getDataSource());
+            if (iterable == null) {
+                return null;
+            }
+            Locus.peek().execution.incrementNativeSetCacheMissCount();
+            if (listener != null) {
+                TupleEvent e = new TupleEvent(this, tr);
+                listener.executingSql(e);
+            }
+            boolean needsFiltering = false;
+            for (CrossJoinArg arg : args) {
+                needsFiltering |=
+                    isRaggedLevel(arg.getLevel())
+                    || isCustomAccess(arg.getLevel().getHierarchy());
+            }
+            if (!needsFiltering) {
+                return iterable;
+            }
+            final Predicate tupleAccessible =
+                tupleAccessiblePredicate(memberInaccessiblePredicate());
+            return new AbstractTupleIterable(iterable.getArity()) {
+                public TupleCursor tupleCursor() {
+                    return new AccessibleTupleCursor(
+                        iterable.tupleCursor(), tupleAccessible);
+                }
+            };
+        }
+
+        /**
+         * Counts the tuples of the set in SQL, without reading them; see
+         * {@link SqlTupleReader#countTuples}. The caller must ensure that
+         * no tuple would be filtered out for access rights or hidden
+         * members, because the count cannot take them into account.
+         *
+         * @return Number of tuples, or -1 if they cannot be counted by a
+         *   single query
+         */
+        protected int executeCount() {
+            final SqlTupleReader tr = new SqlTupleReader(constraint);
+            for (CrossJoinArg arg : args) {
+                addLevel(tr, arg);
+            }
+            List<Object> key = new ArrayList<Object>();
+            key.add(RolapNativeSet.this.getClass());
+            key.add(tr.getCacheKey());
+            key.addAll(Arrays.asList(args));
+            key.add(schemaReader.getRole());
+
+            Integer count = (Integer) cache.get(key);
+            if (count != null) {
+                Locus.peek().execution.incrementNativeSetCacheHitCount();
+                if (listener != null) {
+                    TupleEvent e = new TupleEvent(this, tr);
+                    listener.foundInCache(e);
+                }
+                return count;
+            }
+            Locus.peek().execution.incrementNativeSetCacheMissCount();
+            if (listener != null) {
+                TupleEvent e = new TupleEvent(this, tr);
+                listener.executingSql(e);
+            }
+            count = tr.countTuples(schemaReader.getDataSource());
+            if (count >= 0
+                && !MondrianProperties.instance().DisableCaching.get())
+            {
+                cache.put(key, count, getContext());
+            }
+            return count;
+        }
+
+        /**
+         * Returns the evaluation context of the constraint if its SQL joins
+         * to the fact table, otherwise null.
+         */
+        private RolapEvaluator getContext() {
+            if (constraint instanceof SqlContextConstraint
+                && !((SqlContextConstraint) constraint).isJoinRequired())
+            {
+                return null;
+            }
+            return (RolapEvaluator) constraint.getEvaluator();
+        }
+
         /**
          * Checks access rights and hidden status on the members
          * in each tuple in tupleList.
@@ -450,14 +590,16 @@ public abstract class RolapNativeSet extends RolapNative {
         return true;
     }
 
-    /** disable garbage collection for test */
-    @SuppressWarnings({ "unchecked", "rawtypes" })
+    /**
+     * Empties the cache, for test. Entries are always held strongly, so
+     * they are not garbage collected in either mode.
+     */
     void useHardCache(boolean hard) {
-        if (hard) {
-            cache = new HardSmartCache();
-        } else {
-            cache = new SoftSmartCache();
-        }
+        cache.clear();
+    }
+
+    void setCache(NativeSetCache cache) {
+        this.cache = cache;
     }
 
     /**
@@ -515,6 +657,43 @@ public abstract class RolapNativeSet extends RolapNative {
     }
 
 
+    /**
+     * Cursor that skips the tuples of another cursor that have a hidden or
+     * inaccessible member, and closes it when closed.
+     */
+    private static class AccessibleTupleCursor
+        extends AbstractTupleCursor
+        implements Closeable
+    {
+        private final TupleCursor cursor;
+        private final Predicate tupleAccessible;
+
+        AccessibleTupleCursor(TupleCursor cursor, Predicate tupleAccessible) {
+            super(cursor.getArity());
+            this.cursor = cursor;
+            this.tupleAccessible = tupleAccessible;
+        }
+
+        public boolean forward() {
+            while (cursor.forward()) {
+                if (tupleAccessible.evaluate(cursor.current())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public List<Member> current() {
+            return cursor.current();
+        }
+
+        public void close() throws IOException {
+            if (cursor instanceof Closeable) {
+                ((Closeable) cursor).close();
+            }
+        }
+    }
+
     public interface SchemaReaderWithMemberReaderAvailable
         extends SchemaReader
     {
@@ -38,16 +38,26 @@ public class RolapNativeTopCount extends RolapNativeSet {
         Exp orderByExpr;
         boolean ascending;
         Integer topCount;
+        boolean collateNullsLast;
 
         public TopCountConstraint(
             int count,
             CrossJoinArg[] args, RolapEvaluator evaluator,
             Exp orderByExpr, boolean ascending)
+        {
+            this(count, args, evaluator, orderByExpr, ascending, true);
+        }
+
+        public TopCountConstraint(
+            int count,
+            CrossJoinArg[] args, RolapEvaluator evaluator,
+            Exp orderByExpr, boolean ascending, boolean collateNullsLast)
         {
             super(args, evaluator, true);
             this.orderByExpr = orderByExpr;
             this.ascending = ascending;
             this.topCount = new Integer(count);
+            this.collateNullsLast = collateNullsLast;
         }
 
         /**
@@ -110,7 +120,7 @@ public class RolapNativeTopCount extends RolapNativeSet {
                     ascending,
                     true,
                     nullable,
-                    true);
+                    collateNullsLast);
             }
             if (isJoinRequired()) {
                 super.addConstraint(sqlQuery, baseCube, aggStar);
@@ -140,6 +150,7 @@ public class RolapNativeTopCount extends RolapNativeSet {
                 key.add(orderByExpr.toString());
             }
             key.add(ascending);
+            key.add(collateNullsLast);
             key.add(topCount);
             key.add(this.getEvaluator().isNonEmpty());
 
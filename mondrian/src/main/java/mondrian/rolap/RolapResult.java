@@ -61,6 +61,46 @@ public class RolapResult extends ResultBase {
     private final Map<Integer, List<List<Member>>> positionsCurrent =
         new HashMap<Integer, List<List<Member>>>();
 
+    /**
+     * Number of positions of the last axis whose cells are computed and held
+     * at a time, or 0 if all cells are computed when the result is created.
+     * See {@link RolapConnectionProperties#ResultStreamingChunkSize}.
+     */
+    private final int streamingChunkSize;
+
+    /**
+     * Ordinal of the first position of the last axis in the chunk whose cells
+     * are currently held, or -1 if no chunk has been computed yet.
+     */
+    private int streamingChunkStart = -1;
+
+    /**
+     * Slicer axis with which cells are evaluated. Usually the same as
+     * {@link #slicerAxis}, but differs if the query has a compound slicer.
+     * Retained for cells that are computed after the result is created.
+     */
+    private Axis stripeSlicerAxis;
+
+    /**
+     * Whether expressions such as {@code Filter} may load the cells they
+     * read within the current pass; see {@link #canLoadCells}. False if
+     * calls to {@code Filter} occur on more than one axis, because the
+     * enclosing pass loads all of their cells in one batch.
+     */
+    private final boolean loadCellsEagerly;
+
+    /**
+     * Context in which the axis currently being evaluated started, or null
+     * if no axis is being evaluated.
+     */
+    private Member[] axisContext;
+
+    /**
+     * Expressions that have loaded the cells they read within a pass. Each
+     * expression does so at most once per query.
+     */
+    private final Set<Exp> cellLoadingExps = Util.newIdentityHashSet();
+
     /**
      * Creates a RolapResult.
      *
@@ -101,6 +141,18 @@ public class RolapResult extends ResultBase {
                 ? new CellInfoMap(point)
                 : new CellInfoPool(query.axes.length);
 
+        // A result with a non-empty axis is wrapped in a NonEmptyResult,
+        // which reads every cell to find the empty positions; streaming
+        // would compute each chunk once per position of the other axes.
+        this.streamingChunkSize =
+            hasNonEmptyAxis(query)
+                ? 0
+                : parseChunkSize(
+                    statement.getProperty(
+                        RolapConnectionProperties.ResultStreamingChunkSize
+                            .name()));
+        this.loadCellsEagerly = countFilterAxes(query) <= 1;
+
         if (!execute) {
             return;
         }
@@ -343,7 +395,7 @@ public class RolapResult extends ResultBase {
                                     }
                                 }
                                 return AggregateFunDef.AggregateCalc.aggregate(
-                                    valueCalc, evaluator, list);
+                                    valueCalc, evaluator, list, true);
                             }
                             // depend on the full evaluation context
                             public boolean dependsOn(Hierarchy hierarchy) {
@@ -497,14 +549,19 @@ public class RolapResult extends ResultBase {
 
             evaluator.restore(savepoint);
 
-            // Get value for each Cell
-            final Locus locus = new Locus(execution, null, "Loading cells");
-            Locus.push(locus);
-            try {
-                executeBody(
-                    internalSlicerEvaluator, query, new int[axes.length]);
-            } finally {
-                Locus.pop(locus);
+            // Get value for each Cell. If the result is streamed, cells are
+            // computed a chunk at a time, as getCell asks for them.
+            this.stripeSlicerAxis = this.slicerAxis;
+            if (!isStreaming()) {
+                final Locus locus =
+                    new Locus(execution, null, "Loading cells");
+                Locus.push(locus);
+                try {
+                    executeBody(
+                        internalSlicerEvaluator, query, new int[axes.length]);
+                } finally {
+                    Locus.pop(locus);
+                }
             }
 
             // If you are very close to running out of memory due to
@@ -514,7 +571,14 @@ public class RolapResult extends ResultBase {
             // the ObjectPool's internal storage by half (but, of course,
             // it will not reduce the size of the stored objects themselves).
             // Only call this if there are lots of CellInfo.
-            if (this.cellInfos.size() > 10000) {
+            final int compactThreshold =
+                MondrianProperties.instance().CellInfoCompactThreshold.get();
+            if (compactThreshold > 0
+                && this.cellInfos.size() >= compactThreshold
+                && !positionsHighCardinality.containsValue(true))
+            {
+                this.cellInfos = CellInfoColumns.compact(cellInfos, axes);
+            } else if (this.cellInfos.size() > 10000) {
                 this.cellInfos.trimToSize();
             }
             // revert the slicer axis so that the original slicer
@@ -931,6 +995,10 @@ public class RolapResult extends ResultBase {
                 "coordinates should have dimension " + point.size());
         }
 
+        if (isStreaming()) {
+            loadStreamingChunk(pos);
+        }
+
         for (int i = 0; i < pos.length; i++) {
             if (positionsHighCardinality.get(i)) {
                 final Locus locus = new Locus(execution, null, "Loading cells");
@@ -958,6 +1026,144 @@ public class RolapResult extends ResultBase {
         return new RolapCell(this, pos.clone(), ci);
     }
 
+    /**
+     * Records a change that a cell has made to its {@link CellInfo}, such as
+     * a format string computed on demand, so that later calls to
+     * {@link #getCell} see it.
+     *
+     * @param pos Cell position
+     * @param ci Cell information
+     */
+    void updateCellInfo(int[] pos, CellInfo ci) {
+        cellInfos.update(pos, ci);
+    }
+
+    private static boolean hasNonEmptyAxis(Query query) {
+        for (QueryAxis axis : query.getAxes()) {
+            if (axis.isNonEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of axes of a query whose expression contains a
+     * call to {@code Filter}.
+     */
+    private static int countFilterAxes(Query query) {
+        int count = 0;
+        for (QueryAxis axis : query.getAxes()) {
+            final boolean[] found = {false};
+            axis.getSet().accept(
+                new MdxVisitorImpl() {
+                    public Object visit(ResolvedFunCall call) {
+                        if (call.getFunName().equalsIgnoreCase("Filter")) {
+                            found[0] = true;
+                        }
+                        return null;
+                    }
+                });
+            if (found[0]) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Parses the value of the
+     * {@link RolapConnectionProperties#ResultStreamingChunkSize} property.
+     *
+     * @param value Property value, or null
+     * @return Chunk size, or 0 if not set
+     * @throws mondrian.olap.MondrianException if the value is not a
+     *   non-negative integer
+     */
+    public static int parseChunkSize(Object value) {
+        if (value == null || value.toString().trim().length() == 0) {
+            return 0;
+        }
+        final String name =
+            RolapConnectionProperties.ResultStreamingChunkSize.name();
+        final int chunkSize;
+        try {
+            chunkSize = Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw MondrianResource.instance().InvalidConnectionPropertyValue
+                .ex(name, value.toString(), e);
+        }
+        if (chunkSize < 0) {
+            throw MondrianResource.instance().InvalidConnectionPropertyValue
+                .ex(name, value.toString());
+        }
+        return chunkSize;
+    }
+
+    /**
+     * Returns whether cells are computed a chunk at a time, as they are
+     * requested, rather than all when the result is created.
+     *
+     * @return Whether this result is streamed
+     */
+    private boolean isStreaming() {
+        return streamingChunkSize > 0 && axes.length > 0;
+    }
+
+    /**
+     * Ensures that the cells of the chunk containing a given position are
+     * loaded. If the position is in a different chunk than the current one,
+     * discards the cells of the current chunk and computes the cells of the
+     * new chunk.
+     *
+     * <p>Memory use is therefore bounded by the size of one chunk, whatever
+     * the size of the last axis. Cells are cheapest to access in cell ordinal
+     * order, as the XMLA and olap4j writers do.
+     *
+     * @param pos Cell position
+     */
+    private void loadStreamingChunk(int[] pos) {
+        final int last = pos.length - 1;
+        final int po = pos[last];
+        if (po < 0
+            || po >= axes[last].getPositions().size()
+            || (streamingChunkStart >= 0
+                && po >= streamingChunkStart
+                && po < streamingChunkStart + streamingChunkSize))
+        {
+            return;
+        }
+        streamingChunkStart = po - po % streamingChunkSize;
+        cellInfos.clear();
+
+        // The execution that created this result has ended by now, so each
+        // chunk gets an execution of its own, with the statement's timeout.
+        // Ending it unregisters the segments the chunk requested. It goes
+        // through the statement, so that cancelling the statement cancels
+        // it, unless the statement has since started something else.
+        final Execution chunkExecution =
+            new Execution(statement, statement.getQueryTimeoutMillis());
+        final boolean viaStatement = statement.getCurrentExecution() == null;
+        if (viaStatement) {
+            statement.start(chunkExecution);
+        } else {
+            chunkExecution.start();
+        }
+        final Locus locus =
+            new Locus(chunkExecution, null, "Loading cells");
+        Locus.push(locus);
+        try {
+            executeBody(evaluator, statement.getQuery(), pos);
+        } finally {
+            Locus.pop(locus);
+            if (viaStatement) {
+                statement.end(chunkExecution);
+            } else {
+                chunkExecution.end();
+            }
+        }
+    }
+
     private TupleIterable executeAxis(
         Evaluator evaluator,
         QueryAxis queryAxis,
@@ -973,9 +1179,11 @@ public class RolapResult extends ResultBase {
                 Collections.singletonList(Collections.<Member>emptyList()));
         }
         final int savepoint = evaluator.savepoint();
+        final Member[] previousAxisContext = axisContext;
         try {
             evaluator.setNonEmpty(queryAxis.isNonEmpty());
             evaluator.setEvalAxes(true);
+            axisContext = evaluator.getMembers().clone();
             final TupleIterable iterable =
                 ((IterCalc) axisCalc).evaluateIterable(evaluator);
             if (axisCalc.getClass().getName().indexOf("OrderFunDef") != -1) {
@@ -997,6 +1205,7 @@ public class RolapResult extends ResultBase {
             }
             return iterable;
         } finally {
+            axisContext = previousAxisContext;
             evaluator.restore(savepoint);
         }
     }
@@ -1011,6 +1220,9 @@ public class RolapResult extends ResultBase {
         int count = 0;
         final int savepoint = evaluator.savepoint();
         while (true) {
+            // Cells whose values were final in a previous pass are kept in
+            // cellInfos and skipped by executeStripe; only the cells that
+            // consulted missing cells are evaluated again.
             evaluator.setCellReader(batchingReader);
             try {
                 executeStripe(query.axes.length - 1, evaluator, pos);
@@ -1051,8 +1263,6 @@ public class RolapResult extends ResultBase {
                         "Query required more than " + count + " iterations");
                 }
             }
-
-            cellInfos.clear();
         }
     }
 
@@ -1060,6 +1270,45 @@ public class RolapResult extends ResultBase {
         return batchingReader.isDirty();
     }
 
+    /**
+     * Returns whether an expression may load the cells it requires
+     * immediately, using {@link #evaluateExp}.
+     *
+     * <p>This is only safe if no cell requests are pending. Otherwise the
+     * load would make values that other expressions have already read
+     * look final.
+     *
+     * <p>It only pays off for an expression that is evaluated once, in the
+     * context in which its axis is evaluated. An expression nested in a
+     * function that iterates (say {@code Generate}, or the condition of
+     * another {@code Filter}) or in a calculated member is evaluated in
+     * many contexts, and would issue a batch for each; its cells are loaded
+     * by the enclosing pass instead. So is an expression evaluated a
+     * second time.
+     *
+     * @param evaluator Calling evaluator
+     * @param exp Expression
+     * @return Whether cells can be loaded within the current pass
+     */
+    boolean canLoadCells(RolapEvaluator evaluator, Exp exp) {
+        return loadCellsEagerly
+            && batchingReader != null
+            && evaluator.cellReader == batchingReader
+            && !batchingReader.isDirty()
+            && axisContext != null
+            && isAxisContext(evaluator.getMembers())
+            && cellLoadingExps.add(exp);
+    }
+
+    private boolean isAxisContext(Member[] members) {
+        for (int i = 0; i < members.length; i++) {
+            if (members[i] != axisContext[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Evaluates an expression. Intended for evaluating named sets.
      *
@@ -1140,12 +1389,23 @@ public class RolapResult extends ResultBase {
         final int[] pos)
     {
         if (axisOrdinal < 0) {
-            RolapAxis axis = (RolapAxis) slicerAxis;
+            RolapAxis axis = (RolapAxis) stripeSlicerAxis;
             TupleList tupleList = axis.getTupleList();
             final Iterator<List<Member>> tupleIterator = tupleList.iterator();
             if (tupleIterator.hasNext()) {
+                // Create a CellInfo object for the given position
+                // integer array. If a previous pass computed its value
+                // without consulting any missing cells, the value is final
+                // and there is no need to evaluate the cell again.
+                final CellInfo ci = cellInfos.create(point.getOrdinals());
+                if (ci.ready) {
+                    return;
+                }
+                final int missCount = batchingReader.getMissCount();
+                final int tmpHitCount = revaluator.root.tmpExpResultHitCount;
+
                 final List<Member> members = tupleIterator.next();
-                execution.checkCancelOrTimeout();
+                Locus.peek().execution.checkCancelOrTimeout();
                 final int savepoint = revaluator.savepoint();
                 revaluator.setContext(members);
                 Object o;
@@ -1158,8 +1418,6 @@ public class RolapResult extends ResultBase {
                     revaluator.restore(savepoint);
                 }
 
-                CellInfo ci = null;
-
                 // Get the Cell's format string and value formatting
                 // Object.
                 try {
@@ -1168,10 +1426,6 @@ public class RolapResult extends ResultBase {
                     // <code>getCellNoDefaultFormatString</code> method and
                     // the old RolapCell <code>getFormattedValue</code> method.
 
-                    // Create a CellInfo object for the given position
-                    // integer array.
-                    ci = cellInfos.create(point.getOrdinals());
-
                     String cachedFormatString = null;
 
                     // Determine if there is a CellFormatter registered for
@@ -1217,6 +1471,9 @@ public class RolapResult extends ResultBase {
 
                 if (o != RolapUtil.valueNotReadyException) {
                     ci.value = o;
+                    ci.ready =
+                        missCount == batchingReader.getMissCount()
+                        && tmpHitCount == revaluator.root.tmpExpResultHitCount;
                 }
             }
         } else {
@@ -1267,7 +1524,7 @@ public class RolapResult extends ResultBase {
                     final int savepoint = revaluator.savepoint();
                     try {
                         revaluator.setContext(tuple);
-                        execution.checkCancelOrTimeout();
+                        Locus.peek().execution.checkCancelOrTimeout();
                         executeStripe(axisOrdinal - 1, revaluator, pos);
                     } finally {
                         revaluator.restore(savepoint);
@@ -1275,6 +1532,18 @@ public class RolapResult extends ResultBase {
                     pi++;
                 }
             } else {
+                // When streaming, compute only the current chunk of the
+                // last axis.
+                int tupleIndex = 0;
+                if (isStreaming() && axisOrdinal == axes.length - 1) {
+                    tupleIndex = streamingChunkStart;
+                    tupleList =
+                        tupleList.subList(
+                            tupleIndex,
+                            Math.min(
+                                tupleList.size(),
+                                tupleIndex + streamingChunkSize));
+                }
                 for (List<Member> tuple : tupleList) {
                     List<Member> measures =
                         new ArrayList<Member>(
@@ -1293,14 +1562,13 @@ public class RolapResult extends ResultBase {
                     }
                 }
 
-                int tupleIndex = 0;
                 for (final List<Member> tuple : tupleList) {
                     point.setAxis(axisOrdinal, tupleIndex);
                     final int savepoint = revaluator.savepoint();
                     try {
                         revaluator.setEvalAxes( true );
                         revaluator.setContext(tuple);
-                        execution.checkCancelOrTimeout();
+                        Locus.peek().execution.checkCancelOrTimeout();
                         executeStripe(axisOrdinal - 1, revaluator, pos);
                     } finally {
                         revaluator.restore(savepoint);
@@ -1891,6 +2159,13 @@ public class RolapResult extends ResultBase {
         ValueFormatter valueFormatter;
         long key;
 
+        /**
+         * Whether {@link #value} is final; that is, it was computed without
+         * consulting any cells that were not yet loaded, so later evaluation
+         * passes do not need to compute it again.
+         */
+        boolean ready;
+
         /**
          * Creates a CellInfo representing the position of a cell.
          *
@@ -1951,8 +2226,9 @@ public class RolapResult extends ResultBase {
 
     /**
      * API for the creation and
-     * lookup of {@link CellInfo} objects. There are two implementations,
-     * one that uses a Map for storage and the other uses an ObjectPool.
+     * lookup of {@link CellInfo} objects. There are three implementations:
+     * one that uses a Map for storage, one that uses an ObjectPool, and a
+     * read-only columnar store for large results.
      */
     interface CellInfoContainer {
         /**
@@ -1986,6 +2262,15 @@ public class RolapResult extends ResultBase {
          * @return the CellInfo found or null.
          */
         CellInfo lookup(int[] pos);
+        /**
+         * Stores changes made to a CellInfo object returned by
+         * <code>lookup</code>, such as a format string computed on demand.
+         * Does nothing if the container holds the object itself.
+         *
+         * @param pos where the CellInfo object is stored.
+         * @param ci the CellInfo object.
+         */
+        void update(int[] pos, CellInfo ci);
     }
 
     /**
@@ -2032,6 +2317,9 @@ public class RolapResult extends ResultBase {
             CellKey key = CellKey.Generator.newCellKey(pos);
             return this.cellInfoMap.get(key);
         }
+        public void update(int[] pos, CellInfo ci) {
+            // empty
+        }
     }
 
     /**
@@ -2214,6 +2502,251 @@ public class RolapResult extends ResultBase {
             long key = this.cellKeyMaker.generate(pos);
             return this.cellInfoPool.add(new CellInfo(key));
         }
+        public void update(int[] pos, CellInfo ci) {
+            // empty
+        }
+    }
+
+    /**
+     * Implementation of {@link CellInfoContainer} that stores cell
+     * information in columns rather than as one {@link CellInfo} object per
+     * cell.
+     *
+     * <p>Numeric values are held in a <code>double</code> array, with a
+     * parallel <code>byte</code> array recording whether each cell is
+     * unset, null, or holds a double, an int or a long. Values of other types
+     * (strings, errors, big decimals) are held in a sparse side map. Format
+     * strings and {@link ValueFormatter}s take few distinct values, so each
+     * (format string, formatter) combination is stored once in a dictionary
+     * and cells hold an index into it.
+     *
+     * <p>The container is populated by {@link #compact}, after evaluation
+     * has finished. {@link #lookup} materializes a transient
+     * {@link CellInfo} for each call; changes made to it, such as a format
+     * string computed on demand, are written back to the slot by
+     * {@link #update}. Cells that are computed later (for instance, the
+     * next chunk of a streamed result) are held by {@link #create} as
+     * {@link CellInfo} objects, because evaluation sets their fields after
+     * creating them and consults them in later passes.
+     */
+    static class CellInfoColumns implements CellInfoContainer {
+        private static final byte UNSET = 0;
+        private static final byte NULL = 1;
+        private static final byte DOUBLE = 2;
+        private static final byte INTEGER = 3;
+        private static final byte LONG = 4;
+        private static final byte OBJECT = 5;
+
+        private final int[] axisSizes;
+        private final double[] values;
+        private final byte[] kinds;
+        private final int[] styles;
+        private final List<Pair<String, ValueFormatter>> styleList =
+            new ArrayList<Pair<String, ValueFormatter>>();
+        private final Map<Pair<String, ValueFormatter>, Integer> styleMap =
+            new HashMap<Pair<String, ValueFormatter>, Integer>();
+        private final Map<Integer, Object> objects =
+            new HashMap<Integer, Object>();
+        private final Map<Integer, CellInfo> created =
+            new HashMap<Integer, CellInfo>();
+        private int size;
+
+        /**
+         * Creates a CellInfoColumns.
+         *
+         * @param axisSizes Number of positions on each axis
+         * @param cellCount Number of cells; the product of the axis sizes
+         */
+        CellInfoColumns(int[] axisSizes, int cellCount) {
+            this.axisSizes = axisSizes;
+            this.values = new double[cellCount];
+            this.kinds = new byte[cellCount];
+            this.styles = new int[cellCount];
+        }
+
+        /**
+         * Copies the contents of a container into a new CellInfoColumns.
+         *
+         * <p>Returns the original container if the grid has too many cells
+         * to be addressed by an <code>int</code> ordinal.
+         *
+         * @param source Container populated during evaluation
+         * @param axes Axes of the result
+         * @return Compact container
+         */
+        static CellInfoContainer compact(
+            CellInfoContainer source,
+            Axis[] axes)
+        {
+            final int[] axisSizes = new int[axes.length];
+            long cellCount = 1;
+            for (int i = 0; i < axes.length; i++) {
+                axisSizes[i] = axes[i].getPositions().size();
+                cellCount *= axisSizes[i];
+                if (cellCount > Integer.MAX_VALUE) {
+                    return source;
+                }
+            }
+            final CellInfoColumns columns =
+                new CellInfoColumns(axisSizes, (int) cellCount);
+            final int[] pos = new int[axes.length];
+            for (int ordinal = 0; ordinal < cellCount; ordinal++) {
+                final CellInfo ci = source.lookup(pos);
+                if (ci != null) {
+                    columns.put(ordinal, ci);
+                }
+                // Advance to the next position; axis 0 varies fastest,
+                // consistent with ordinal().
+                for (int i = 0; i < pos.length; i++) {
+                    if (++pos[i] < axisSizes[i]) {
+                        break;
+                    }
+                    pos[i] = 0;
+                }
+            }
+            source.clear();
+            return columns;
+        }
+
+        private void put(int ordinal, CellInfo ci) {
+            final Object value = ci.value;
+            if (value == null) {
+                return;
+            }
+            ++size;
+            if (value == Util.nullValue) {
+                kinds[ordinal] = NULL;
+            } else if (value instanceof Double) {
+                kinds[ordinal] = DOUBLE;
+                values[ordinal] = (Double) value;
+            } else if (value instanceof Integer) {
+                kinds[ordinal] = INTEGER;
+                values[ordinal] = (Integer) value;
+            } else if (value instanceof Long
+                && (long) (double) (Long) value == (Long) value)
+            {
+                kinds[ordinal] = LONG;
+                values[ordinal] = (Long) value;
+            } else {
+                kinds[ordinal] = OBJECT;
+                objects.put(ordinal, value);
+            }
+            final Pair<String, ValueFormatter> style =
+                Pair.of(ci.formatString, ci.valueFormatter);
+            Integer styleOrdinal = styleMap.get(style);
+            if (styleOrdinal == null) {
+                styleOrdinal = styleList.size();
+                styleList.add(style);
+                styleMap.put(style, styleOrdinal);
+            }
+            styles[ordinal] = styleOrdinal;
+        }
+
+        /**
+         * Converts a cell position into an ordinal, or returns -1 if the
+         * position is out of range.
+         */
+        private int ordinal(int[] pos) {
+            int ordinal = 0;
+            for (int i = pos.length - 1; i >= 0; i--) {
+                if (pos[i] < 0 || pos[i] >= axisSizes[i]) {
+                    return -1;
+                }
+                ordinal = ordinal * axisSizes[i] + pos[i];
+            }
+            return ordinal;
+        }
+
+        /**
+         * Removes the value held in a slot.
+         */
+        private void remove(int ordinal) {
+            if (kinds[ordinal] != UNSET) {
+                kinds[ordinal] = UNSET;
+                objects.remove(ordinal);
+                --size;
+            }
+        }
+
+        public int size() {
+            int n = size;
+            for (Integer ordinal : created.keySet()) {
+                if (kinds[ordinal] == UNSET) {
+                    ++n;
+                }
+            }
+            return n;
+        }
+        public void trimToSize() {
+            // empty
+        }
+        public void clear() {
+            Arrays.fill(kinds, UNSET);
+            objects.clear();
+            created.clear();
+            size = 0;
+        }
+        public CellInfo create(int[] pos) {
+            final int ordinal = ordinal(pos);
+            if (ordinal < 0) {
+                throw Util.newError("coordinates out of range");
+            }
+            CellInfo ci = created.get(ordinal);
+            if (ci == null) {
+                ci = materialize(ordinal);
+                remove(ordinal);
+                created.put(ordinal, ci);
+            }
+            return ci;
+        }
+        public CellInfo lookup(int[] pos) {
+            final int ordinal = ordinal(pos);
+            if (ordinal < 0) {
+                return new CellInfo(0);
+            }
+            final CellInfo ci = created.get(ordinal);
+            if (ci != null) {
+                return ci;
+            }
+            return materialize(ordinal);
+        }
+        public void update(int[] pos, CellInfo ci) {
+            final int ordinal = ordinal(pos);
+            if (ordinal < 0 || created.get(ordinal) == ci) {
+                return;
+            }
+            remove(ordinal);
+            put(ordinal, ci);
+        }
+
+        /**
+         * Creates a CellInfo holding the contents of a slot.
+         */
+        private CellInfo materialize(int ordinal) {
+            final Object value;
+            switch (kinds[ordinal]) {
+            case UNSET:
+                return new CellInfo(ordinal);
+            case NULL:
+                value = Util.nullValue;
+                break;
+            case DOUBLE:
+                value = values[ordinal];
+                break;
+            case INTEGER:
+                value = (int) values[ordinal];
+                break;
+            case LONG:
+                value = (long) values[ordinal];
+                break;
+            default:
+                value = objects.get(ordinal);
+                break;
+            }
+            final Pair<String, ValueFormatter> style =
+                styleList.get(styles[ordinal]);
+            return new CellInfo(ordinal, value, style.left, style.right);
+        }
     }
 
     static TupleList mergeAxes(
@@ -213,6 +213,7 @@ public class RolapSchema implements Schema {
         this(key, connectInfo, dataSource, md5Bytes, md5Bytes != null);
         load(catalogUrl, catalogStr);
         assert this.md5Bytes != null;
+        levelPreCachePolicy.loadHotLevels();
     }
 
     /**
@@ -1416,6 +1417,13 @@ System.out.println("RolapSchema.createMemberReader: CONTAINS NAME");
         return nativeRegistry;
     }
 
+    private final LevelPreCachePolicy levelPreCachePolicy =
+        new LevelPreCachePolicy(this);
+
+    LevelPreCachePolicy getLevelPreCachePolicy() {
+        return levelPreCachePolicy;
+    }
+
     /**
      * @return Returns the dataSourceChangeListener.
      */
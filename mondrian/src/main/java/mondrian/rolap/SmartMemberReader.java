@@ -324,28 +324,10 @@ public class SmartMemberReader implements MemberReader {
                 return member;
             } else {
                 SiblingIterator iter = new SiblingIterator(this, member);
-                if (n > 0) {
-                    RolapMember sibling = null;
-                    while (n-- > 0) {
-                        if (!iter.hasNext()) {
-                            return (RolapMember)
-                                member.getHierarchy().getNullMember();
-                        }
-                        sibling = iter.nextMember();
-                    }
-                    return sibling;
-                } else {
-                    n = -n;
-                    RolapMember sibling = null;
-                    while (n-- > 0) {
-                        if (!iter.hasPrevious()) {
-                            return (RolapMember)
-                                member.getHierarchy().getNullMember();
-                        }
-                        sibling = iter.previousMember();
-                    }
-                    return sibling;
-                }
+                final RolapMember lead = iter.lead(n);
+                return lead == null
+                    ? (RolapMember) member.getHierarchy().getNullMember()
+                    : lead;
             }
         }
     }
@@ -517,6 +499,54 @@ public class SmartMemberReader implements MemberReader {
             return this.siblings.get(this.position);
         }
 
+        /**
+         * Moves {@code n} members forward, or backward if {@code n} is
+         * negative, and returns the member arrived at, or null if there are
+         * not enough members.
+         *
+         * <p>Equivalent to calling {@link #nextMember()} or
+         * {@link #previousMember()} {@code |n|} times, but skips whole lists
+         * of siblings at a time, so moving back a year of days reads a
+         * dozen lists of children rather than taking 365 steps.
+         */
+        RolapMember lead(int n) {
+            final boolean forward = n > 0;
+            while (true) {
+                final int target = position + n;
+                if (target >= 0 && target < siblings.size()) {
+                    position = target;
+                    return siblings.get(position);
+                }
+                if (forward) {
+                    if (parentIterator == null || !parentIterator.hasNext()) {
+                        return null;
+                    }
+                    // Steps to reach the first child of the next parent.
+                    n -= siblings.size() - position;
+                    RolapMember parent = parentIterator.nextMember();
+                    List<RolapMember> siblingList =
+                        new ArrayList<RolapMember>();
+                    reader.getMemberChildren(parent, siblingList);
+                    this.siblings = siblingList;
+                    this.position = 0;
+                } else {
+                    if (parentIterator == null
+                        || !parentIterator.hasPrevious())
+                    {
+                        return null;
+                    }
+                    // Steps to reach the last child of the previous parent.
+                    n += position + 1;
+                    RolapMember parent = parentIterator.previousMember();
+                    List<RolapMember> siblingList =
+                        new ArrayList<RolapMember>();
+                    reader.getMemberChildren(parent, siblingList);
+                    this.siblings = siblingList;
+                    this.position = this.siblings.size() - 1;
+                }
+            }
+        }
+
         boolean hasPrevious() {
             return (this.position > 0)
                 || (parentIterator != null)
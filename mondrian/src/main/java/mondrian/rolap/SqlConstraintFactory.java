@@ -124,7 +124,10 @@ public class SqlConstraintFactory {
                 totalCard *=
                     getLevelCardinality((RolapLevel) level);
                 if (totalCard > threshold) {
-                    return false;
+                    // Too large to precache, unless it is a hot level.
+                    return levels.length == 1
+                        && getPreCachePolicy((RolapLevel) level)
+                            .preCache((RolapLevel) level, totalCard);
                 }
             }
         }
@@ -156,11 +159,20 @@ public class SqlConstraintFactory {
     private boolean useDefaultMemberChildrenConstraint(RolapMember parent) {
         int threshold = MondrianProperties.instance()
             .LevelPreCacheThreshold.get();
-        return !enabled
-            || parent.getHierarchy().isRagged()
-            || (!isDegenerate(parent.getLevel())
-            && threshold > 0
-            && getChildLevelCardinality(parent) < threshold);
+        if (!enabled || parent.getHierarchy().isRagged()) {
+            return true;
+        }
+        if (isDegenerate(parent.getLevel()) || threshold <= 0) {
+            return false;
+        }
+        final int cardinality = getChildLevelCardinality(parent);
+        if (cardinality < threshold) {
+            return true;
+        }
+        final RolapLevel childLevel =
+            (RolapLevel) parent.getLevel().getChildLevel();
+        return childLevel != null
+            && getPreCachePolicy(childLevel).preCache(childLevel, cardinality);
     }
 
     private boolean isDegenerate(Level level) {
@@ -186,6 +198,10 @@ public class SqlConstraintFactory {
             .getLevelCardinality(level, true, true);
     }
 
+    private LevelPreCachePolicy getPreCachePolicy(RolapLevel level) {
+        return level.getHierarchy().getRolapSchema().getLevelPreCachePolicy();
+    }
+
     private SchemaReader getSchemaReader(RolapLevel level) {
         return level.getHierarchy().getRolapSchema().getSchemaReader();
     }
@@ -845,14 +845,32 @@ public class SqlConstraintUtils {
 
     /**
      * Check to see if this is in a list of supported calculated members.
-     * Currently, only the Aggregate and the + function is supported.
+     * Currently, only the Aggregate, Sum and + functions are supported.
      *
      * @return <i>true</i> if the calculated member is supported for native
      *         evaluation
      */
     public static boolean isSupportedCalculatedMember(final Member member) {
         // Is it a supported function?
-        return isSupportedExpressionForCalculatedMember(member.getExpression());
+        return isSupportedExpressionForCalculatedMember(member.getExpression())
+            || !member.isMeasure() && isSupportedSum(member.getExpression());
+    }
+
+    /**
+     * Returns whether an expression is a call to Sum over a set, of the
+     * current measure or of a stored measure. On a member of a dimension
+     * other than Measures, such a call reads the same facts as Aggregate.
+     */
+    private static boolean isSupportedSum(final Exp expression) {
+        if (!(expression instanceof ResolvedFunCall)) {
+            return false;
+        }
+        final ResolvedFunCall fun = (ResolvedFunCall) expression;
+        return fun.getFunDef().getName().equals("Sum")
+            && (fun.getArgCount() == 1
+                || fun.getArg(1) instanceof MemberExpr
+                && ((MemberExpr) fun.getArg(1)).getMember()
+                    instanceof RolapStoredMeasure);
     }
 
     public static boolean isSupportedExpressionForCalculatedMember(
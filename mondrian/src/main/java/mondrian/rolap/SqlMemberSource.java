@@ -859,9 +859,33 @@ RME is this right
             return Util.toNullValuesMap(children);
         }
 
-        // fetch them one by one
+        // fetch the children of each level at once, and the rest one by one
+        final Map<RolapLevel, List<RolapMember>> parentsByLevel =
+            new LinkedHashMap<RolapLevel, List<RolapMember>>();
         for (RolapMember parentMember : parentMembers) {
-            getMemberChildren(parentMember, children, mcc);
+            List<RolapMember> list =
+                parentsByLevel.get(parentMember.getLevel());
+            if (list == null) {
+                list = new ArrayList<RolapMember>();
+                parentsByLevel.put(parentMember.getLevel(), list);
+            }
+            list.add(parentMember);
+        }
+        for (List<RolapMember> parents : parentsByLevel.values()) {
+            RolapLevel levelChildLevel =
+                parentsByLevel.size() > 1
+                    ? getCommonChildLevelForDescendants(parents)
+                    : null;
+            if (levelChildLevel != null) {
+                TupleConstraint lmc =
+                    sqlConstraintFactory.getDescendantsConstraint(
+                        parents, mcc);
+                children.addAll(getMembersInLevel(levelChildLevel, lmc));
+            } else {
+                for (RolapMember parentMember : parents) {
+                    getMemberChildren(parentMember, children, mcc);
+                }
+            }
         }
         return Util.toNullValuesMap(children);
     }
@@ -12,7 +12,11 @@
 package mondrian.rolap;
 
 import mondrian.calc.TupleCollections;
+import mondrian.calc.TupleCursor;
+import mondrian.calc.TupleIterable;
 import mondrian.calc.TupleList;
+import mondrian.calc.impl.AbstractTupleCursor;
+import mondrian.calc.impl.AbstractTupleIterable;
 import mondrian.calc.impl.ArrayTupleList;
 import mondrian.calc.impl.ListTupleList;
 import mondrian.calc.impl.UnaryTupleList;
@@ -34,6 +38,7 @@ import mondrian.util.Pair;
 
 import org.apache.log4j.Logger;
 
+import java.io.Closeable;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
@@ -101,6 +106,21 @@ public class SqlTupleReader implements TupleReader {
     private boolean allowHints = true;
     private HashMap<RolapMember, Object> rolapToOrdinalMap = new HashMap<>();
 
+    /**
+     * Returns the number of members this reader holds on to in its lookup
+     * maps. Used by tests to check that a streaming cursor does not
+     * accumulate members.
+     */
+    int getRetainedMemberCount() {
+        int count = rolapToOrdinalMap.size();
+        for (TargetBase target : targets) {
+            if (target instanceof Target) {
+                count += ((Target) target).keyToMember.size();
+            }
+        }
+        return count;
+    }
+
     public boolean isAllowHints() {
         return allowHints;
     }
@@ -123,6 +143,9 @@ public class SqlTupleReader implements TupleReader {
         final HashMap<Object, RolapMember> keyToMember =
             new HashMap<Object, RolapMember>();
         List<List<RolapMember>> siblings;
+        // whether rows are being streamed by a StreamingTupleCursor; if so,
+        // members must not be retained once the row has been read
+        boolean streaming;
         // if set, the rows for this target come from the array rather
         // than native sql
         // current member within the current result set row
@@ -242,8 +265,9 @@ public class SqlTupleReader implements TupleReader {
                             childLevel.getKeyExp()))
                     {
                         Object ordinal = accessors.get(column++).get();
-                        Object prevValue = rolapToOrdinalMap
-                                .put(member, ordinal);
+                        Object prevValue = streaming
+                            ? null
+                            : rolapToOrdinalMap.put(member, ordinal);
                         if (prevValue != null
                                 && !Util.equals(prevValue, ordinal))
                         {
@@ -257,8 +281,11 @@ public class SqlTupleReader implements TupleReader {
                     column += childLevel.getProperties().length;
 
                     // Cache in our intermediate map the key/member pair
-                    // for later lookups of children.
-                    keyToMember.put(member.getKey(), member);
+                    // for later lookups of children. Only parent-child levels
+                    // look members up there, and those are never streamed.
+                    if (!streaming) {
+                        keyToMember.put(member.getKey(), member);
+                    }
 
                     if (member != members.get(i)) {
                         // Flush list we've been building.
@@ -690,6 +717,234 @@ public class SqlTupleReader implements TupleReader {
         return tupleList;
     }
 
+    /**
+     * Returns the tuples as an iterable that reads them from the database
+     * only as they are consumed, instead of reading them all into a list.
+     * Each cursor of the iterable executes the query, and holds only the
+     * current row; the JDBC driver fetches rows in chunks of
+     * {@link MondrianProperties#TupleReaderFetchSize}. A cursor closes its
+     * statement when it reaches the end of the rows; a consumer that stops
+     * early may close it, if it is {@link Closeable}, and otherwise it is
+     * closed when the execution ends.
+     *
+     * <p>The tuples are in the order of the query, so the member with a
+     * null key, if any, comes last rather than first as in
+     * {@link #readMembers}.
+     *
+     * <p>Returns null if the tuples cannot be read in a single pass over a
+     * single query: if any target is enumerated rather than read, or is in
+     * a parent-child hierarchy, if the set is empty, or if the targets join
+     * to the fact tables of a virtual cube in several groups.
+     *
+     * @param dataSource Data source
+     * @return Iterable over the tuples, or null
+     */
+    public TupleIterable iterateTuples(final DataSource dataSource) {
+        if (getEnumTargetCount() > 0 || emptySets > 0) {
+            return null;
+        }
+        for (TargetBase target : targets) {
+            if (target.getLevel().isParentChild()) {
+                return null;
+            }
+        }
+        if (constraint.getEvaluator() != null
+            && groupTargets(targets, constraint.getEvaluator().getQuery())
+                .size() > 1)
+        {
+            return null;
+        }
+        return new AbstractTupleIterable(targets.size()) {
+            public TupleCursor tupleCursor() {
+                return new StreamingTupleCursor(dataSource);
+            }
+        };
+    }
+
+    /**
+     * Cursor that reads one row of the query for each tuple.
+     *
+     * @see #iterateTuples(javax.sql.DataSource)
+     */
+    private class StreamingTupleCursor
+        extends AbstractTupleCursor
+        implements Closeable
+    {
+        private final DataSource dataSource;
+        private final Execution execution = Locus.peek().execution;
+        private final int limit =
+            MondrianProperties.instance().ResultLimit.get();
+        private SqlStatement stmt;
+        private ResultSet resultSet;
+        private List<Member> current;
+        private boolean done;
+
+        StreamingTupleCursor(DataSource dataSource) {
+            super(targets.size());
+            this.dataSource = dataSource;
+        }
+
+        public boolean forward() {
+            if (done) {
+                return false;
+            }
+            try {
+                if (stmt == null) {
+                    open();
+                }
+                CancellationChecker.checkCancelOrTimeout(
+                    stmt.rowCount, execution);
+                if (!resultSet.next()) {
+                    // Complete the lists of children that the targets have
+                    // been building for the member cache.
+                    for (TargetBase target : targets) {
+                        target.close();
+                    }
+                    close();
+                    return false;
+                }
+                if (limit > 0 && limit < ++stmt.rowCount) {
+                    close();
+                    throw MondrianResource.instance().MemberFetchLimitExceeded
+                        .ex((long) limit);
+                }
+                final Member[] members = new Member[arity];
+                int column = 0;
+                for (int i = 0; i < arity; i++) {
+                    final TargetBase target = targets.get(i);
+                    target.setCurrMember(null);
+                    column = target.addRow(stmt, column);
+                    members[i] = target.getCurrMember();
+                    // Do not accumulate the members of the target.
+                    target.getList().clear();
+                }
+                current = Arrays.asList(members);
+                return true;
+            } catch (SQLException e) {
+                done = true;
+                execution.unregisterCloseable(this);
+                throw stmt.handle(e);
+            }
+        }
+
+        private void open() {
+            final String message =
+                "Populating member cache with members for " + targets;
+            final Pair<String, List<SqlStatement.Type>> pair =
+                makeLevelMembersSql(dataSource, targets);
+            stmt = RolapUtil.executeQuery(
+                dataSource, pair.left, pair.right, maxRows, 0,
+                new SqlStatement.StatementLocus(
+                    execution,
+                    "SqlTupleReader.iterateTuples " + targets,
+                    message,
+                    SqlStatementEvent.Purpose.TUPLES, 0),
+                -1, -1, null);
+            execution.registerCloseable(this);
+            resultSet = stmt.getResultSet();
+            final int fetchSize =
+                MondrianProperties.instance().TupleReaderFetchSize.get();
+            try {
+                if (fetchSize > 0) {
+                    resultSet.setFetchSize(fetchSize);
+                }
+            } catch (SQLException e) {
+                // The fetch size is only a hint.
+                LOGGER.debug("Could not set fetch size", e);
+            }
+            for (TargetBase target : targets) {
+                target.open();
+                if (target instanceof Target) {
+                    ((Target) target).streaming = true;
+                }
+            }
+        }
+
+        public List<Member> current() {
+            return current;
+        }
+
+        public void close() {
+            done = true;
+            if (stmt != null) {
+                execution.unregisterCloseable(this);
+                stmt.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of tuples that {@link #readTuples} would return,
+     * counted by the database with a single <code>SELECT COUNT(*)</code>
+     * over the query that reads them, without reading any member.
+     *
+     * <p>Returns -1 if the tuples cannot be counted that way: if any target
+     * is enumerated rather than read, if the targets join to the fact
+     * tables of a virtual cube, or if the dialect does not allow a query in
+     * the FROM clause.
+     *
+     * @param dataSource Data source
+     * @return Number of tuples, or -1
+     */
+    public int countTuples(DataSource dataSource) {
+        if (getEnumTargetCount() > 0) {
+            return -1;
+        }
+        if (emptySets > 0) {
+            return 0;
+        }
+        RolapCube cube = null;
+        if (constraint instanceof SqlContextConstraint) {
+            cube = (RolapCube) constraint.getEvaluator().getQuery().getCube();
+            if (((SqlContextConstraint) constraint).isJoinRequired()
+                && cube.isVirtual())
+            {
+                return -1;
+            }
+        }
+        final String message = "Counting members of level(s) " + targets;
+        final SqlQuery countQuery = SqlQuery.newQuery(dataSource, message);
+        if (!countQuery.getDialect().allowsFromQuery()) {
+            return -1;
+        }
+        // The inner query has no ORDER BY, which some databases do not
+        // allow in a sub-query.
+        final Pair<String, List<SqlStatement.Type>> pair =
+            generateSelectForLevels(
+                dataSource, cube, WhichSelect.NOT_LAST, targets);
+        countQuery.addFromQuery(pair.left, "countQuery", true);
+        countQuery.addSelect("count(*)", SqlStatement.Type.INT);
+        final Pair<String, List<SqlStatement.Type>> countPair =
+            countQuery.toSqlAndTypes();
+        SqlStatement stmt = null;
+        try {
+            stmt = RolapUtil.executeQuery(
+                dataSource, countPair.left, countPair.right, 0, 0,
+                new SqlStatement.StatementLocus(
+                    Locus.peek().execution,
+                    "SqlTupleReader.countTuples " + targets,
+                    message,
+                    SqlStatementEvent.Purpose.TUPLES, 0),
+                -1, -1, null);
+            final ResultSet resultSet = stmt.getResultSet();
+            if (!resultSet.next()) {
+                return 0;
+            }
+            ++stmt.rowCount;
+            return resultSet.getInt(1);
+        } catch (SQLException e) {
+            if (stmt == null) {
+                throw Util.newError(e, message);
+            } else {
+                throw stmt.handle(e);
+            }
+        } finally {
+            if (stmt != null) {
+                stmt.close();
+            }
+        }
+    }
+
   /**
    * Projects the attributes using the original ordering in targets, then
    * copies to a ArrayTupleList (the .project method returns a basic TupleList
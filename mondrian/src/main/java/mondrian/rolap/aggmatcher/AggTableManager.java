@@ -29,7 +29,9 @@ import javax.sql.DataSource;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Manages aggregate tables.
@@ -183,6 +185,10 @@ public class AggTableManager {
                 // loads tables, not their columns
                 db.load();
 
+                // loads the columns of the tables that might be fact or
+                // aggregate tables, in one round trip if possible
+                db.loadColumns(getCandidateTables(db, rules));
+
                 loop:
                 for (RolapStar star : getStars()) {
                     // This removes any AggStars from any previous invocation of
@@ -305,6 +311,43 @@ public class AggTableManager {
         }
     }
 
+    /**
+     * Returns the tables whose columns {@link #loadRolapStarAggregates()}
+     * will need: the fact table of each star, and each table that an explicit
+     * or default rule could recognize as one of its aggregate tables.
+     */
+    private Collection<JdbcSchema.Table> getCandidateTables(
+        JdbcSchema db,
+        DefaultRules rules)
+    {
+        final boolean readAggregates =
+            MondrianProperties.instance().ReadAggregates.get();
+        final Set<JdbcSchema.Table> tables =
+            new LinkedHashSet<JdbcSchema.Table>();
+        for (RolapStar star : getStars()) {
+            final String factTableName = getFactTableName(star);
+            final JdbcSchema.Table dbFactTable = db.getTable(factTableName);
+            if (dbFactTable == null) {
+                continue;
+            }
+            tables.add(dbFactTable);
+            final List<ExplicitRules.Group> aggGroups = getAggGroups(star);
+            for (JdbcSchema.Table dbTable : db.getTables()) {
+                final String name = dbTable.getName();
+                if (ExplicitRules.excludeTable(name, aggGroups)) {
+                    continue;
+                }
+                if (ExplicitRules.getIncludeByTableDef(name, aggGroups) != null
+                    || readAggregates
+                    && rules.matchesTableName(factTableName, name))
+                {
+                    tables.add(dbTable);
+                }
+            }
+        }
+        return tables;
+    }
+
     private Collection<RolapStar> getStars() {
         return schema.getStars();
     }
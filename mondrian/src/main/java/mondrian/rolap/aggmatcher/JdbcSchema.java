@@ -13,19 +13,20 @@ package mondrian.rolap.aggmatcher;
 
 import mondrian.olap.MondrianDef;
 import mondrian.olap.MondrianProperties;
+import mondrian.olap.Util;
 import mondrian.resource.MondrianResource;
 import mondrian.rolap.RolapAggregator;
 import mondrian.rolap.RolapLevel;
 import mondrian.rolap.RolapStar;
 import mondrian.spi.Dialect;
+import mondrian.util.ByteString;
 import mondrian.util.ClassResolver;
 
 import org.apache.log4j.Logger;
 
 import org.olap4j.impl.Olap4jUtil;
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.*;
 import java.lang.ref.SoftReference;
 import java.sql.*;
 import java.util.*;
@@ -57,6 +58,9 @@ public class JdbcSchema {
 
     private static final MondrianResource mres = MondrianResource.instance();
 
+    private static final String SNAPSHOT_PREFIX = "jdbc-schema-";
+    private static final String SNAPSHOT_SUFFIX = ".txt";
+
     /**
      * Returns the Logger.
      */
@@ -1066,33 +1070,13 @@ public class JdbcSchema {
 
                     ResultSet rs = null;
                     try {
-                        Map<String, Column> map = getColumnMap();
                         rs = dmd.getColumns(
                             catalog,
                             schema,
                             tableName,
                             columnNamePattern);
                         while (rs.next()) {
-                            String name = rs.getString(4);
-                            int type = rs.getInt(5);
-                            String typeName = rs.getString(6);
-                            int columnSize = rs.getInt(7);
-                            int decimalDigits = rs.getInt(9);
-                            int numPrecRadix = rs.getInt(10);
-                            int charOctetLength = rs.getInt(16);
-                            String isNullable = rs.getString(18);
-
-                            Column column = new Column(name);
-                            column.setType(type);
-                            column.setTypeName(typeName);
-                            column.setColumnSize(columnSize);
-                            column.setDecimalDigits(decimalDigits);
-                            column.setNumPrecRadix(numPrecRadix);
-                            column.setCharOctetLength(charOctetLength);
-                            column.setIsNullable(!"NO".equals(isNullable));
-
-                            map.put(name, column);
-                            totalColumnSize += column.getColumnSize();
+                            addColumn(rs);
                         }
                     } finally {
                         if (rs != null) {
@@ -1111,6 +1095,52 @@ public class JdbcSchema {
             }
         }
 
+        /**
+         * Creates a Column from the current row of a result set returned by
+         * {@link DatabaseMetaData#getColumns}.
+         */
+        private void addColumn(ResultSet rs) throws SQLException {
+            addColumn(
+                rs.getString(4),
+                rs.getInt(5),
+                rs.getString(6),
+                rs.getInt(7),
+                rs.getInt(9),
+                rs.getInt(10),
+                rs.getInt(16),
+                !"NO".equals(rs.getString(18)));
+        }
+
+        private void addColumn(
+            String name,
+            int type,
+            String typeName,
+            int columnSize,
+            int decimalDigits,
+            int numPrecRadix,
+            int charOctetLength,
+            boolean isNullable)
+        {
+            Column column = new Column(name);
+            column.setType(type);
+            column.setTypeName(typeName);
+            column.setColumnSize(columnSize);
+            column.setDecimalDigits(decimalDigits);
+            column.setNumPrecRadix(numPrecRadix);
+            column.setCharOctetLength(charOctetLength);
+            column.setIsNullable(isNullable);
+
+            getColumnMap().put(name, column);
+            totalColumnSize += column.getColumnSize();
+        }
+
+        /**
+         * Returns whether the columns of this table have been loaded.
+         */
+        boolean isColumnsLoaded() {
+            return allColumnsLoaded;
+        }
+
         public Map<String, Column> getColumnMap() {
             if (columnMap == null) {
                 columnMap = new HashMap<String, Column>();
@@ -1124,6 +1154,20 @@ public class JdbcSchema {
     private String catalog;
     private boolean allTablesLoaded;
 
+    /**
+     * File to which the tables and columns are saved, or null if snapshots
+     * are disabled; see
+     * {@link MondrianProperties#AggregateMetadataSnapshotDir}. Set when the
+     * tables are loaded.
+     */
+    private File snapshotFile;
+
+    /**
+     * Identifies the database whose metadata is in {@link #snapshotFile};
+     * the first line of the file.
+     */
+    private String snapshotKey;
+
     /**
      * Tables by name. We use a sorted map so {@link #getTables()}'s output
      * is in deterministic order.
@@ -1147,6 +1191,10 @@ public class JdbcSchema {
     protected synchronized void clear() {
         // keep the DataSource, clear/reset everything else
         allTablesLoaded = false;
+        if (snapshotFile != null) {
+            snapshotFile.delete();
+            snapshotFile = null;
+        }
         schema = null;
         catalog = null;
         tables.clear();
@@ -1220,6 +1268,90 @@ public class JdbcSchema {
         }
     }
 
+    /**
+     * Loads the columns of several tables.
+     *
+     * <p>If more than one table needs loading, reads the columns of all tables
+     * in one call to {@link DatabaseMetaData#getColumns}, rather than one call
+     * per table. Some drivers fail or return nothing when the table name
+     * is a pattern; tables whose columns did not come back are loaded one by
+     * one.
+     *
+     * @param tableList Tables
+     * @throws SQLException on error
+     */
+    synchronized void loadColumns(Collection<Table> tableList)
+        throws SQLException
+    {
+        final Map<String, Table> pending = new HashMap<String, Table>();
+        for (Table table : tableList) {
+            if (!table.isColumnsLoaded()) {
+                pending.put(table.getName(), table);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (pending.size() > 1) {
+            try {
+                loadAllColumns(pending);
+            } catch (SQLException e) {
+                getLogger().debug(
+                    "Could not read columns of all tables at once; "
+                    + "reading them table by table",
+                    e);
+                for (Table table : pending.values()) {
+                    table.getColumnMap().clear();
+                    table.totalColumnSize = 0;
+                }
+            }
+        }
+        for (Table table : pending.values()) {
+            if (table.getColumnMap().isEmpty()) {
+                table.loadColumns();
+            } else {
+                table.allColumnsLoaded = true;
+            }
+        }
+        writeSnapshot();
+    }
+
+    /**
+     * Reads the columns of all tables in the schema, and adds those of the
+     * given tables.
+     */
+    private void loadAllColumns(Map<String, Table> pending)
+        throws SQLException
+    {
+        Connection conn = getDataSource().getConnection();
+        try {
+            ResultSet rs = null;
+            try {
+                rs = conn.getMetaData().getColumns(
+                    getCatalogName(),
+                    getSchemaName(),
+                    "%",
+                    "%");
+                while (rs.next()) {
+                    final Table table = pending.get(rs.getString(3));
+                    if (table != null) {
+                        table.addColumn(rs);
+                    }
+                }
+            } finally {
+                if (rs != null) {
+                    rs.close();
+                }
+            }
+        } finally {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                // ignore
+            }
+        }
+    }
+
     /**
      * Gets a table by name.
      */
@@ -1264,6 +1396,11 @@ public class JdbcSchema {
         try {
             conn = getDataSource().getConnection();
             final DatabaseMetaData databaseMetaData = conn.getMetaData();
+            initSnapshot(databaseMetaData);
+            if (readSnapshot()) {
+                allTablesLoaded = true;
+                return;
+            }
             String[] tableTypes = { "TABLE", "VIEW" };
             if (databaseMetaData.getDatabaseProductName().toUpperCase().indexOf(
                     "VERTICA") >= 0)
@@ -1275,6 +1412,7 @@ public class JdbcSchema {
                 loadTablesOfType(databaseMetaData, tableTypes);
             }
             allTablesLoaded = true;
+            writeSnapshot();
         } finally {
             if (conn != null) {
                 conn.close();
@@ -1334,9 +1472,198 @@ public class JdbcSchema {
         return tables;
     }
 
+    /**
+     * Determines the snapshot file of this database, if snapshots are
+     * enabled.
+     */
+    private void initSnapshot(DatabaseMetaData databaseMetaData)
+        throws SQLException
+    {
+        final File dir = getSnapshotDir();
+        if (dir == null) {
+            snapshotFile = null;
+            return;
+        }
+        snapshotKey =
+            databaseMetaData.getURL()
+            + '\t' + databaseMetaData.getUserName()
+            + '\t' + getCatalogName()
+            + '\t' + getSchemaName();
+        snapshotFile =
+            new File(
+                dir,
+                SNAPSHOT_PREFIX
+                + new ByteString(Util.digestMd5(snapshotKey))
+                + SNAPSHOT_SUFFIX);
+    }
+
+    private static File getSnapshotDir() {
+        final String dir =
+            MondrianProperties.instance().AggregateMetadataSnapshotDir.get();
+        return dir == null || dir.length() == 0 ? null : new File(dir);
+    }
+
+    /**
+     * Populates the tables, and the columns of those tables whose columns
+     * were loaded, from the snapshot file.
+     *
+     * <p>Each line of the file after the first is a table,
+     * "T name type", or a column, "C table name type typeName columnSize
+     * decimalDigits numPrecRadix charOctetLength isNullable", with fields
+     * separated by tabs.
+     *
+     * @return whether the snapshot was read
+     */
+    private boolean readSnapshot() {
+        if (snapshotFile == null || !snapshotFile.isFile()) {
+            return false;
+        }
+        BufferedReader reader = null;
+        try {
+            reader =
+                new BufferedReader(
+                    new InputStreamReader(
+                        new FileInputStream(snapshotFile), "UTF-8"));
+            if (!snapshotKey.equals(reader.readLine())) {
+                return false;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] fields = line.split("\t", -1);
+                if (fields[0].equals("T")) {
+                    tables.put(
+                        fields[1], new Table(fields[1], nullIfEmpty(fields[2])));
+                } else {
+                    final Table table = tables.get(fields[1]);
+                    table.addColumn(
+                        fields[2],
+                        Integer.parseInt(fields[3]),
+                        nullIfEmpty(fields[4]),
+                        Integer.parseInt(fields[5]),
+                        Integer.parseInt(fields[6]),
+                        Integer.parseInt(fields[7]),
+                        Integer.parseInt(fields[8]),
+                        Boolean.parseBoolean(fields[9]));
+                    table.allColumnsLoaded = true;
+                }
+            }
+            getLogger().debug("Read JDBC metadata snapshot " + snapshotFile);
+            return true;
+        } catch (Exception e) {
+            getLogger().warn(
+                "Ignoring JDBC metadata snapshot " + snapshotFile, e);
+            tables.clear();
+            return false;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the tables, and the columns that have been loaded, to the
+     * snapshot file, if snapshots are enabled.
+     */
+    private void writeSnapshot() {
+        if (snapshotFile == null) {
+            return;
+        }
+        final StringBuilder buf = new StringBuilder(snapshotKey).append('\n');
+        for (Table table : tables.values()) {
+            append(buf.append("T"), table.getName());
+            append(buf, table.getTableType());
+            buf.append('\n');
+        }
+        for (Table table : tables.values()) {
+            if (!table.isColumnsLoaded()) {
+                continue;
+            }
+            for (Table.Column column : table.getColumns()) {
+                append(buf.append("C"), table.getName());
+                append(buf, column.getName());
+                buf.append('\t').append(column.getType());
+                append(buf, column.getTypeName());
+                buf.append('\t').append(column.getColumnSize())
+                    .append('\t').append(column.getDecimalDigits())
+                    .append('\t').append(column.getNumPrecRadix())
+                    .append('\t').append(column.getCharOctetLength())
+                    .append('\t').append(column.isNullable())
+                    .append('\n');
+            }
+        }
+        final File tempFile =
+            new File(snapshotFile.getPath() + ".tmp");
+        Writer writer = null;
+        try {
+            snapshotFile.getParentFile().mkdirs();
+            writer =
+                new OutputStreamWriter(
+                    new FileOutputStream(tempFile), "UTF-8");
+            writer.write(buf.toString());
+            writer.close();
+            writer = null;
+            if (!tempFile.renameTo(snapshotFile)) {
+                snapshotFile.delete();
+                if (!tempFile.renameTo(snapshotFile)) {
+                    throw new IOException("Could not rename " + tempFile);
+                }
+            }
+        } catch (IOException e) {
+            getLogger().warn(
+                "Could not write JDBC metadata snapshot " + snapshotFile, e);
+            tempFile.delete();
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends a tab and a field to a line of the snapshot. Tabs and line
+     * breaks, which cannot occur in sane identifiers, are replaced by
+     * spaces.
+     */
+    private static void append(StringBuilder buf, String field) {
+        buf.append('\t');
+        if (field != null) {
+            buf.append(field.replace('\t', ' ').replace('\n', ' '));
+        }
+    }
+
+    private static String nullIfEmpty(String s) {
+        return s.length() == 0 ? null : s;
+    }
+
+    /**
+     * Discards the JdbcSchema of every DataSource, and deletes any snapshot
+     * files, so that metadata is read again from JDBC.
+     */
     public static synchronized void clearAllDBs() {
         factory = null;
         makeFactory();
+        final File dir = getSnapshotDir();
+        if (dir != null) {
+            final File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (file.getName().startsWith(SNAPSHOT_PREFIX)
+                        && file.getName().endsWith(SNAPSHOT_SUFFIX))
+                    {
+                        file.delete();
+                    }
+                }
+            }
+        }
     }
 }
 
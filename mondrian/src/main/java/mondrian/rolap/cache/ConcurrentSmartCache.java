@@ -0,0 +1,222 @@
+/*
+// This software is subject to the terms of the Eclipse Public License v1.0
+// Agreement, available at the following URL:
+// http://www.eclipse.org/legal/epl-v10.html.
+// You must accept the terms of that agreement to use this software.
+//
+// Copyright (C) 2015-2015 Pentaho and others
+// All Rights Reserved.
+*/
+package mondrian.rolap.cache;
+
+import mondrian.olap.MondrianProperties;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An implementation of {@link SmartCache} backed by a
+ * {@link ConcurrentHashMap}, so that threads do not contend for a single
+ * lock to read it.
+ *
+ * <p>Reads take no lock. Puts and removes run concurrently with each other,
+ * on the lock striping of the map; only {@link #execute(SmartCacheTask)},
+ * which needs a consistent view, excludes them.
+ *
+ * <p>Values are held softly or strongly. A soft value that the garbage
+ * collector clears is removed from the map on the next write. If the cache
+ * has a maximum size, a put that exceeds it evicts other entries, in no
+ * particular order.
+ *
+ * @see MondrianProperties#ConcurrentSmartCache
+ */
+public class ConcurrentSmartCache<K, V> implements SmartCache<K, V> {
+    private final ConcurrentHashMap<K, Object> map =
+        new ConcurrentHashMap<K, Object>();
+    private final boolean soft;
+    private final int maxSize;
+    private final ReferenceQueue<V> queue = new ReferenceQueue<V>();
+
+    /**
+     * Shared by writers; held exclusively by {@link #execute}.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Creates a ConcurrentSmartCache.
+     *
+     * @param soft Whether values are held by soft references
+     * @param maxSize Maximum number of entries, or 0 if unbounded
+     */
+    public ConcurrentSmartCache(boolean soft, int maxSize) {
+        this.soft = soft;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Creates a cache whose values are held softly: a
+     * {@link ConcurrentSmartCache} if
+     * {@link MondrianProperties#ConcurrentSmartCache} is set, otherwise a
+     * {@link SoftSmartCache}.
+     */
+    public static <K, V> SmartCache<K, V> createSoftCache() {
+        final MondrianProperties properties = MondrianProperties.instance();
+        if (properties.ConcurrentSmartCache.get()) {
+            return new ConcurrentSmartCache<K, V>(
+                true, properties.ConcurrentSmartCacheMaxSize.get());
+        }
+        return new SoftSmartCache<K, V>();
+    }
+
+    public V get(K key) {
+        return unwrap(map.get(key));
+    }
+
+    public V put(K key, V value) {
+        // As in SoftSmartCache, a null value is a remove.
+        if (value == null) {
+            return remove(key);
+        }
+        lock.readLock().lock();
+        try {
+            purge();
+            final V previous = unwrap(map.put(key, wrap(key, value)));
+            if (maxSize > 0 && map.size() > maxSize) {
+                evict(key);
+            }
+            return previous;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public V remove(K key) {
+        lock.readLock().lock();
+        try {
+            purge();
+            return unwrap(map.remove(key));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.readLock().lock();
+        try {
+            map.clear();
+            purge();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public void execute(SmartCacheTask<K, V> task) {
+        lock.writeLock().lock();
+        try {
+            purge();
+            task.execute(new EntryIterator());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Object wrap(K key, V value) {
+        return soft ? new SoftValue<K, V>(key, value, queue) : value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V unwrap(Object o) {
+        if (o instanceof SoftValue) {
+            return ((SoftValue<K, V>) o).get();
+        }
+        return (V) o;
+    }
+
+    /**
+     * Removes the entries whose soft values have been cleared.
+     */
+    @SuppressWarnings("unchecked")
+    private void purge() {
+        SoftValue<K, V> ref;
+        while ((ref = (SoftValue<K, V>) queue.poll()) != null) {
+            map.remove(ref.key, ref);
+        }
+    }
+
+    /**
+     * Removes entries, other than the one just put, until the cache is within
+     * its maximum size.
+     */
+    private void evict(K keptKey) {
+        final Iterator<K> iterator = map.keySet().iterator();
+        while (map.size() > maxSize && iterator.hasNext()) {
+            final K key = iterator.next();
+            if (!key.equals(keptKey)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Soft reference to a value, that remembers its key so that the entry
+     * can be removed when the value is cleared.
+     */
+    private static class SoftValue<K, V> extends SoftReference<V> {
+        private final K key;
+
+        SoftValue(K key, V value, ReferenceQueue<V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+    }
+
+    /**
+     * Iterator over the entries whose values have not been cleared.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private final Iterator<Map.Entry<K, Object>> iterator =
+            map.entrySet().iterator();
+        private Map.Entry<K, V> next;
+
+        public boolean hasNext() {
+            while (next == null && iterator.hasNext()) {
+                final Map.Entry<K, Object> entry = iterator.next();
+                final V value = unwrap(entry.getValue());
+                if (value != null) {
+                    next =
+                        new AbstractMap.SimpleImmutableEntry<K, V>(
+                            entry.getKey(), value);
+                }
+            }
+            return next != null;
+        }
+
+        public Map.Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Map.Entry<K, V> entry = next;
+            next = null;
+            return entry;
+        }
+
+        public void remove() {
+            if (next != null) {
+                // hasNext() has moved the underlying iterator past the entry
+                // last returned.
+                throw new IllegalStateException();
+            }
+            iterator.remove();
+        }
+    }
+}
+
+// End ConcurrentSmartCache.java
@@ -18,6 +18,8 @@ import mondrian.server.monitor.*;
 
 import org.apache.log4j.MDC;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.*;
 import java.util.Map.Entry;
 
@@ -48,6 +50,13 @@ public class Execution {
     private final Map<Locus, java.sql.Statement> statements =
         new HashMap<Locus, java.sql.Statement>();
 
+    /**
+     * Resources, such as cursors over SQL result sets, that are still open
+     * and are closed when this execution ends. Synchronized on
+     * {@link #sqlStateLock}.
+     */
+    private final Set<Closeable> closeables = new LinkedHashSet<Closeable>();
+
     private State state = State.FRESH;
 
     /**
@@ -77,6 +86,10 @@ public class Execution {
     private int cellCacheHitCount;
     private int cellCacheMissCount;
     private int cellCachePendingCount;
+    private int nativeSetCacheHitCount;
+    private int nativeSetCacheMissCount;
+    private int levelPreCacheHotCount;
+    private int levelPreCacheRefusedCount;
 
     /**
      * Execution id, global within this JVM instance.
@@ -377,6 +390,7 @@ public class Execution {
             }
             // Clear pointer to pending SQL statements
             statements.clear();
+            closeResources();
             // Unregister all segments
             unregisterSegmentRequests();
             // Fire up a monitor event.
@@ -451,6 +465,46 @@ public class Execution {
         }
     }
 
+    /**
+     * Registers a resource to be closed when this execution ends, if it has
+     * not been closed before. A cursor that stops reading a SQL result set
+     * part way, for example, does not need to be closed by its consumer.
+     *
+     * @param closeable Resource
+     */
+    public void registerCloseable(Closeable closeable) {
+        synchronized (sqlStateLock) {
+            closeables.add(closeable);
+        }
+    }
+
+    /**
+     * Removes a resource that has been closed from the set that is closed
+     * when this execution ends.
+     *
+     * @param closeable Resource
+     */
+    public void unregisterCloseable(Closeable closeable) {
+        synchronized (sqlStateLock) {
+            closeables.remove(closeable);
+        }
+    }
+
+    private void closeResources() {
+        final List<Closeable> list;
+        synchronized (sqlStateLock) {
+            list = new ArrayList<Closeable>(closeables);
+            closeables.clear();
+        }
+        for (Closeable closeable : list) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignore; the execution is over
+            }
+        }
+    }
+
     private void fireExecutionEndEvent() {
         final RolapConnection connection =
             statement.getMondrianConnection();
@@ -466,7 +520,11 @@ public class Execution {
                 this.state,
                 this.cellCacheHitCount,
                 this.cellCacheMissCount,
-                this.cellCachePendingCount));
+                this.cellCachePendingCount,
+                this.nativeSetCacheHitCount,
+                this.nativeSetCacheMissCount,
+                this.levelPreCacheHotCount,
+                this.levelPreCacheRefusedCount));
     }
 
     private void fireExecutionStartEvent() {
@@ -495,6 +553,37 @@ public class Execution {
         this.cellCachePendingCount = cellCachePendingCount;
     }
 
+    /**
+     * Called when a native set is found in the native set cache.
+     */
+    public void incrementNativeSetCacheHitCount() {
+        ++nativeSetCacheHitCount;
+    }
+
+    /**
+     * Called when a native set is not in the native set cache, and must be
+     * read using SQL.
+     */
+    public void incrementNativeSetCacheMissCount() {
+        ++nativeSetCacheMissCount;
+    }
+
+    /**
+     * Called when a level above the pre-cache threshold is read in full
+     * because it is accessed often.
+     */
+    public void incrementLevelPreCacheHotCount() {
+        ++levelPreCacheHotCount;
+    }
+
+    /**
+     * Called when a level is not read in full because it is too large,
+     * however often it is accessed.
+     */
+    public void incrementLevelPreCacheRefusedCount() {
+        ++levelPreCacheRefusedCount;
+    }
+
     /**
      * Enumeration of the states of an Execution instance.
      */
@@ -61,6 +61,14 @@ public class Locus {
         return THREAD_LOCAL.get().peek();
     }
 
+    /**
+     * Returns whether there is no locus on the current thread's stack, in
+     * which case {@link #peek()} would throw.
+     */
+    public static boolean isEmpty() {
+        return THREAD_LOCAL.get().isEmpty();
+    }
+
     public static <T> T execute(
         RolapConnection connection,
         String component,
@@ -237,7 +237,11 @@ class MonitorImpl
                 aggExec.cellCacheSegmentCreateViaRollupCount,
                 aggExec.cellCacheSegmentCreateViaSqlCount,
                 aggExec.cellCacheSegmentCellCount,
-                aggExec.cellCacheSegmentCoordinateSum);
+                aggExec.cellCacheSegmentCoordinateSum,
+                aggExec.nativeSetCacheHitCount,
+                aggExec.nativeSetCacheMissCount,
+                aggExec.levelPreCacheHotCount,
+                aggExec.levelPreCacheRefusedCount);
         }
     }
 
@@ -352,6 +356,10 @@ class MonitorImpl
         private int cellCacheSegmentDeleteCount;
         private int cellCacheSegmentCoordinateSum;
         private int cellCacheSegmentCellCount;
+        private int nativeSetCacheHitCount;
+        private int nativeSetCacheMissCount;
+        private int levelPreCacheHotCount;
+        private int levelPreCacheRefusedCount;
         private final String stack;
 
         public MutableExecutionInfo(
@@ -772,6 +780,10 @@ class MonitorImpl
             exec.cellCacheHitCountDelta = 0;
             exec.cellCacheMissCountDelta = 0;
             exec.cellCachePendingCountDelta = 0;
+            exec.nativeSetCacheHitCount += event.nativeSetCacheHitCount;
+            exec.nativeSetCacheMissCount += event.nativeSetCacheMissCount;
+            exec.levelPreCacheHotCount += event.levelPreCacheHotCount;
+            exec.levelPreCacheRefusedCount += event.levelPreCacheRefusedCount;
         }
 
         public Object visit(CellCacheSegmentCreateEvent event) {
@@ -20,6 +20,10 @@ public class ExecutionEndEvent extends ExecutionEvent {
     public final int cellCacheHitCount;
     public final int cellCacheMissCount;
     public final int cellCachePendingCount;
+    public final int nativeSetCacheHitCount;
+    public final int nativeSetCacheMissCount;
+    public final int levelPreCacheHotCount;
+    public final int levelPreCacheRefusedCount;
 
     /**
      * Creates an ExecutionEndEvent.
@@ -37,6 +41,14 @@ public class ExecutionEndEvent extends ExecutionEvent {
      * @param cellCacheMissCount Number of cell requests for which cell was
      *   not in cache
      * @param cellCachePendingCount Number of cell requests for which cell was
+     * @param nativeSetCacheHitCount Number of native sets that were found in
+     *   the native set cache
+     * @param nativeSetCacheMissCount Number of native sets that were not in
+     *   the native set cache
+     * @param levelPreCacheHotCount Number of levels above the pre-cache
+     *   threshold that were read in full because they are accessed often
+     * @param levelPreCacheRefusedCount Number of levels that were not read
+     *   in full because they are too large
      */
     public ExecutionEndEvent(
         long timestamp,
@@ -48,7 +60,11 @@ public class ExecutionEndEvent extends ExecutionEvent {
         Execution.State state,
         int cellCacheHitCount,
         int cellCacheMissCount,
-        int cellCachePendingCount)
+        int cellCachePendingCount,
+        int nativeSetCacheHitCount,
+        int nativeSetCacheMissCount,
+        int levelPreCacheHotCount,
+        int levelPreCacheRefusedCount)
     {
         super(timestamp, serverId, connectionId, statementId, executionId);
         this.phaseCount = phaseCount;
@@ -56,6 +72,10 @@ public class ExecutionEndEvent extends ExecutionEvent {
         this.cellCacheHitCount = cellCacheHitCount;
         this.cellCacheMissCount = cellCacheMissCount;
         this.cellCachePendingCount = cellCachePendingCount;
+        this.nativeSetCacheHitCount = nativeSetCacheHitCount;
+        this.nativeSetCacheMissCount = nativeSetCacheMissCount;
+        this.levelPreCacheHotCount = levelPreCacheHotCount;
+        this.levelPreCacheRefusedCount = levelPreCacheRefusedCount;
     }
 
     @Override
@@ -102,6 +102,30 @@ public class ServerInfo extends Info {
      */
     public final int cellCoordinateCount;
 
+    /**
+     * The number of native set evaluations that found their tuples in the
+     * native set cache.
+     */
+    public final int nativeSetCacheHitCount;
+
+    /**
+     * The number of native set evaluations that read their tuples using SQL
+     * because they were not in the native set cache.
+     */
+    public final int nativeSetCacheMissCount;
+
+    /**
+     * The number of times a level above the pre-cache threshold was read in
+     * full because it is accessed often.
+     */
+    public final int levelPreCacheHotCount;
+
+    /**
+     * The number of times a level was not read in full because it is too
+     * large to pre-cache, however often it is accessed.
+     */
+    public final int levelPreCacheRefusedCount;
+
     public ServerInfo(
         String stack,
         int connectionStartCount,
@@ -130,7 +154,11 @@ public class ServerInfo extends Info {
         int segmentCreateViaRollupCount,
         int segmentCreateViaSqlCount,
         int cellCount,
-        int cellCoordinateCount)
+        int cellCoordinateCount,
+        int nativeSetCacheHitCount,
+        int nativeSetCacheMissCount,
+        int levelPreCacheHotCount,
+        int levelPreCacheRefusedCount)
     {
         super(stack);
         this.connectionStartCount = connectionStartCount;
@@ -160,6 +188,10 @@ public class ServerInfo extends Info {
         this.segmentCreateViaSqlCount = segmentCreateViaSqlCount;
         this.cellCount = cellCount;
         this.cellCoordinateCount = cellCoordinateCount;
+        this.nativeSetCacheHitCount = nativeSetCacheHitCount;
+        this.nativeSetCacheMissCount = nativeSetCacheMissCount;
+        this.levelPreCacheHotCount = levelPreCacheHotCount;
+        this.levelPreCacheRefusedCount = levelPreCacheRefusedCount;
     }
 
     public int getCellCacheMissCount() {
@@ -297,6 +329,22 @@ public class ServerInfo extends Info {
     public int getCellCoordinateCount() {
         return cellCoordinateCount;
     }
+
+    public int getNativeSetCacheHitCount() {
+        return nativeSetCacheHitCount;
+    }
+
+    public int getNativeSetCacheMissCount() {
+        return nativeSetCacheMissCount;
+    }
+
+    public int getLevelPreCacheHotCount() {
+        return levelPreCacheHotCount;
+    }
+
+    public int getLevelPreCacheRefusedCount() {
+        return levelPreCacheRefusedCount;
+    }
 }
 
 // End ServerInfo.java
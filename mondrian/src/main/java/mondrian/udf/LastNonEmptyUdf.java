@@ -59,8 +59,6 @@ public class LastNonEmptyUdf implements UserDefinedFunction {
         final Argument memberListExp = arguments[0];
         final List memberList = (List) memberListExp.evaluate(evaluator);
         final Argument exp = arguments[1];
-        int nullCount = 0;
-        int missCount = 0;
         for (int i = memberList.size() - 1; i >= 0; --i) {
             Member member = (Member) memberList.get(i);
             // Create an evaluator with the member as its context.
@@ -69,39 +67,26 @@ public class LastNonEmptyUdf implements UserDefinedFunction {
             int missCountBefore = subEvaluator.getMissCount();
             final Object o = exp.evaluateScalar(subEvaluator);
             int missCountAfter = subEvaluator.getMissCount();
-            if (Util.isNull(o)) {
-                ++nullCount;
-                continue;
-            }
-            if (missCountAfter > missCountBefore) {
+            if (missCountAfter > missCountBefore
+                || o == RolapUtil.valueNotReadyException)
+            {
                 // There was a cache miss while evaluating the expression, so
-                // the result is bogus. It would be a mistake to give up after
-                // one cache miss, because then it would take us N
-                // evaluate/fetch passes to move back through N members, which
-                // is way too many.
+                // we don't know yet whether the value is empty. It would be a
+                // mistake to give up after one cache miss, because then it
+                // would take us N evaluate/fetch passes to move back through
+                // N members, which is way too many.
                 //
-                // Carry on until we have seen as many misses as we have seen
-                // null cells. The effect of this policy is that each pass
-                // examines twice as many cells as the previous pass. Thus
-                // we can move back through N members in log2(N) passes.
-                ++missCount;
-                if (missCount < 2 * nullCount + 1) {
-                    continue;
-                }
+                // Carry on through the rest of the list, so that the cells
+                // for the whole window are requested in one batch, and the
+                // next pass finds the answer. Stop early only at a member
+                // whose value is known to be non-empty.
+                continue;
             }
-            if (o == RolapUtil.valueNotReadyException) {
-                // Value is not in the cache yet, so we don't know whether
-                // it will be empty. Carry on...
+            if (Util.isNull(o)) {
                 continue;
             }
             if (o instanceof RuntimeException) {
-                RuntimeException runtimeException = (RuntimeException) o;
-                if (o == RolapUtil.valueNotReadyException) {
-                    // Value is not in the cache yet, so we don't know whether
-                    // it will be empty. Carry on...
-                    continue;
-                }
-                return runtimeException;
+                return o;
             }
             return member;
         }
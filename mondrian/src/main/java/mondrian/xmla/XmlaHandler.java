@@ -10,9 +10,11 @@
 */
 package mondrian.xmla;
 
+import mondrian.olap.MondrianException;
 import mondrian.olap.MondrianProperties;
 import mondrian.olap.Util;
 import mondrian.olap4j.IMondrianOlap4jProperty;
+import mondrian.rolap.RolapResult;
 import mondrian.util.CompositeList;
 import mondrian.xmla.impl.DefaultSaxWriter;
 
@@ -65,6 +67,15 @@ public class XmlaHandler {
      */
     public static final String JDBC_LOCALE = "locale";
 
+    /**
+     * Name of the mondrian connection property, and of the XMLA request
+     * property that sets it, that causes cells of a query result to be
+     * computed in chunks as they are written. See
+     * {@link mondrian.rolap.RolapConnectionProperties#ResultStreamingChunkSize}.
+     */
+    private static final String RESULT_STREAMING_CHUNK_SIZE =
+        "ResultStreamingChunkSize";
+
     final ConnectionFactory connectionFactory;
     private final String prefix;
 
@@ -1693,13 +1704,33 @@ public class XmlaHandler {
         }
         checkFormat(request);
 
+        // Results are written cell by cell in cell ordinal order, so the
+        // client may ask for them to be computed a chunk at a time.
+        final String streamingChunkSize =
+            request.getProperties().get(RESULT_STREAMING_CHUNK_SIZE);
+        if (streamingChunkSize != null) {
+            try {
+                RolapResult.parseChunkSize(streamingChunkSize);
+            } catch (MondrianException e) {
+                throw new XmlaException(
+                    CLIENT_FAULT_FC,
+                    HSB_BAD_PROPERTIES_CODE,
+                    HSB_BAD_PROPERTIES_FAULT_FS,
+                    e);
+            }
+        }
+        final Map<String, String> propMap =
+            streamingChunkSize == null
+                ? Collections.<String, String>emptyMap()
+                : Collections.singletonMap(
+                    RESULT_STREAMING_CHUNK_SIZE, streamingChunkSize);
+
         OlapConnection connection = null;
         PreparedOlapStatement statement = null;
         CellSet cellSet = null;
         boolean success = false;
         try {
-            connection =
-                getConnection(request, Collections.<String, String>emptyMap());
+            connection = getConnection(request, propMap);
             getExtra(connection).setPreferList(connection);
             try {
                 statement = connection.prepareOlapStatement(mdx);